@@ -0,0 +1,323 @@
+package com.example.benchmark;
+
+import com.example.contract.LetterOfCreditContract;
+import com.example.state.BillOfLadingState;
+import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
+import com.example.state.PurchaseOrderState;
+import net.corda.core.contracts.Command;
+import net.corda.core.contracts.CommandData;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.HashAttachmentConstraint;
+import net.corda.core.contracts.PrivacySalt;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.TransactionState;
+import net.corda.core.crypto.Crypto;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.crypto.SignableData;
+import net.corda.core.crypto.SignatureMetadata;
+import net.corda.core.crypto.TransactionSignature;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.node.NetworkParameters;
+import net.corda.core.node.NotaryInfo;
+import net.corda.core.transactions.LedgerTransaction;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.transactions.WireTransaction;
+import net.corda.testing.core.TestIdentity;
+import net.corda.testing.node.MockServices;
+
+import java.security.PublicKey;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.example.contract.LetterOfCreditContract.LOC_CONTRACT_ID;
+import static net.corda.core.internal.TransactionUtilsKt.createComponentGroups;
+import static net.corda.testing.internal.InternalTestUtilsKt.withTestSerializationEnvIfNotSet;
+
+/**
+ * Builds the transactions of the LOC lifecycle as the flows do, resolved against MockServices into the
+ * LedgerTransactions the contract verifies on the notary and the signers.
+ */
+public class LedgerTransactions {
+    private static final TestIdentity NOTARY = new TestIdentity(new CordaX500Name("Notary", "London", "GB"));
+    private static final TestIdentity SELLER = new TestIdentity(new CordaX500Name("KowloonTraders", "Kowloon", "HK"));
+    private static final TestIdentity BUYER = new TestIdentity(new CordaX500Name("ChittagongTraders", "Chittagong", "BD"));
+    private static final TestIdentity ADVISING_BANK = new TestIdentity(new CordaX500Name("KowloonBank", "Kowloon", "HK"));
+    private static final TestIdentity ISSUING_BANK = new TestIdentity(new CordaX500Name("DhakaBank", "Dhaka", "BD"));
+
+    private static final String PURCHASE_ORDER_ID = "PO-1";
+    private static final String LOC_ID = "LOC-1";
+    private static final String BILL_OF_LADING_ID = "BOL-1";
+
+    // The notary has to be on the network parameters for the transactions to resolve against them.
+    private final MockServices services = new MockServices(
+            Arrays.asList("com.example.contract", "com.example.schema"),
+            SELLER,
+            new NetworkParameters(
+                    4,
+                    Collections.singletonList(new NotaryInfo(NOTARY.getParty(), false)),
+                    10485760,
+                    10485760 * 50,
+                    Instant.now(),
+                    1,
+                    Collections.emptyMap()
+            ),
+            BUYER, ADVISING_BANK, ISSUING_BANK
+    );
+
+    /** The transaction of the given LetterOfCreditContract.Commands type, e.g. "Settle". */
+    public LedgerTransaction of(String command) {
+        // The transactions are serialised on the way to LedgerTransactions, outside a node that sets that up.
+        return withTestSerializationEnvIfNotSet(() -> {
+            try {
+                return build(command);
+            } catch (IllegalArgumentException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not build the " + command + " transaction.", e);
+            }
+        });
+    }
+
+    private LedgerTransaction build(String command) throws Exception {
+        switch (command) {
+            case "CreatePurchaseOrder":
+                return createPurchaseOrder();
+            case "ApplyForLetterOfCredit":
+                return applyForLetterOfCredit();
+            case "ApproveLetterOfCreditApplication":
+                return approveLetterOfCreditApplication();
+            case "ShipProducts":
+                return shipProducts();
+            case "PaySeller":
+                return paySeller();
+            case "PayAdvisingBank":
+                return payAdvisingBank();
+            case "PayIssuingBank":
+                return payIssuingBank();
+            case "Settle":
+                return settle();
+            default:
+                throw new IllegalArgumentException("Unknown command: " + command);
+        }
+    }
+
+    /** The seller and the buyer agree on a purchase order. */
+    private LedgerTransaction createPurchaseOrder() throws Exception {
+        return transaction(
+                new LetterOfCreditContract.Commands.CreatePurchaseOrder(),
+                Collections.emptyList(),
+                Arrays.asList(purchaseOrder()),
+                SELLER.getPublicKey(), BUYER.getPublicKey()
+        );
+    }
+
+    /** The buyer applies for an LOC against the purchase order, which the seller signs for too. */
+    private LedgerTransaction applyForLetterOfCredit() throws Exception {
+        return transaction(
+                new LetterOfCreditContract.Commands.ApplyForLetterOfCredit(),
+                issue(purchaseOrder()),
+                Arrays.asList(letterOfCredit(LocStatus.APPLIED, null)),
+                BUYER.getPublicKey(), SELLER.getPublicKey()
+        );
+    }
+
+    /** The issuing bank issues the LOC applied for. */
+    private LedgerTransaction approveLetterOfCreditApplication() throws Exception {
+        return transaction(
+                new LetterOfCreditContract.Commands.ApproveLetterOfCreditApplication(),
+                issue(letterOfCredit(LocStatus.APPLIED, null)),
+                Arrays.asList(letterOfCredit(LocStatus.ISSUED, null)),
+                ISSUING_BANK.getPublicKey()
+        );
+    }
+
+    /** The seller ships the products and issues the BillOfLading. */
+    private LedgerTransaction shipProducts() throws Exception {
+        return transaction(
+                new LetterOfCreditContract.Commands.ShipProducts(),
+                issue(letterOfCredit(LocStatus.ISSUED, null)),
+                Arrays.asList(letterOfCredit(LocStatus.SHIPPED, BILL_OF_LADING_ID), billOfLading(SELLER.getParty())),
+                SELLER.getPublicKey()
+        );
+    }
+
+    /** The advising bank pays the seller for the BillOfLading. */
+    private LedgerTransaction paySeller() throws Exception {
+        return payment(
+                new LetterOfCreditContract.Commands.PaySeller(),
+                LocStatus.SHIPPED, SELLER.getParty(),
+                LocStatus.SELLER_PAID, ADVISING_BANK.getParty(),
+                SELLER.getPublicKey(), ADVISING_BANK.getPublicKey()
+        );
+    }
+
+    /** The issuing bank pays the advising bank for the BillOfLading. */
+    private LedgerTransaction payAdvisingBank() throws Exception {
+        return payment(
+                new LetterOfCreditContract.Commands.PayAdvisingBank(),
+                LocStatus.SELLER_PAID, ADVISING_BANK.getParty(),
+                LocStatus.ADVISING_BANK_PAID, ISSUING_BANK.getParty(),
+                ISSUING_BANK.getPublicKey(), ADVISING_BANK.getPublicKey()
+        );
+    }
+
+    /** The buyer pays the issuing bank for the BillOfLading. */
+    private LedgerTransaction payIssuingBank() throws Exception {
+        return payment(
+                new LetterOfCreditContract.Commands.PayIssuingBank(),
+                LocStatus.ADVISING_BANK_PAID, ISSUING_BANK.getParty(),
+                LocStatus.ISSUING_BANK_PAID, BUYER.getParty(),
+                BUYER.getPublicKey(), ISSUING_BANK.getPublicKey()
+        );
+    }
+
+    /** The seller, the buyer and both banks pay each other in one go after the products have been shipped. */
+    private LedgerTransaction settle() throws Exception {
+        return payment(
+                new LetterOfCreditContract.Commands.Settle(),
+                LocStatus.SHIPPED, SELLER.getParty(),
+                LocStatus.ISSUING_BANK_PAID, BUYER.getParty(),
+                BUYER.getPublicKey(), SELLER.getPublicKey(), ISSUING_BANK.getPublicKey(), ADVISING_BANK.getPublicKey()
+        );
+    }
+
+    // A payment moves the LOC to its next status and hands the BillOfLading over to the party that paid for it.
+    private LedgerTransaction payment(CommandData command,
+                                      LocStatus inputStatus, Party inputOwner,
+                                      LocStatus outputStatus, Party outputOwner,
+                                      PublicKey... signers) throws Exception {
+        return transaction(
+                command,
+                issue(letterOfCredit(inputStatus, BILL_OF_LADING_ID), billOfLading(inputOwner)),
+                Arrays.asList(letterOfCredit(outputStatus, BILL_OF_LADING_ID), billOfLading(outputOwner)),
+                signers
+        );
+    }
+
+    private PurchaseOrderState purchaseOrder() {
+        return new PurchaseOrderState(
+                PURCHASE_ORDER_ID,
+                SELLER.getParty(),
+                BUYER.getParty(),
+                "2020-07-01",
+                "Jute",
+                100L,
+                50L,
+                1000L
+        );
+    }
+
+    private LetterOfCreditState letterOfCredit(LocStatus status, String billOfLadingId) {
+        return new LetterOfCreditState(
+                LOC_ID,
+                "IRREVOCABLE",
+                "2021-07-01",
+                SELLER.getParty(),
+                BUYER.getParty(),
+                ADVISING_BANK.getParty(),
+                ISSUING_BANK.getParty(),
+                5000L,
+                "Kowloon Port",
+                "Kowloon",
+                "Hong Kong",
+                "Chittagong Port",
+                "Chittagong",
+                "Bangladesh",
+                "Jute",
+                100L,
+                50L,
+                1000L,
+                status,
+                PURCHASE_ORDER_ID,
+                billOfLadingId
+        );
+    }
+
+    private BillOfLadingState billOfLading(Party owner) {
+        return new BillOfLadingState(
+                BILL_OF_LADING_ID,
+                owner,
+                SELLER.getParty(),
+                BUYER.getParty(),
+                ADVISING_BANK.getParty(),
+                ISSUING_BANK.getParty(),
+                "Kowloon Shipping Lines",
+                "MV Jute",
+                "2020-08-01",
+                "2020-08-15",
+                "Jute",
+                "Raw jute fibre",
+                100L,
+                50L,
+                1000L,
+                "Kowloon Port",
+                "Kowloon",
+                "Hong Kong",
+                "Chittagong Port",
+                "Chittagong",
+                "Bangladesh"
+        );
+    }
+
+    /**
+     * Records a transaction creating the given states, so that they can be the inputs of the next one. It is not
+     * verified, nor built with a TransactionBuilder which would verify it: only the transaction that consumes the
+     * states is. The ledger DSL's unverifiedTransaction would keep it in the DSL's own storage, where the
+     * TransactionBuilder resolving the next transaction against services doesn't look.
+     */
+    private List<StateAndRef<ContractState>> issue(ContractState... states) {
+        final SecureHash contractAttachment = services.getCordappProvider().getContractAttachmentID(LOC_CONTRACT_ID);
+        final List<TransactionState<ContractState>> outputs = new ArrayList<>();
+        for (ContractState state : states) {
+            outputs.add(new TransactionState<>(state, LOC_CONTRACT_ID, NOTARY.getParty(), null,
+                    new HashAttachmentConstraint(contractAttachment)));
+        }
+        final WireTransaction issuance = new WireTransaction(
+                createComponentGroups(
+                        Collections.emptyList(),
+                        outputs,
+                        Collections.singletonList(new Command<>(
+                                new LetterOfCreditContract.Commands.CreatePurchaseOrder(), SELLER.getPublicKey())),
+                        Collections.singletonList(contractAttachment),
+                        NOTARY.getParty(),
+                        null,
+                        Collections.emptyList(),
+                        services.getNetworkParametersService().getCurrentHash()
+                ),
+                new PrivacySalt()
+        );
+
+        final SignatureMetadata metadata = new SignatureMetadata(
+                services.getMyInfo().getPlatformVersion(),
+                Crypto.findSignatureScheme(SELLER.getPublicKey()).getSchemeNumberID()
+        );
+        final TransactionSignature signature = services.getKeyManagementService()
+                .sign(new SignableData(issuance.getId(), metadata), SELLER.getPublicKey());
+        services.recordTransactions(new SignedTransaction(issuance, Collections.singletonList(signature)));
+
+        final List<StateAndRef<ContractState>> issued = new ArrayList<>();
+        for (int index = 0; index < states.length; index++) issued.add(issuance.outRef(index));
+        return issued;
+    }
+
+    private LedgerTransaction transaction(CommandData command,
+                                          List<StateAndRef<ContractState>> inputs,
+                                          List<ContractState> outputs,
+                                          PublicKey... signers) throws Exception {
+        final TransactionBuilder builder = new TransactionBuilder(NOTARY.getParty());
+        for (StateAndRef<ContractState> input : inputs) builder.addInputState(input);
+        for (ContractState output : outputs) builder.addOutputState(output, LOC_CONTRACT_ID);
+        builder.addCommand(command, Arrays.asList(signers));
+
+        final LedgerTransaction tx = builder.toLedgerTransaction(services);
+        // The inputs are deserialised on first use, which needs the serialization environment only set up here.
+        tx.getInputStates();
+        return tx;
+    }
+}
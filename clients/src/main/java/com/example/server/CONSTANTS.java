@@ -5,4 +5,17 @@ public interface CONSTANTS {
     String CORDA_USER_PASSWORD = "config.rpc.password";
     String CORDA_NODE_HOST = "config.rpc.host";
     String CORDA_RPC_PORT = "config.rpc.port";
+    String CORDA_RPC_POOL_SIZE = "config.rpc.pool-size";
+    String CORDA_RPC_HEALTH_CHECK_MILLIS = "config.rpc.health-check-ms";
+    String NODES = "config.nodes";
+    String NODE_PREFIX = "config.node.";
+    String VAULT_PAGE_SIZE = "config.vault.page-size";
+    String FLOW_TIMEOUT_MILLIS = "config.flow.timeout-ms";
+    String FLOW_MAX_IN_FLIGHT = "config.flow.max-in-flight";
+    String FLOW_STATUS_RETENTION = "config.flow.status-retention";
+    String FLOW_EVENTS_TIMEOUT_MILLIS = "config.flow.events-timeout-ms";
+    String FLOW_EVENTS_SENDERS = "config.flow.events-senders";
+    String IDEMPOTENCY_RETENTION = "config.flow.idempotency-retention";
+    String IDEMPOTENCY_TTL_MILLIS = "config.flow.idempotency-ttl-ms";
+    String WEBSOCKET_ALLOWED_ORIGINS = "config.websocket.allowed-origins";
 }
@@ -0,0 +1,125 @@
+package com.example.server;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Streams a flow's progress to an HTTP client as Server-Sent Events. The stream replays the steps the flow
+ * has already passed through, follows it live, and ends with its "completed" or "failed" event.
+ *
+ * Events are reported on RPC observer threads, so they are queued per stream and written out by a small pool
+ * of sender threads. A stream is written by at most one sender at a time, which keeps its events in order and
+ * means a slow client holds up only its own stream. A stream whose client falls MAX_PENDING events behind, or
+ * whose write fails, is dropped.
+ */
+@Component
+public class FlowEventStreams {
+    private static final int MAX_PENDING = 64;
+
+    private final long timeoutMillis;
+    private final ExecutorService senders;
+
+    public FlowEventStreams(
+            @Value("${" + CONSTANTS.FLOW_EVENTS_TIMEOUT_MILLIS + ":600000}") long timeoutMillis,
+            @Value("${" + CONSTANTS.FLOW_EVENTS_SENDERS + ":4}") int senders
+    ) {
+        this.timeoutMillis = timeoutMillis;
+        this.senders = Executors.newFixedThreadPool(senders);
+    }
+
+    public SseEmitter stream(FlowStatus status) {
+        final SseEmitter emitter = new SseEmitter(timeoutMillis);
+        final Stream stream = new Stream(status, emitter);
+        emitter.onCompletion(stream::close);
+        emitter.onTimeout(stream::close);
+        status.follow(stream);
+        return emitter;
+    }
+
+    @PreDestroy
+    public void close() {
+        senders.shutdownNow();
+    }
+
+    /** The events of one flow still to be written to one client. */
+    private class Stream implements Consumer<Map<String, Object>> {
+        private final FlowStatus status;
+        private final SseEmitter emitter;
+        private final Queue<Map<String, Object>> pending = new ArrayDeque<>();
+        private boolean sending = false;
+        private boolean closed = false;
+
+        Stream(FlowStatus status, SseEmitter emitter) {
+            this.status = status;
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void accept(Map<String, Object> event) {
+            final boolean overflowed;
+            synchronized (this) {
+                if (closed) return;
+                overflowed = pending.size() >= MAX_PENDING;
+                if (overflowed) {
+                    closed = true;
+                    pending.clear();
+                } else {
+                    pending.add(event);
+                    if (sending) return;
+                    sending = true;
+                }
+            }
+            if (overflowed) drop(new IllegalStateException("Client is more than " + MAX_PENDING + " events behind."));
+            else senders.execute(this::send);
+        }
+
+        // Writes the queued events until there are none left, then hands the stream back to accept.
+        private void send() {
+            while (true) {
+                final Map<String, Object> event;
+                synchronized (this) {
+                    event = closed ? null : pending.poll();
+                    if (event == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                try {
+                    final String type = String.valueOf(event.get("type"));
+                    emitter.send(SseEmitter.event().name(type).data(event));
+                    if (!type.equals("step")) emitter.complete();
+                } catch (IOException | IllegalStateException ex) {
+                    // The client has gone away.
+                    synchronized (this) {
+                        closed = true;
+                        pending.clear();
+                    }
+                    drop(ex);
+                }
+            }
+        }
+
+        private void drop(Exception reason) {
+            status.unfollow(this);
+            emitter.completeWithError(reason);
+        }
+
+        void close() {
+            synchronized (this) {
+                closed = true;
+                pending.clear();
+            }
+            status.unfollow(this);
+        }
+    }
+}
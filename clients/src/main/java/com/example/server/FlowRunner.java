@@ -0,0 +1,212 @@
+package com.example.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.messaging.FlowProgressHandle;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs flows for the REST endpoints without holding a servlet thread while they sign and notarise.
+ * The response is completed from the flow's return value, or, for async submissions, answered with the
+ * flow id straight away so the client can poll the flow's status. At most a configured number of flows
+ * started here run at once; further requests are turned away with 503 until one finishes.
+ *
+ * A request with an Idempotency-Key starts its flow only once: a retry with the same key, on the same node and for
+ * the same flow, is answered from the flow the first request started, see {@link IdempotencyCache}. The key must be
+ * a UUID, and a key reused for a different request is answered with 422.
+ */
+@Component
+public class FlowRunner {
+    // Writes a request body the same way whatever the order of its keys, for its digest.
+    private static final ObjectMapper CANONICAL_JSON = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true);
+
+    private final long timeoutMillis;
+    private final Semaphore inFlight;
+    private final FlowStatusRegistry statuses;
+    private final IdempotencyCache idempotency;
+
+    /**
+     * @param timeoutMillis How long a request waits for its flow before answering 202 with the flow id.
+     * @param maxInFlight The number of flows started here that may run at once, including async submissions.
+     * @param statuses Where the status of each started flow is kept for GET /flows/{flowId}.
+     * @param idempotency The flows started for requests with an Idempotency-Key, by key.
+     */
+    public FlowRunner(
+            @Value("${" + CONSTANTS.FLOW_TIMEOUT_MILLIS + ":60000}") long timeoutMillis,
+            @Value("${" + CONSTANTS.FLOW_MAX_IN_FLIGHT + ":32}") int maxInFlight,
+            FlowStatusRegistry statuses,
+            IdempotencyCache idempotency
+    ) {
+        this.timeoutMillis = timeoutMillis;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.statuses = statuses;
+        this.idempotency = idempotency;
+    }
+
+    /**
+     * Starts a flow and registers its status under its flow id. Unless async is set, answers with the
+     * transaction id and outputs once the flow completes; otherwise answers 202 with the flow id straight away.
+     * @param node The node to run the flow on.
+     * @param idempotencyKey The request's Idempotency-Key header, or null.
+     * @param request The request body, to tell a retry from another request with the same key.
+     * @param flowClass The flow to start. It must return a SignedTransaction, a list of them, or a batch approval's
+     *                  outcome, see {@link FlowStatus#flowResult}.
+     * @param flowArgs Builds the flow's constructor arguments from the request.
+     * @param async Whether to answer as soon as the flow has started.
+     * @param successStatus The status to answer with when the flow completes.
+     * @param outputNames The response keys of the transaction's outputs, in output order. A last key ending
+     *                    in "*" takes the remaining outputs as a list, see {@link FlowStatus#flowResult}.
+     */
+    public DeferredResult<ResponseEntity> run(
+            NodeContext node,
+            String idempotencyKey,
+            Object request,
+            Class<? extends FlowLogic<?>> flowClass,
+            Callable<Object[]> flowArgs,
+            boolean async,
+            HttpStatus successStatus,
+            String... outputNames
+    ) {
+        final DeferredResult<ResponseEntity> result = new DeferredResult<>(timeoutMillis);
+        if (idempotencyKey != null && !isUuid(idempotencyKey)) {
+            result.setResult(failure(HttpStatus.BAD_REQUEST, "Idempotency-Key must be a UUID."));
+            return result;
+        }
+        final String key = idempotencyKey == null ? null
+                : node.getMe() + ":" + flowClass.getName() + ":" + UUID.fromString(idempotencyKey);
+        if (key != null) {
+            final String requestDigest = digest(request);
+            final IdempotencyCache.Entry previous = idempotency.claim(key, requestDigest);
+            if (previous != null) {
+                result.setResult(previous.getRequestDigest().equals(requestDigest)
+                        ? replay(previous, successStatus)
+                        : failure(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key was already used for a different request."));
+                return result;
+            }
+        }
+        if (!inFlight.tryAcquire()) {
+            if (key != null) idempotency.release(key, null);
+            result.setResult(failure(HttpStatus.SERVICE_UNAVAILABLE, "Too many flows in progress, try again later."));
+            return result;
+        }
+
+        final FlowProgressHandle<?> handle;
+        try {
+            handle = node.getProxy().startTrackedFlowDynamic(flowClass, flowArgs.call());
+        } catch (Exception ex) {
+            inFlight.release();
+            if (key != null) idempotency.release(key, null);
+            // For the purposes of this demo app, we do not differentiate by exception type.
+            result.setResult(failure(HttpStatus.BAD_REQUEST, "Failed to complete flow. " + ex.getMessage()));
+            return result;
+        }
+
+        final FlowStatus status = new FlowStatus(handle.getId().getUuid(), flowClass.getName());
+        statuses.register(status);
+        if (key != null) idempotency.started(key, status);
+        handle.getProgress().subscribe(status::stepChanged, error -> { });
+
+        // The flow carries on in the node after a timeout, so its permit is only released once it completes.
+        if (async) {
+            result.setResult(accepted(status));
+        } else {
+            result.onTimeout(() -> result.setResult(accepted(status)));
+        }
+
+        // Anything thrown in here would only fail the future whenComplete returns, which nobody reads, so the
+        // request would hang until its timeout and the status stay running.
+        handle.getReturnValue().toCompletableFuture().whenComplete((returnValue, error) -> {
+            try {
+                if (error != null) {
+                    final Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    status.failed("Failed to complete flow. " + cause.getMessage());
+                    if (key != null) idempotency.release(key, status);
+                    result.setResult(failure(HttpStatus.BAD_REQUEST, "Failed to complete flow. " + cause.getMessage()));
+                    return;
+                }
+                status.completed(returnValue, outputNames);
+                result.setResult(ResponseEntity.status(successStatus).body(new HashMap<>(status.getResult())));
+            } catch (Exception ex) {
+                // The flow did run, so its key is kept: a retry must not start it again.
+                status.failed("Flow completed but its result could not be read. " + ex.getMessage());
+                result.setResult(failure(HttpStatus.INTERNAL_SERVER_ERROR,
+                        "Flow " + status.getFlowId() + " completed but its result could not be read. " + ex.getMessage()));
+            } finally {
+                inFlight.release();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * A business id for the state a flow started with an Idempotency-Key creates, so that the ledger also rejects a
+     * retry once the key has left the cache. It is a UUID derived from the key, namespaced by the node and the flow,
+     * so that the raw key doesn't end up on the ledger and the same key sent to another node or endpoint doesn't
+     * clash with it.
+     * @param parts Tell apart the states of one request, e.g. the position of each in a batch.
+     */
+    public static String businessId(NodeContext node, Class<? extends FlowLogic<?>> flowClass, String idempotencyKey, Object... parts) {
+        final StringBuilder name = new StringBuilder()
+                .append(node.getMe()).append(':').append(flowClass.getName()).append(':').append(UUID.fromString(idempotencyKey));
+        for (Object part : parts) name.append(':').append(part);
+        return UUID.nameUUIDFromBytes(name.toString().getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    // UUID.fromString also takes shortened forms such as 1-2-3-4-5, so the key must read back the same.
+    private static boolean isUuid(String key) {
+        try {
+            return UUID.fromString(key).toString().equalsIgnoreCase(key);
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    /** The SHA-256 of the request as canonical JSON, to tell a retry from another request with the same key. */
+    private static String digest(Object request) {
+        try {
+            return SecureHash.sha256(CANONICAL_JSON.writeValueAsBytes(request)).toString();
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Request can't be written as JSON. " + ex.getMessage(), ex);
+        }
+    }
+
+    /** The answer to a retried request: the first request's result once its flow is done, or its flow id. */
+    private static ResponseEntity replay(IdempotencyCache.Entry previous, HttpStatus successStatus) {
+        final FlowStatus status = previous.getStatus();
+        if (status == null)
+            return failure(HttpStatus.CONFLICT, "A request with this Idempotency-Key is being started, try again shortly.");
+        if (status.getState() == FlowStatus.State.COMPLETED)
+            return ResponseEntity.status(successStatus).body(new HashMap<>(status.getResult()));
+        return accepted(status);
+    }
+
+    private static ResponseEntity accepted(FlowStatus status) {
+        final HashMap<String, Object> response = new HashMap<>();
+        response.put("flow_id", status.getFlowId());
+        response.put("message", "Flow is in progress. Poll /flows/" + status.getFlowId() + " for its status.");
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    private static ResponseEntity failure(HttpStatus status, String message) {
+        final HashMap<String, Object> response = new HashMap<>();
+        response.put("message", message);
+        return ResponseEntity.status(status).body(response);
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.server;
+
+import com.example.flow.ApproveLetterOfCreditApplicationBatchFlow;
+import com.example.state.LetterOfCreditState;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.transactions.SignedTransaction;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * What the web tier knows about a flow it started: the progress tracker steps it has passed through so far
+ * and, once it is done, its transaction (or transactions) or the reason it failed.
+ *
+ * Followers get each of these as an event: a "step" event per step, with the time spent since the previous
+ * one, then a final "completed" or "failed" event.
+ */
+public class FlowStatus {
+    public enum State { RUNNING, COMPLETED, FAILED }
+
+    private final UUID flowId;
+    private final String flowName;
+    private final Instant startedAt = Instant.now();
+    private final List<Map<String, Object>> steps = new ArrayList<>();
+
+    private State state = State.RUNNING;
+    private Map<String, Object> result;
+    private String error;
+    private Instant lastStepAt = startedAt;
+    private final List<Consumer<Map<String, Object>>> followers = new ArrayList<>();
+
+    public FlowStatus(UUID flowId, String flowName) {
+        this.flowId = flowId;
+        this.flowName = flowName;
+    }
+
+    public UUID getFlowId() { return flowId; }
+    public synchronized State getState() { return state; }
+    synchronized Map<String, Object> getResult() { return result; }
+
+    void stepChanged(String step) {
+        final Map<String, Object> event;
+        synchronized (this) {
+            final Instant now = Instant.now();
+            final Map<String, Object> entry = new HashMap<>();
+            entry.put("step", step);
+            entry.put("at", now.toString());
+            // Time spent in the previous step, or since the flow started for the first one.
+            entry.put("elapsed_ms", Duration.between(lastStepAt, now).toMillis());
+            lastStepAt = now;
+            steps.add(entry);
+            event = stepEvent(entry);
+        }
+        notifyFollowers(event);
+    }
+
+    void completed(Object returnValue, String... outputNames) {
+        // The result is built first, so a return value it can't be built from leaves the status running.
+        final Map<String, Object> result = flowResult(returnValue, outputNames);
+        synchronized (this) {
+            this.state = State.COMPLETED;
+            this.result = result;
+        }
+        notifyFollowers(terminalEvent());
+    }
+
+    /**
+     * What a flow returned, as sent in responses: the transaction id and the transaction's outputs keyed by
+     * outputNames, in output order. For a flow returning a list of transactions, the ids are sent as tx_ids and
+     * the outputs of all the transactions are named in turn. A last name ending in "*" takes all the remaining
+     * outputs, as a list under the name without the "*".
+     *
+     * For a batch approval, which can decide some of its applications only, the decided ones are also sent as
+     * "decided" (locId -> tx id), and the others as "failed" (locId -> why).
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> flowResult(Object returnValue, String... outputNames) {
+        if (returnValue instanceof ApproveLetterOfCreditApplicationBatchFlow.Outcome) {
+            final ApproveLetterOfCreditApplicationBatchFlow.Outcome outcome = (ApproveLetterOfCreditApplicationBatchFlow.Outcome) returnValue;
+            final Map<String, Object> result = flowResult(outcome.getTransactions(), outputNames);
+            final Map<String, Object> decided = new LinkedHashMap<>();
+            for (SignedTransaction transaction : outcome.getTransactions()) {
+                transaction.getTx().outputsOfType(LetterOfCreditState.class)
+                        .forEach(it -> decided.put(it.getLocId(), transaction.getId()));
+            }
+            result.put("decided", decided);
+            result.put("failed", new LinkedHashMap<>(outcome.getFailures()));
+            return result;
+        }
+        final Map<String, Object> result = new LinkedHashMap<>();
+        final List<ContractState> states = new ArrayList<>();
+        if (returnValue instanceof SignedTransaction) {
+            final SignedTransaction transaction = (SignedTransaction) returnValue;
+            result.put("tx_id", transaction.getId());
+            states.addAll(transaction.getTx().getOutputStates());
+        } else {
+            final List<SignedTransaction> transactions = (List<SignedTransaction>) returnValue;
+            result.put("tx_ids", transactions.stream().map(SignedTransaction::getId).collect(Collectors.toList()));
+            transactions.forEach(it -> states.addAll(it.getTx().getOutputStates()));
+        }
+        for (int i = 0; i < outputNames.length; i++) {
+            final String name = outputNames[i];
+            if (i == outputNames.length - 1 && name.endsWith("*")) {
+                result.put(name.substring(0, name.length() - 1), new ArrayList<>(states.subList(i, states.size())));
+            } else {
+                result.put(name, states.get(i));
+            }
+        }
+        return result;
+    }
+
+    void failed(String error) {
+        synchronized (this) {
+            this.state = State.FAILED;
+            this.error = error;
+        }
+        notifyFollowers(terminalEvent());
+    }
+
+    /**
+     * Replays the events so far to the follower and, unless the flow is already done, keeps passing it new ones
+     * until {@link #unfollow} is called. Events are passed on the thread that reports them, so followers
+     * should hand them off rather than block.
+     */
+    public synchronized void follow(Consumer<Map<String, Object>> follower) {
+        steps.forEach(it -> follower.accept(stepEvent(it)));
+        if (state == State.RUNNING) followers.add(follower);
+        else follower.accept(terminalEvent());
+    }
+
+    public synchronized void unfollow(Consumer<Map<String, Object>> follower) {
+        followers.remove(follower);
+    }
+
+    private void notifyFollowers(Map<String, Object> event) {
+        final List<Consumer<Map<String, Object>>> current;
+        synchronized (this) {
+            current = new ArrayList<>(followers);
+            if (state != State.RUNNING) followers.clear();
+        }
+        current.forEach(it -> it.accept(event));
+    }
+
+    private static Map<String, Object> stepEvent(Map<String, Object> step) {
+        final Map<String, Object> event = new HashMap<>(step);
+        event.put("type", "step");
+        return event;
+    }
+
+    private synchronized Map<String, Object> terminalEvent() {
+        final HashMap<String, Object> event = toResponse();
+        event.remove("steps");
+        event.put("type", state == State.COMPLETED ? "completed" : "failed");
+        return event;
+    }
+
+    /** The REST representation, as served by GET /flows/{flowId}. */
+    public synchronized HashMap<String, Object> toResponse() {
+        final HashMap<String, Object> response = new HashMap<>();
+        response.put("flow_id", flowId);
+        response.put("flow", flowName);
+        response.put("state", state);
+        response.put("started_at", startedAt.toString());
+        response.put("progress", steps.isEmpty() ? null : steps.get(steps.size() - 1).get("step"));
+        response.put("steps", new ArrayList<>(steps));
+        if (result != null) response.putAll(result);
+        if (error != null) response.put("message", error);
+        return response;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.server;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The statuses of the flows started through the web tier, by flow id. Only the most recently started
+ * flows are kept, so the registry doesn't grow with the number of submissions.
+ */
+@Component
+public class FlowStatusRegistry {
+    private final Map<UUID, FlowStatus> statuses;
+
+    public FlowStatusRegistry(@Value("${" + CONSTANTS.FLOW_STATUS_RETENTION + ":10000}") int retention) {
+        this.statuses = new LinkedHashMap<UUID, FlowStatus>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, FlowStatus> eldest) {
+                return size() > retention;
+            }
+        };
+    }
+
+    public synchronized void register(FlowStatus status) {
+        statuses.put(status.getFlowId(), status);
+    }
+
+    public synchronized FlowStatus get(UUID flowId) {
+        return statuses.get(flowId);
+    }
+}
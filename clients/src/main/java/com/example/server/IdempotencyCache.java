@@ -0,0 +1,95 @@
+package com.example.server;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The flows started for requests with an Idempotency-Key header, by key, so that a client retrying such a request
+ * gets the flow it already started rather than a second one. Only the most recent keys are kept, each for a
+ * limited time.
+ *
+ * Each key also keeps a digest of the request it was first used for, so that reusing a key for a different request
+ * can be told apart from a retry.
+ */
+@Component
+public class IdempotencyCache {
+    /** A claimed key: the flow started for it, or null while the flow is being started. */
+    public static final class Entry {
+        private final Instant expiresAt;
+        private final String requestDigest;
+        private volatile FlowStatus status;
+
+        private Entry(Instant expiresAt, String requestDigest) {
+            this.expiresAt = expiresAt;
+            this.requestDigest = requestDigest;
+        }
+
+        public String getRequestDigest() { return requestDigest; }
+        public FlowStatus getStatus() { return status; }
+    }
+
+    private final Duration ttl;
+    private final Clock clock;
+    private final Map<String, Entry> entries;
+
+    /**
+     * @param retention The number of keys kept. The oldest are dropped first.
+     * @param ttlMillis How long a key is kept after its request.
+     */
+    @Autowired
+    public IdempotencyCache(
+            @Value("${" + CONSTANTS.IDEMPOTENCY_RETENTION + ":10000}") int retention,
+            @Value("${" + CONSTANTS.IDEMPOTENCY_TTL_MILLIS + ":86400000}") long ttlMillis
+    ) {
+        this(retention, ttlMillis, Clock.systemUTC());
+    }
+
+    // For the expiry tests.
+    IdempotencyCache(int retention, long ttlMillis, Clock clock) {
+        this.ttl = Duration.ofMillis(ttlMillis);
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, Entry>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > retention || eldest.getValue().expiresAt.isBefore(clock.instant());
+            }
+        };
+    }
+
+    /**
+     * Claims the key for a new request.
+     * @param requestDigest The digest of the request, compared with that of the request that claimed the key first.
+     * @return null if the key was free and is now claimed by the caller, who must then call {@link #started} or
+     *         {@link #release}. Otherwise the entry of the request that claimed it first.
+     */
+    public synchronized Entry claim(String key, String requestDigest) {
+        final Entry existing = entries.get(key);
+        if (existing != null && existing.expiresAt.isAfter(clock.instant())) return existing;
+        // Removed first, as putting over an expired key would leave it in its old place, among the first dropped.
+        entries.remove(key);
+        entries.put(key, new Entry(clock.instant().plus(ttl), requestDigest));
+        return null;
+    }
+
+    /** Records the flow started for a claimed key. */
+    public synchronized void started(String key, FlowStatus status) {
+        final Entry entry = entries.get(key);
+        if (entry != null && entry.status == null) entry.status = status;
+    }
+
+    /**
+     * Frees a key whose flow failed, or could not be started (with a null status), so that the request can be
+     * retried with it.
+     */
+    public synchronized void release(String key, FlowStatus status) {
+        final Entry entry = entries.get(key);
+        if (entry != null && entry.status == status) entries.remove(key);
+    }
+}
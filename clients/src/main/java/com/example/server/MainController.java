@@ -3,54 +3,74 @@ package com.example.server;
 import com.example.flow.*;
 import com.example.state.BillOfLadingState;
 import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
 import com.example.state.PurchaseOrderState;
+import com.example.vault.StateLookup;
+import com.example.vault.VaultPager;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import net.corda.client.jackson.JacksonSupport;
 import net.corda.core.contracts.ContractState;
 import net.corda.core.contracts.StateAndRef;
+import net.corda.core.flows.FlowLogic;
 import net.corda.core.identity.CordaX500Name;
 import net.corda.core.identity.Party;
 import net.corda.core.messaging.CordaRPCOps;
-import net.corda.core.node.NodeInfo;
 import net.corda.core.node.services.Vault;
 import net.corda.core.node.services.vault.QueryCriteria;
-import net.corda.core.transactions.SignedTransaction;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x500.style.BCStyle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE;
 import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
 
 /**
  * Define your API endpoints here.
  */
 @RestController
-@RequestMapping("/api/example/") // The paths for HTTP requests are relative to this base path.
+// The paths for HTTP requests are relative to this base path. Without a node they go to the default node.
+@RequestMapping({"/api/example/", "/api/example/{node}/"})
 public class MainController {
     private static final Logger logger = LoggerFactory.getLogger(RestController.class);
-    private final CordaRPCOps proxy;
-    private final CordaX500Name me;
-
-    public MainController(NodeRPCConnection rpc) {
-        this.proxy = rpc.getProxy();
-        this.me = proxy.nodeInfo().getLegalIdentities().get(0).getName();
-
+    private final NodeGateway nodes;
+    private final int vaultPageSize;
+    private final FlowRunner flowRunner;
+    private final FlowStatusRegistry flowStatuses;
+    private final FlowEventStreams flowEventStreams;
+
+    public MainController(NodeGateway nodes,
+                          FlowRunner flowRunner,
+                          FlowStatusRegistry flowStatuses,
+                          FlowEventStreams flowEventStreams,
+                          @Value("${" + CONSTANTS.VAULT_PAGE_SIZE + ":200}") int vaultPageSize) {
+        this.nodes = nodes;
+        this.vaultPageSize = vaultPageSize;
+        this.flowRunner = flowRunner;
+        this.flowStatuses = flowStatuses;
+        this.flowEventStreams = flowEventStreams;
     }
 
     /** Helpers for filtering the network map cache. */
@@ -58,20 +78,6 @@ public class MainController {
         return BCStyle.INSTANCE.toString(name);
     }
 
-    private boolean isNotary(NodeInfo nodeInfo) {
-        return !proxy.notaryIdentities()
-                .stream().filter(el -> nodeInfo.isLegalIdentity(el))
-                .collect(Collectors.toList()).isEmpty();
-    }
-
-    private boolean isMe(NodeInfo nodeInfo){
-        return nodeInfo.getLegalIdentities().get(0).getName().equals(me);
-    }
-
-    private boolean isNetworkMap(NodeInfo nodeInfo){
-        return nodeInfo.getLegalIdentities().get(0).getName().getOrganisation().equals("Network Map Service");
-    }
-
     @Configuration
     class Plugin {
         @Bean
@@ -86,131 +92,162 @@ public class MainController {
     }
 
     @GetMapping(value = "/servertime", produces = TEXT_PLAIN_VALUE)
-    private String serverTime() {
+    private String serverTime(@PathVariable(value = "node", required = false) String nodeName) {
+        final CordaRPCOps proxy = nodes.get(nodeName).getProxy();
         return (LocalDateTime.ofInstant(proxy.currentNodeTime(), ZoneId.of("UTC"))).toString();
     }
 
     @GetMapping(value = "/addresses", produces = TEXT_PLAIN_VALUE)
-    private String addresses() {
+    private String addresses(@PathVariable(value = "node", required = false) String nodeName) {
+        final CordaRPCOps proxy = nodes.get(nodeName).getProxy();
         return proxy.nodeInfo().getAddresses().toString();
     }
 
     @GetMapping(value = "/identities", produces = TEXT_PLAIN_VALUE)
-    private String identities() {
+    private String identities(@PathVariable(value = "node", required = false) String nodeName) {
+        final CordaRPCOps proxy = nodes.get(nodeName).getProxy();
         return proxy.nodeInfo().getLegalIdentities().toString();
     }
 
     @GetMapping(value = "/platformversion", produces = TEXT_PLAIN_VALUE)
-    private String platformVersion() {
+    private String platformVersion(@PathVariable(value = "node", required = false) String nodeName) {
+        final CordaRPCOps proxy = nodes.get(nodeName).getProxy();
         return Integer.toString(proxy.nodeInfo().getPlatformVersion());
     }
 
     @GetMapping(value = "/peers", produces = APPLICATION_JSON_VALUE)
-    public HashMap<String, List<String>> getPeers() {
+    public HashMap<String, List<String>> getPeers(@PathVariable(value = "node", required = false) String nodeName) {
         HashMap<String, List<String>> myMap = new HashMap<>();
 
-        // Find all nodes that are not notaries, ourself, or the network map.
-        Stream<NodeInfo> filteredNodes = proxy.networkMapSnapshot().stream()
-                .filter(el -> !isNotary(el) && !isMe(el) && !isNetworkMap(el));
-        // Get their names as strings
-        List<String> nodeNames = filteredNodes.map(el -> el.getLegalIdentities().get(0).getName().toString())
-                .collect(Collectors.toList());
-
-        myMap.put("peers", nodeNames);
+        // All nodes that are not notaries, ourself, or the network map, from the cached network map.
+        myMap.put("peers", nodes.get(nodeName).getNetworkMap().getPeers());
         return myMap;
     }
 
     @GetMapping(value = "/notaries", produces = TEXT_PLAIN_VALUE)
-    private String notaries() {
-        return proxy.notaryIdentities().toString();
+    private String notaries(@PathVariable(value = "node", required = false) String nodeName) {
+        return nodes.get(nodeName).getNetworkMap().getNotaries().toString();
     }
 
     @GetMapping(value = "/flows", produces = TEXT_PLAIN_VALUE)
-    private String flows() {
+    private String flows(@PathVariable(value = "node", required = false) String nodeName) {
+        final CordaRPCOps proxy = nodes.get(nodeName).getProxy();
         return proxy.registeredFlows().toString();
     }
 
+    @GetMapping(value = "/flows/{flowId}", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity flowStatus(@PathVariable String flowId) {
+        final FlowStatus status;
+        try {
+            status = flowStatuses.get(UUID.fromString(flowId));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid flow id " + flowId + ".");
+        }
+        if (status == null)
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No flow with id " + flowId + " was started here.");
+        return ResponseEntity.ok(status.toResponse());
+    }
+
+    /** The flow's progress tracker steps as Server-Sent Events, live until it completes or fails. */
+    @GetMapping(value = "/flows/{flowId}/events", produces = TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> flowEvents(@PathVariable String flowId) {
+        final FlowStatus status;
+        try {
+            status = flowStatuses.get(UUID.fromString(flowId));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        if (status == null)
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        return ResponseEntity.ok(flowEventStreams.stream(status));
+    }
+
     @GetMapping(value = "/states", produces = TEXT_PLAIN_VALUE)
-    private String states() {
-        return proxy.vaultQuery(ContractState.class).getStates().toString();
+    private String states(@PathVariable(value = "node", required = false) String nodeName) {
+        final CordaRPCOps proxy = nodes.get(nodeName).getProxy();
+        return VaultPager.of(proxy, ContractState.class,
+                new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED), vaultPageSize)
+                .stream().collect(Collectors.toList()).toString();
     }
 
     @GetMapping(value = "/me",produces = APPLICATION_JSON_VALUE)
-    private HashMap<String, String> whoami(){
+    private HashMap<String, String> whoami(@PathVariable(value = "node", required = false) String nodeName){
         HashMap<String, String> myMap = new HashMap<>();
-        myMap.put("me", me.toString());
+        myMap.put("me", nodes.get(nodeName).getMe().toString());
         return myMap;
     }
 
     // ---------------------------- Letter-Of-Credit ------------------------------------------------
 
 
-    @GetMapping(value = "/transaction",produces = APPLICATION_JSON_VALUE)
-    public ResponseEntity getAllTransactions() {
-        // Collect all POs
-        List<StateAndRef<PurchaseOrderState>> unconsumedPurchaseOrders = proxy.vaultQueryByCriteria(
-                new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED),
-                PurchaseOrderState.class).getStates();
-        List<StateAndRef<PurchaseOrderState>> consumedPurchaseOrders = proxy.vaultQueryByCriteria(
-                new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.CONSUMED),
-                PurchaseOrderState.class).getStates();
-
-        // Collect all LCs
-        List<StateAndRef<LetterOfCreditState>> unconsumedLetterOfCredits = proxy.vaultQueryByCriteria(
-                new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED),
-                LetterOfCreditState.class).getStates();
-
-        // Collect all BLs
-        List<StateAndRef<BillOfLadingState>> unconsumedBillOfLadings = proxy.vaultQueryByCriteria(
-                new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED),
-                BillOfLadingState.class).getStates();
+    /**
+     * The trade endpoints below send each trade's states as full StateAndRefs by default. With view=compact
+     * they send TradeDtos instead, and fields (a comma separated list of state fields, which implies
+     * view=compact) limits each state to the fields listed.
+     */
+    private static boolean isCompact(String view, Set<String> fields) {
+        if (view == null || view.equals("compact")) return view != null || fields != null;
+        if (!view.equals("full")) throw new IllegalArgumentException("Unknown view " + view + ", expected full or compact.");
+        if (fields != null) throw new IllegalArgumentException("Fields can only be selected with view=compact.");
+        return false;
+    }
 
+    private static Object trade(List<StateAndRef<?>> states, String view, Set<String> fields) {
+        if (isCompact(view, fields)) return TradeDto.select(TradeDto.of(states), fields);
+        HashMap<String, List> tx = new HashMap<>();
+        tx.put("states", states);
+        return tx;
+    }
 
+    /**
+     * Lists the trades this node is part of. Without a page parameter every trade is returned; with one,
+     * only that page is, and the total number of trades is sent in the X-Total-Count header.
+     */
+    @GetMapping(value = "/transaction",produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity getAllTransactions(@PathVariable(value = "node", required = false) String nodeName,
+                                             @RequestParam(value = "page", required = false) Integer page,
+                                             @RequestParam(value = "size", required = false) Integer size,
+                                             @RequestParam(value = "view", required = false) String view,
+                                             @RequestParam(value = "fields", required = false) Set<String> fields) {
+        final NodeContext node = nodes.get(nodeName);
+        final TradeView tradeView = node.getTradeView();
+        final TradeProjection tradeProjection = node.getTradeProjection();
         try {
-            List<HashMap<String, List>> transactions = new ArrayList<>();
-
-            unconsumedPurchaseOrders.forEach(
-                    it -> {
-                        HashMap<String, List> tx = new HashMap<>();
-                        tx.put("states", Arrays.asList(it, null, null));
-                        transactions.add(tx);
-                    }
-            );
+            final int pageSize = size != null ? size : vaultPageSize;
+            final List<List<StateAndRef<?>>> trades;
+            final HttpHeaders headers = new HttpHeaders();
+            if (tradeProjection.isReady()) {
+                final List<List<StateAndRef<?>>> allTrades = tradeProjection.trades();
+                if (page == null) {
+                    trades = allTrades;
+                } else {
+                    if (page < 1 || pageSize < 1)
+                        throw new IllegalArgumentException("Page and size must be positive.");
+                    final long from = Math.min((long) (page - 1) * pageSize, allTrades.size());
+                    trades = allTrades.subList((int) from, (int) Math.min(from + pageSize, allTrades.size()));
+                    headers.set("X-Total-Count", Integer.toString(allTrades.size()));
+                }
+            } else if (page == null) {
+                trades = tradeView.all(pageSize);
+            } else {
+                final TradeView.Page tradePage = tradeView.page(page, pageSize);
+                trades = tradePage.getTrades();
+                headers.set("X-Total-Count", Long.toString(tradePage.getTotalTrades()));
+            }
+
+            if (isCompact(view, fields))
+                return ResponseEntity.ok().headers(headers).body(TradeDto.select(TradeDto.ofAll(trades), fields));
 
-            unconsumedLetterOfCredits.forEach(
+            List<HashMap<String, List>> transactions = new ArrayList<>();
+            trades.forEach(
                     it -> {
                         HashMap<String, List> tx = new HashMap<>();
-
-                        final String poId = it.getState().getData().getPurchaseOrderId();
-                        final String bolId = it.getState().getData().getBillOfLadingId();
-                        final String locStatus = it.getState().getData().getLocStatus();
-                        // locStatus LifeCycle
-                        // APPLIED -> REJECTED
-                        // APPLIED -> ISSUED -> SHIPPED -> SELLER_PAID -> ADVISING_BANK_PAID -> ISSUING_BANK_PAID
-                        final boolean isBillAvailable =
-                                !(locStatus.equals("APPLIED") || locStatus.equals("ISSUED") || locStatus.equals("REJECTED"));
-
-                        final List<StateAndRef<PurchaseOrderState>> purchaseOrderList = consumedPurchaseOrders.stream()
-                                .filter(itr -> itr.getState().getData().getPurchaseOrderId().equals(poId))
-                                .collect(Collectors.toList());
-
-                        final StateAndRef<PurchaseOrderState> purchaseOrder =
-                                purchaseOrderList.size() > 0 ? purchaseOrderList.get(0) : null;
-
-                        final List<StateAndRef<BillOfLadingState>> billOfLadingList = unconsumedBillOfLadings.stream()
-                                .filter(itr -> itr.getState().getData().getBillOfLadingId().equals(bolId))
-                                .collect(Collectors.toList());
-
-                        tx.put("states", Arrays.asList(
-                                purchaseOrder,
-                                it,
-                                isBillAvailable && billOfLadingList.size() > 0 ? billOfLadingList.get(0) : null));
-
+                        tx.put("states", it);
                         transactions.add(tx);
                     }
             );
 
-            return ResponseEntity.ok(transactions);
+            return ResponseEntity.ok().headers(headers).body(transactions);
 
         } catch (Exception ex) {
 
@@ -221,22 +258,29 @@ public class MainController {
     }
 
     @GetMapping(value = "/transaction/po/{poId}",produces = APPLICATION_JSON_VALUE)
-    public ResponseEntity getTransactionByPoId(@PathVariable String poId) {
-        final boolean isBank = me.toString().toLowerCase().contains("bank");
+    public ResponseEntity getTransactionByPoId(@PathVariable(value = "node", required = false) String nodeName,
+                                               @PathVariable String poId,
+                                               @RequestParam(value = "view", required = false) String view,
+                                               @RequestParam(value = "fields", required = false) Set<String> fields) {
+        final NodeContext node = nodes.get(nodeName);
+        final CordaRPCOps proxy = node.getProxy();
+        final TradeProjection tradeProjection = node.getTradeProjection();
+        final boolean isBank = node.isBank();
         if (isBank)
             return ResponseEntity
                     .status(HttpStatus.FORBIDDEN)
                     .body("Failed to fetch purchase order. Banks don't have access to purchase orders!");
         try {
-            StateAndRef<PurchaseOrderState> unconsumedPurchaseOrder = proxy.vaultQueryByCriteria(
-                    new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED),
-                    PurchaseOrderState.class).getStates().stream()
-                    .filter(it -> it.getState().getData().getPurchaseOrderId().equals(poId))
-                    .collect(Collectors.toList()).get(0);
-            HashMap<String, List> tx = new HashMap<>();
-            tx.put("states", Arrays.asList(unconsumedPurchaseOrder, null, null));
-
-            return ResponseEntity.ok(tx);
+            StateAndRef<PurchaseOrderState> unconsumedPurchaseOrder = tradeProjection.isReady()
+                    ? tradeProjection.openPurchaseOrder(poId)
+                    : proxy.vaultQueryByCriteria(
+                            StateLookup.byBusinessId(poId, Vault.StateStatus.UNCONSUMED),
+                            PurchaseOrderState.class).getStates().stream().findFirst().orElse(null);
+            if (unconsumedPurchaseOrder == null)
+                return ResponseEntity
+                        .status(HttpStatus.NOT_FOUND)
+                        .body("Unconsumed purchase order with ID:" + poId + " not found!");
+            return ResponseEntity.ok(trade(Arrays.asList(unconsumedPurchaseOrder, null, null), view, fields));
         } catch (Exception ex) {
 
             return ResponseEntity
@@ -246,49 +290,47 @@ public class MainController {
     }
 
     @GetMapping(value = "/transaction/loc/{locId}",produces = APPLICATION_JSON_VALUE)
-    public ResponseEntity getTransactionByLocId(@PathVariable String locId) {
+    public ResponseEntity getTransactionByLocId(@PathVariable(value = "node", required = false) String nodeName,
+                                                @PathVariable String locId,
+                                                @RequestParam(value = "view", required = false) String view,
+                                                @RequestParam(value = "fields", required = false) Set<String> fields) {
+        final NodeContext node = nodes.get(nodeName);
+        final CordaRPCOps proxy = node.getProxy();
+        final TradeProjection tradeProjection = node.getTradeProjection();
         try {
+            final boolean isBank = node.isBank();
+
+            if (tradeProjection.isReady()) {
+                final List<StateAndRef<?>> trade = tradeProjection.tradeByLocId(locId);
+                if (trade == null) return letterOfCreditNotFound(locId);
+                return ResponseEntity.ok(trade(isBank ? Arrays.asList(null, trade.get(1), trade.get(2)) : trade, view, fields));
+            }
+
             // Collect LC
             StateAndRef<LetterOfCreditState> unconsumedLetterOfCredit = proxy.vaultQueryByCriteria(
-                    new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED),
-                    LetterOfCreditState.class).getStates().stream()
-                    .filter(it -> it.getState().getData().getLocId().equals(locId))
-                    .collect(Collectors.toList()).get(0);
+                    StateLookup.byBusinessId(locId, Vault.StateStatus.UNCONSUMED),
+                    LetterOfCreditState.class).getStates().stream().findFirst().orElse(null);
+            if (unconsumedLetterOfCredit == null) return letterOfCreditNotFound(locId);
 
             final String poId = unconsumedLetterOfCredit.getState().getData().getPurchaseOrderId();
             final String bolId = unconsumedLetterOfCredit.getState().getData().getBillOfLadingId();
-            final String locStatus = unconsumedLetterOfCredit.getState().getData().getLocStatus();
-            // locStatus LifeCycle
-            // APPLIED -> REJECTED
-            // APPLIED -> ISSUED -> SHIPPED -> SELLER_PAID -> ADVISING_BANK_PAID -> ISSUING_BANK_PAID
-
-            final boolean isBank = me.toString().toLowerCase().contains("bank");
-
-            final boolean isBillAvailable =
-                    !(locStatus.equals("APPLIED") || locStatus.equals("ISSUED") || locStatus.equals("REJECTED"));
+            final boolean isBillAvailable = unconsumedLetterOfCredit.getState().getData().getLocStatus().isShipped();
 
             // Collect PO
             StateAndRef<PurchaseOrderState> consumedPurchaseOrder = isBank ? null : proxy.vaultQueryByCriteria(
-                    new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.CONSUMED),
-                    PurchaseOrderState.class).getStates().stream()
-                    .filter(it -> it.getState().getData().getPurchaseOrderId().equals(poId))
-                    .collect(Collectors.toList()).get(0);
+                    StateLookup.byBusinessId(poId, Vault.StateStatus.CONSUMED),
+                    PurchaseOrderState.class).getStates().stream().findFirst().orElse(null);
 
-            // Collect all BLs
+            // Collect BL
             StateAndRef<BillOfLadingState> unconsumedBillOfLading = isBillAvailable ? proxy.vaultQueryByCriteria(
-                    new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED),
-                    BillOfLadingState.class).getStates().stream()
-                    .filter(it -> it.getState().getData().getBillOfLadingId().equals(bolId))
-                    .collect(Collectors.toList()).get(0) : null;
+                    StateLookup.byBusinessId(bolId, Vault.StateStatus.UNCONSUMED),
+                    BillOfLadingState.class).getStates().stream().findFirst().orElse(null) : null;
 
-            HashMap<String, List> tx = new HashMap<>();
-            tx.put("states", Arrays.asList(
+            return ResponseEntity.ok(trade(Arrays.asList(
                     consumedPurchaseOrder,
                     unconsumedLetterOfCredit,
-                    unconsumedBillOfLading)
+                    unconsumedBillOfLading), view, fields)
             );
-
-            return ResponseEntity.ok(tx);
         } catch (Exception ex) {
 
             return ResponseEntity
@@ -297,57 +339,105 @@ public class MainController {
         }
     }
 
+    private static ResponseEntity letterOfCreditNotFound(String locId) {
+        return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body("Unconsumed letter of credit with ID:" + locId + " not found!");
+    }
+
+    /**
+     * The flow endpoints below answer once their flow completes. With async=true they answer 202 with the
+     * flow id as soon as the flow has started instead, and the flow can be polled at /flows/{flowId} or
+     * followed live at /flows/{flowId}/events.
+     *
+     * A request sent again with the same Idempotency-Key header, a UUID, is answered from the flow the first one
+     * started instead of starting another. The endpoints creating a state also derive its business id from the key,
+     * so that the ledger rejects a duplicate even once the key has left the web tier's cache.
+     */
     @PostMapping("/create-purchase-order")
     @ResponseBody
-    public ResponseEntity createPurchaseOrder(@RequestBody HashMap<String, Object> form) throws IllegalArgumentException {
-
-        Party buyerParty = proxy.wellKnownPartyFromX500Name(
-                CordaX500Name.parse(String.valueOf(form.get("buyer")))
-        );
-
-        try {
+    public DeferredResult<ResponseEntity> createPurchaseOrder(@PathVariable(value = "node", required = false) String nodeName,
+                                                              @RequestBody HashMap<String, Object> form,
+                                                              @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                              @RequestParam(value = "async", defaultValue = "false") boolean async) {
+        final NodeContext node = nodes.get(nodeName);
+        final NetworkMapView networkMap = node.getNetworkMap();
+        return flowRunner.run(node, idempotencyKey, form, CreatePurchaseOrderFlow.Initiator.class, () -> {
+            Party buyerParty = networkMap.wellKnownParty(
+                    CordaX500Name.parse(String.valueOf(form.get("buyer")))
+            );
 
-            SignedTransaction result = proxy.startFlowDynamic(
-                    CreatePurchaseOrderFlow.Initiator.class,
+            return withBusinessId(node, CreatePurchaseOrderFlow.Initiator.class, idempotencyKey,
                     buyerParty,
                     form.get("purchaseOrderIssueDate"),
                     form.get("productName"),
                     Long.valueOf(form.get("productQuantity").toString()),
                     Long.valueOf(form.get("productPriceInUSD").toString()),
                     Long.valueOf(form.get("productGrossWeightInKG").toString())
-            ).getReturnValue().get();
-            // Return the response.
-            final HashMap<String, Object> response = new HashMap<>();
-            response.put("tx_id", result.getId());
-            response.put("purchase_order", result.getTx().getOutput(0));
-            return ResponseEntity
-                    .status(HttpStatus.CREATED)
-                    .body(response);
-            // For the purposes of this demo app, we do not differentiate by exception type.
-        } catch (Exception ex) {
-            final HashMap<String, Object> response = new HashMap<>();
-            response.put("message", "Failed to complete flow. " + ex.getMessage());
-            return ResponseEntity
-                    .status(HttpStatus.BAD_REQUEST)
-                    .body(response);
-        }
+            );
+        }, async, HttpStatus.CREATED, "purchase_order");
     }
 
-    @PostMapping("/apply-for-loc")
+    /**
+     * Creates all the purchase orders in the request, for the same buyer, in one transaction:
+     * {"buyer": ..., "purchaseOrders": [{"purchaseOrderIssueDate": ..., "productName": ..., ...}, ...]}
+     * A request can have at most CreatePurchaseOrderBatchFlow.MAX_BATCH_SIZE purchase orders.
+     */
+    @PostMapping("/create-purchase-orders")
     @ResponseBody
-    public ResponseEntity applyForLetterOfCredit(@RequestBody HashMap<String, Object> form) throws IllegalArgumentException {
+    public DeferredResult<ResponseEntity> createPurchaseOrders(@PathVariable(value = "node", required = false) String nodeName,
+                                                               @RequestBody HashMap<String, Object> form,
+                                                               @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                               @RequestParam(value = "async", defaultValue = "false") boolean async) {
+        final NodeContext node = nodes.get(nodeName);
+        final NetworkMapView networkMap = node.getNetworkMap();
+        return flowRunner.run(node, idempotencyKey, form, CreatePurchaseOrderBatchFlow.Initiator.class, () -> {
+            Party buyerParty = networkMap.wellKnownParty(
+                    CordaX500Name.parse(String.valueOf(form.get("buyer")))
+            );
 
-        Party advisingBankParty = proxy.wellKnownPartyFromX500Name(
-                CordaX500Name.parse(String.valueOf(form.get("advisingBank")))
-        );
+            final List<CreatePurchaseOrderBatchFlow.Item> items = new ArrayList<>();
+            for (Object purchaseOrder : (List<?>) form.get("purchaseOrders")) {
+                final Map<?, ?> item = (Map<?, ?>) purchaseOrder;
+                items.add(new CreatePurchaseOrderBatchFlow.Item(
+                        String.valueOf(item.get("purchaseOrderIssueDate")),
+                        String.valueOf(item.get("productName")),
+                        Long.valueOf(item.get("productQuantity").toString()),
+                        Long.valueOf(item.get("productPriceInUSD").toString()),
+                        Long.valueOf(item.get("productGrossWeightInKG").toString())
+                ));
+            }
+
+            if (idempotencyKey == null) return new Object[] { buyerParty, items };
+            final List<String> purchaseOrderIds = new ArrayList<>();
+            for (int i = 1; i <= items.size(); i++)
+                purchaseOrderIds.add(FlowRunner.businessId(node, CreatePurchaseOrderBatchFlow.Initiator.class, idempotencyKey, i));
+            return new Object[] {
+                    purchaseOrderIds,
+                    buyerParty,
+                    items
+            };
+        }, async, HttpStatus.CREATED, "purchase_orders*");
+    }
 
-        Party issuingBankParty = proxy.wellKnownPartyFromX500Name(
-                CordaX500Name.parse(String.valueOf(form.get("issuingBank")))
-        );
+    @PostMapping("/apply-for-loc")
+    @ResponseBody
+    public DeferredResult<ResponseEntity> applyForLetterOfCredit(@PathVariable(value = "node", required = false) String nodeName,
+                                                                 @RequestBody HashMap<String, Object> form,
+                                                                 @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                                 @RequestParam(value = "async", defaultValue = "false") boolean async) {
+        final NodeContext node = nodes.get(nodeName);
+        final NetworkMapView networkMap = node.getNetworkMap();
+        return flowRunner.run(node, idempotencyKey, form, ApplyForLetterOfCreditFlow.Initiator.class, () -> {
+            Party advisingBankParty = networkMap.wellKnownParty(
+                    CordaX500Name.parse(String.valueOf(form.get("advisingBank")))
+            );
 
-        try {
-            SignedTransaction result = proxy.startFlowDynamic(
-                    ApplyForLetterOfCreditFlow.Initiator.class,
+            Party issuingBankParty = networkMap.wellKnownParty(
+                    CordaX500Name.parse(String.valueOf(form.get("issuingBank")))
+            );
+
+            return withBusinessId(node, ApplyForLetterOfCreditFlow.Initiator.class, idempotencyKey,
                     form.get("purchaseOrderId"),
                     form.get("locType"),
                     form.get("locExpiryDate"),
@@ -360,161 +450,133 @@ public class MainController {
                     form.get("dischargePortAddress"),
                     form.get("dischargePortCity"),
                     form.get("dischargePortCountry")
-            ).getReturnValue().get();
-            // Return the response.
-            final HashMap<String, Object> response = new HashMap<>();
-            response.put("tx_id", result.getId());
-            response.put("letter_of_credit", result.getTx().getOutput(0));
-            return ResponseEntity
-                    .status(HttpStatus.CREATED)
-                    .body(response);
-            // For the purposes of this demo app, we do not differentiate by exception type.
-        } catch (Exception ex) {
-            final HashMap<String, Object> response = new HashMap<>();
-            response.put("message", "Failed to complete flow. " + ex.getMessage());
-            return ResponseEntity
-                    .status(HttpStatus.BAD_REQUEST)
-                    .body(response);
-        }
+            );
+        }, async, HttpStatus.CREATED, "letter_of_credit");
     }
 
     @PostMapping("/approve-loc")
     @ResponseBody
-    public ResponseEntity approveLetterOfCredit(@RequestBody HashMap<String, Object> form) {
-        try {
-            SignedTransaction result = proxy.startFlowDynamic(
-                    ApproveLetterOfCreditApplicationFlow.Initiator.class,
-                    form.get("locId"),
-                    form.get("locStatus")
-            ).getReturnValue().get();
-            // Return the response.
-            final HashMap<String, Object> response = new HashMap<>();
-            response.put("tx_id", result.getId());
-            response.put("letter_of_credit", result.getTx().getOutput(0));
-            return ResponseEntity
-                    .status(HttpStatus.OK)
-                    .body(response);
-            // For the purposes of this demo app, we do not differentiate by exception type.
-        } catch (Exception ex) {
-            final HashMap<String, Object> response = new HashMap<>();
-            response.put("message", "Failed to complete flow. " + ex.getMessage());
-            return ResponseEntity
-                    .status(HttpStatus.BAD_REQUEST)
-                    .body(response);
-        }
+    public DeferredResult<ResponseEntity> approveLetterOfCredit(@PathVariable(value = "node", required = false) String nodeName,
+                                                                @RequestBody HashMap<String, Object> form,
+                                                                @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                                @RequestParam(value = "async", defaultValue = "false") boolean async) {
+        final NodeContext node = nodes.get(nodeName);
+        return flowRunner.run(node, idempotencyKey, form, ApproveLetterOfCreditApplicationFlow.Initiator.class, () -> new Object[] {
+                form.get("locId"),
+                LocStatus.valueOf(String.valueOf(form.get("locStatus")))
+        }, async, HttpStatus.OK, "letter_of_credit");
+    }
+
+    /**
+     * Approves or rejects many applications at once: {"approvals": [{"locId": ..., "locStatus": ...}, ...]}
+     * Applications with the same buyer, seller and advising bank are decided in one transaction, so the response
+     * has the ids of all the transactions.
+     *
+     * The transactions are committed one after the other, and one failing doesn't undo the others, so the response
+     * is 200 as long as the batch itself is valid: "decided" has the tx id of each application decided and "failed"
+     * the reason for each of the others, which can be retried on their own. The batch is turned down as a whole,
+     * with 400, only by the checks made before any application is decided.
+     */
+    @PostMapping("/approve-locs")
+    @ResponseBody
+    public DeferredResult<ResponseEntity> approveLetterOfCredits(@PathVariable(value = "node", required = false) String nodeName,
+                                                                 @RequestBody HashMap<String, Object> form,
+                                                                 @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                                 @RequestParam(value = "async", defaultValue = "false") boolean async) {
+        final NodeContext node = nodes.get(nodeName);
+        return flowRunner.run(node, idempotencyKey, form, ApproveLetterOfCreditApplicationBatchFlow.Initiator.class, () -> {
+            final LinkedHashMap<String, LocStatus> locStatuses = new LinkedHashMap<>();
+            for (Object approval : (List<?>) form.get("approvals")) {
+                final Map<?, ?> item = (Map<?, ?>) approval;
+                locStatuses.put(String.valueOf(item.get("locId")), LocStatus.valueOf(String.valueOf(item.get("locStatus"))));
+            }
+            return new Object[] { locStatuses };
+        }, async, HttpStatus.OK, "letter_of_credits*");
     }
 
     @PostMapping("/ship-products")
     @ResponseBody
-    public ResponseEntity shipProducts(@RequestBody HashMap<String, Object> form) {
-        try {
-            SignedTransaction result = proxy.startFlowDynamic(
-                    ShipProductsFlow.Initiator.class,
-                    form.get("locId"),
-                    form.get("carrierCompanyName"),
-                    form.get("carrierName"),
-                    form.get("loadingDate"),
-                    form.get("dischargeDate"),
-                    form.get("productDescription")
-            ).getReturnValue().get();
-            // Return the response.
-            final HashMap<String, Object> response = new HashMap<>();
-            response.put("tx_id", result.getId());
-            response.put("letter_of_credit", result.getTx().getOutput(0));
-            response.put("bill_of_lading", result.getTx().getOutput(1));
-            return ResponseEntity
-                    .status(HttpStatus.CREATED)
-                    .body(response);
-            // For the purposes of this demo app, we do not differentiate by exception type.
-        } catch (Exception ex) {
-            final HashMap<String, Object> response = new HashMap<>();
-            response.put("message", "Failed to complete flow. " + ex.getMessage());
-            return ResponseEntity
-                    .status(HttpStatus.BAD_REQUEST)
-                    .body(response);
-        }
+    public DeferredResult<ResponseEntity> shipProducts(@PathVariable(value = "node", required = false) String nodeName,
+                                                       @RequestBody HashMap<String, Object> form,
+                                                       @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                       @RequestParam(value = "async", defaultValue = "false") boolean async) {
+        final NodeContext node = nodes.get(nodeName);
+        return flowRunner.run(node, idempotencyKey, form, ShipProductsFlow.Initiator.class, () -> withBusinessId(node, ShipProductsFlow.Initiator.class, idempotencyKey,
+                form.get("locId"),
+                form.get("carrierCompanyName"),
+                form.get("carrierName"),
+                form.get("loadingDate"),
+                form.get("dischargeDate"),
+                form.get("productDescription")
+        ), async, HttpStatus.CREATED, "letter_of_credit", "bill_of_lading");
     }
 
     @PostMapping("/pay-seller")
     @ResponseBody
-    public ResponseEntity paySeller(@RequestBody HashMap<String, Object> form) {
-        try {
-            SignedTransaction result = proxy.startFlowDynamic(
-                    PaySellerFlow.Initiator.class,
-                    form.get("locId"),
-                    form.get("billOfLadingId")
-            ).getReturnValue().get();
-            // Return the response.
-            final HashMap<String, Object> response = new HashMap<>();
-            response.put("tx_id", result.getId());
-            response.put("letter_of_credit", result.getTx().getOutput(0));
-            response.put("bill_of_lading", result.getTx().getOutput(1));
-            return ResponseEntity
-                    .status(HttpStatus.OK)
-                    .body(response);
-
-            // For the purposes of this demo app, we do not differentiate by exception type.
-        } catch (Exception ex) {
-            final HashMap<String, Object> response = new HashMap<>();
-            response.put("message", "Failed to complete flow. " + ex.getMessage());
-            return ResponseEntity
-                    .status(HttpStatus.BAD_REQUEST)
-                    .body(response);
-        }
+    public DeferredResult<ResponseEntity> paySeller(@PathVariable(value = "node", required = false) String nodeName,
+                                                    @RequestBody HashMap<String, Object> form,
+                                                    @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                    @RequestParam(value = "async", defaultValue = "false") boolean async) {
+        final NodeContext node = nodes.get(nodeName);
+        return flowRunner.run(node, idempotencyKey, form, PaySellerFlow.Initiator.class, () -> new Object[] {
+                form.get("locId"),
+                form.get("billOfLadingId")
+        }, async, HttpStatus.OK, "letter_of_credit", "bill_of_lading");
     }
 
     @PostMapping("/pay-advising-bank")
     @ResponseBody
-    public ResponseEntity payAdvisingBank(@RequestBody HashMap<String, Object> form) {
-        try {
-            SignedTransaction result = proxy.startFlowDynamic(
-                    PayAdvisingBankFlow.Initiator.class,
-                    form.get("locId"),
-                    form.get("billOfLadingId")
-            ).getReturnValue().get();
-            // Return the response.
-            final HashMap<String, Object> response = new HashMap<>();
-            response.put("tx_id", result.getId());
-            response.put("letter_of_credit", result.getTx().getOutput(0));
-            response.put("bill_of_lading", result.getTx().getOutput(1));
-            return ResponseEntity
-                    .status(HttpStatus.OK)
-                    .body(response);
-            // For the purposes of this demo app, we do not differentiate by exception type.
-        } catch (Exception ex) {
-            final HashMap<String, Object> response = new HashMap<>();
-            response.put("message", "Failed to complete flow. " + ex.getMessage());
-            return ResponseEntity
-                    .status(HttpStatus.BAD_REQUEST)
-                    .body(response);
-        }
+    public DeferredResult<ResponseEntity> payAdvisingBank(@PathVariable(value = "node", required = false) String nodeName,
+                                                          @RequestBody HashMap<String, Object> form,
+                                                          @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                          @RequestParam(value = "async", defaultValue = "false") boolean async) {
+        final NodeContext node = nodes.get(nodeName);
+        return flowRunner.run(node, idempotencyKey, form, PayAdvisingBankFlow.Initiator.class, () -> new Object[] {
+                form.get("locId"),
+                form.get("billOfLadingId")
+        }, async, HttpStatus.OK, "letter_of_credit", "bill_of_lading");
     }
 
     @PostMapping("/pay-issuing-bank")
     @ResponseBody
-    public ResponseEntity payIssuingBank(@RequestBody HashMap<String, Object> form) {
-        try {
-            SignedTransaction result = proxy.startFlowDynamic(
-                    PayIssuingBankFlow.Initiator.class,
-                    form.get("locId"),
-                    form.get("billOfLadingId")
-            ).getReturnValue().get();
-            // Return the response.
-            final HashMap<String, Object> response = new HashMap<>();
-            response.put("tx_id", result.getId());
-            response.put("letter_of_credit", result.getTx().getOutput(0));
-            response.put("bill_of_lading", result.getTx().getOutput(1));
-            return ResponseEntity
-                    .status(HttpStatus.OK)
-                    .body(response);
-            // For the purposes of this demo app, we do not differentiate by exception type.
-        } catch (Exception ex) {
-            final HashMap<String, Object> response = new HashMap<>();
-            response.put("message", "Failed to complete flow. " + ex.getMessage());
-            return ResponseEntity
-                    .status(HttpStatus.BAD_REQUEST)
-                    .body(response);
-        }
+    public DeferredResult<ResponseEntity> payIssuingBank(@PathVariable(value = "node", required = false) String nodeName,
+                                                         @RequestBody HashMap<String, Object> form,
+                                                         @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                         @RequestParam(value = "async", defaultValue = "false") boolean async) {
+        final NodeContext node = nodes.get(nodeName);
+        return flowRunner.run(node, idempotencyKey, form, PayIssuingBankFlow.Initiator.class, () -> new Object[] {
+                form.get("locId"),
+                form.get("billOfLadingId")
+        }, async, HttpStatus.OK, "letter_of_credit", "bill_of_lading");
+    }
+
+    /**
+     * Pays the seller, the advising bank and the issuing bank in one transaction, in place of the three endpoints
+     * above. Started by the advising bank.
+     */
+    @PostMapping("/settle")
+    @ResponseBody
+    public DeferredResult<ResponseEntity> settle(@PathVariable(value = "node", required = false) String nodeName,
+                                                 @RequestBody HashMap<String, Object> form,
+                                                 @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                 @RequestParam(value = "async", defaultValue = "false") boolean async) {
+        final NodeContext node = nodes.get(nodeName);
+        return flowRunner.run(node, idempotencyKey, form, SettleLetterOfCreditFlow.Initiator.class, () -> new Object[] {
+                form.get("locId")
+        }, async, HttpStatus.OK, "letter_of_credit", "bill_of_lading");
+    }
+
+    /**
+     * The flow arguments, preceded by the business id to use for the new state when the request has an
+     * Idempotency-Key, see {@link FlowRunner#businessId}.
+     */
+    private static Object[] withBusinessId(NodeContext node, Class<? extends FlowLogic<?>> flowClass,
+                                           String idempotencyKey, Object... args) {
+        if (idempotencyKey == null) return args;
+        final Object[] withId = new Object[args.length + 1];
+        withId[0] = FlowRunner.businessId(node, flowClass, idempotencyKey);
+        System.arraycopy(args, 0, withId, 1, args.length);
+        return withId;
     }
 
 
@@ -0,0 +1,115 @@
+package com.example.server;
+
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.messaging.DataFeed;
+import net.corda.core.node.NodeInfo;
+import net.corda.core.node.services.NetworkMapCache;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Subscription;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Local copy of a node's network map, kept current from networkMapFeed, so peer listings and X500 name to
+ * party resolution don't need an RPC round trip. The notaries come from the network parameters, which only
+ * change across a node restart, so they are read once.
+ *
+ * If the feed fails the view stops being ready and lookups go back to RPC.
+ */
+public class NetworkMapView implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(NetworkMapView.class);
+
+    private final CordaRPCOps proxy;
+    private final CordaX500Name me;
+    private final Map<CordaX500Name, NodeInfo> nodesByName = new ConcurrentHashMap<>();
+    private final Map<CordaX500Name, Party> partiesByName = new ConcurrentHashMap<>();
+    private List<Party> notaries = Collections.emptyList();
+    private Subscription subscription;
+    private volatile boolean ready = false;
+
+    public NetworkMapView(@NotNull CordaRPCOps proxy, @NotNull CordaX500Name me) {
+        this.proxy = proxy;
+        this.me = me;
+    }
+
+    public void start() {
+        this.notaries = Collections.unmodifiableList(new ArrayList<>(proxy.notaryIdentities()));
+        final DataFeed<List<NodeInfo>, NetworkMapCache.MapChange> feed = proxy.networkMapFeed();
+        feed.getSnapshot().forEach(this::add);
+        this.subscription = feed.getUpdates().subscribe(this::apply, error -> {
+            logger.error("Network map feed failed, falling back to RPC lookups.", error);
+            ready = false;
+        });
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @NotNull
+    public List<Party> getNotaries() {
+        return ready ? notaries : proxy.notaryIdentities();
+    }
+
+    /** The names of the nodes we can trade with: everyone except notaries, ourself and the network map. */
+    @NotNull
+    public List<String> getPeers() {
+        final List<Party> notaries = getNotaries();
+        final List<NodeInfo> nodes = ready ? new ArrayList<>(nodesByName.values()) : proxy.networkMapSnapshot();
+        return nodes.stream()
+                .filter(it -> notaries.stream().noneMatch(it::isLegalIdentity))
+                .filter(it -> !it.getLegalIdentities().get(0).getName().equals(me))
+                .filter(it -> !it.getLegalIdentities().get(0).getName().getOrganisation().equals("Network Map Service"))
+                .map(it -> it.getLegalIdentities().get(0).getName().toString())
+                .collect(Collectors.toList());
+    }
+
+    /** The well known party with the given name, or null if there is none on the network. */
+    @Nullable
+    public Party wellKnownParty(@NotNull CordaX500Name name) {
+        if (ready) {
+            final Party party = partiesByName.get(name);
+            if (party != null) return party;
+        }
+        // Not in the map (yet), so ask the node, which also knows identities outside the network map.
+        return proxy.wellKnownPartyFromX500Name(name);
+    }
+
+    @Override
+    public void close() {
+        if (subscription != null) subscription.unsubscribe();
+        ready = false;
+    }
+
+    private void apply(NetworkMapCache.MapChange change) {
+        if (change instanceof NetworkMapCache.MapChange.Modified)
+            remove(((NetworkMapCache.MapChange.Modified) change).getPreviousNode());
+        if (change instanceof NetworkMapCache.MapChange.Removed) remove(change.getNode());
+        else add(change.getNode());
+    }
+
+    private void add(NodeInfo node) {
+        node.getLegalIdentities().forEach(it -> {
+            nodesByName.put(it.getName(), node);
+            partiesByName.put(it.getName(), it);
+        });
+    }
+
+    private void remove(NodeInfo node) {
+        node.getLegalIdentities().forEach(it -> {
+            nodesByName.remove(it.getName(), node);
+            partiesByName.remove(it.getName(), it);
+        });
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.server;
+
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.messaging.CordaRPCOps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Everything the web tier keeps for one node: its pooled RPC proxy, its identity, its view of the network map
+ * and its trade views.
+ */
+public class NodeContext implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(NodeContext.class);
+
+    private final String name;
+    private final NodeRPCConnection rpc;
+    private final CordaRPCOps proxy;
+    private final CordaX500Name me;
+    private final NetworkMapView networkMap;
+    private final TradeView tradeView;
+    private final TradeProjection tradeProjection;
+
+    /**
+     * @param name The name the node is addressed by in /api/example/{node}/...
+     * @param rpc The node's RPC connection pool, already initialised.
+     */
+    public NodeContext(String name, NodeRPCConnection rpc) {
+        this(name, rpc, rpc.getProxy());
+    }
+
+    // For the tests, over a stubbed proxy and without a connection pool.
+    NodeContext(String name, CordaRPCOps proxy) {
+        this(name, null, proxy);
+    }
+
+    private NodeContext(String name, NodeRPCConnection rpc, CordaRPCOps proxy) {
+        this.name = name;
+        this.rpc = rpc;
+        this.proxy = proxy;
+        this.me = proxy.nodeInfo().getLegalIdentities().get(0).getName();
+        this.networkMap = new NetworkMapView(proxy, me);
+        this.tradeView = new TradeView(proxy);
+        this.tradeProjection = new TradeProjection(proxy);
+    }
+
+    /**
+     * Loads the network map and the trade projection. Reads fall back to RPC lookups and vault queries if they
+     * can't be started.
+     */
+    public void start(int vaultPageSize) {
+        try {
+            networkMap.start();
+        } catch (Exception ex) {
+            logger.warn("Failed to load the network map of " + name + ", lookups will go over RPC. " + ex.getMessage());
+        }
+        try {
+            tradeProjection.start(vaultPageSize);
+        } catch (Exception ex) {
+            logger.warn("Failed to start the trade projection of " + name + ", reads will query the vault. " + ex.getMessage());
+        }
+    }
+
+    public String getName() { return name; }
+    public CordaRPCOps getProxy() { return proxy; }
+    public CordaX500Name getMe() { return me; }
+    public NetworkMapView getNetworkMap() { return networkMap; }
+    public TradeView getTradeView() { return tradeView; }
+    public TradeProjection getTradeProjection() { return tradeProjection; }
+
+    public boolean isBank() {
+        return me.toString().toLowerCase().contains("bank");
+    }
+
+    @Override
+    public void close() throws Exception {
+        tradeProjection.close();
+        networkMap.close();
+        if (rpc != null) rpc.close();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+
+/**
+ * The nodes this server fronts, by name.
+ *
+ * With config.nodes unset the server fronts the single node configured by config.rpc.*, as before. Otherwise
+ * config.nodes lists the node names, and each node is configured by config.node.{name}.rpc.host, .port,
+ * .username and .password. The first node listed is the default, served at /api/example/...; every node is
+ * also served at /api/example/{name}/...
+ */
+@Component
+public class NodeGateway {
+    private static final Logger logger = LoggerFactory.getLogger(NodeGateway.class);
+    private static final String DEFAULT_NODE_NAME = "default";
+
+    private final Map<String, NodeContext> nodes = new LinkedHashMap<>();
+    private final NodeContext defaultNode;
+    // Shared by the RPC connection pools of all nodes.
+    private final ScheduledExecutorService healthCheckScheduler = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService healthChecks;
+
+    public NodeGateway(
+            Environment environment,
+            SimpMessagingTemplate messagingTemplate,
+            @Value("${" + CONSTANTS.VAULT_PAGE_SIZE + ":200}") int vaultPageSize,
+            @Value("${" + CONSTANTS.CORDA_RPC_POOL_SIZE + ":4}") int poolSize,
+            @Value("${" + CONSTANTS.CORDA_RPC_HEALTH_CHECK_MILLIS + ":10000}") long healthCheckMillis
+    ) {
+        final String[] names = environment.getProperty(CONSTANTS.NODES, String[].class, new String[0]);
+        final boolean single = names.length == 0;
+        // A connection is pinged again only once it has answered, so a thread per connection is always enough.
+        this.healthChecks = Executors.newFixedThreadPool((single ? 1 : names.length) * poolSize);
+
+        for (String name : single ? new String[] { DEFAULT_NODE_NAME } : names) {
+            final NodeRPCConnection rpc = new NodeRPCConnection(
+                    environment.getRequiredProperty(nodeProperty(single, name, CONSTANTS.CORDA_NODE_HOST)),
+                    environment.getRequiredProperty(nodeProperty(single, name, CONSTANTS.CORDA_USER_NAME)),
+                    environment.getRequiredProperty(nodeProperty(single, name, CONSTANTS.CORDA_USER_PASSWORD)),
+                    environment.getRequiredProperty(nodeProperty(single, name, CONSTANTS.CORDA_RPC_PORT), Integer.class),
+                    poolSize,
+                    healthCheckMillis,
+                    healthCheckScheduler,
+                    healthChecks
+            );
+            rpc.initialiseNodeRPCConnection();
+
+            final NodeContext node = new NodeContext(name, rpc);
+            // Push each change to the node's trades, in the same shape as GET /transaction, to STOMP subscribers.
+            final boolean isDefault = nodes.isEmpty();
+            node.getTradeProjection().addListener(change -> {
+                final HashMap<String, Object> message = new HashMap<>();
+                message.put("node", name);
+                message.put("state_type", change.getStateType());
+                message.put("consumed", change.getConsumed());
+                message.put("produced", change.getProduced());
+                message.put("transactions", change.getTrades().stream()
+                        .map(it -> Collections.singletonMap("states", it))
+                        .collect(Collectors.toList()));
+                messagingTemplate.convertAndSend(WebSocketConfig.tradesTopic(name), message);
+                if (isDefault) messagingTemplate.convertAndSend(WebSocketConfig.TRADES_TOPIC, message);
+            });
+            node.start(vaultPageSize);
+            nodes.put(name, node);
+            logger.info("Fronting node " + node.getMe() + " as " + name + ".");
+        }
+        this.defaultNode = nodes.values().iterator().next();
+    }
+
+    /** The node with the given name, or the default node if name is null. */
+    public NodeContext get(String name) {
+        if (name == null) return defaultNode;
+        final NodeContext node = nodes.get(name);
+        if (node == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown node " + name + ".");
+        return node;
+    }
+
+    public Collection<NodeContext> all() {
+        return Collections.unmodifiableCollection(nodes.values());
+    }
+
+    @PreDestroy
+    public void close() {
+        for (NodeContext node : new ArrayList<>(nodes.values())) {
+            try {
+                node.close();
+            } catch (Exception ex) {
+                logger.warn("Failed to close the connection to " + node.getName() + ". " + ex.getMessage());
+            }
+        }
+        healthCheckScheduler.shutdownNow();
+        healthChecks.shutdownNow();
+    }
+
+    /** config.rpc.host becomes config.node.{name}.rpc.host when several nodes are configured. */
+    private static String nodeProperty(boolean single, String name, String property) {
+        return single ? property : CONSTANTS.NODE_PREFIX + name + property.substring("config".length());
+    }
+}
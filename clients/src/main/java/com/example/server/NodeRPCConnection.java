@@ -2,62 +2,221 @@ package com.example.server;
 
 import net.corda.client.rpc.CordaRPCClient;
 import net.corda.client.rpc.CordaRPCConnection;
+import net.corda.client.rpc.GracefulReconnect;
 import net.corda.core.messaging.CordaRPCOps;
 import net.corda.core.utilities.NetworkHostAndPort;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import javax.annotation.PostConstruct;
-import javax.annotation.PreDestroy;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Wraps a node RPC proxy.
+ * Wraps a pool of RPC connections to one node behind a single RPC proxy.
+ *
+ * Each call on the proxy goes to the connected, healthy connection with the fewest calls in progress, taking
+ * the connections in turn when they are equally busy. Connections reconnect by themselves when the node
+ * restarts (see GracefulReconnect), and are pinged periodically so a connection that stops answering is
+ * passed over until it recovers.
  */
-@Component
 public class NodeRPCConnection implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(NodeRPCConnection.class);
+    private static final long HEALTH_CHECK_TIMEOUT_MILLIS = 5000;
+
     private final String host;
     private final String username;
     private final String password;
     private final int rpcPort;
+    private final int poolSize;
+    private final long healthCheckMillis;
 
-
-    private CordaRPCConnection rpcConnection;
+    private final List<PooledConnection> pool = new ArrayList<>();
+    private final AtomicInteger nextConnection = new AtomicInteger();
+    private final ScheduledExecutorService healthCheckScheduler;
+    private final ExecutorService healthChecks;
+    private ScheduledFuture<?> healthCheck;
     private CordaRPCOps proxy; // The RPC proxy
 
+    /** One connection of the pool, with what is known about its state. */
+    private static class PooledConnection {
+        final int index;
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile CordaRPCConnection connection;
+        volatile boolean connected = true;
+        volatile boolean healthy = true;
+        // The last health check ping, not done while the connection hasn't answered it.
+        volatile Future<?> ping;
+
+        PooledConnection(int index) {
+            this.index = index;
+        }
+
+        boolean isAvailable() {
+            return connected && healthy;
+        }
+    }
+
     /**
-     * The RPC proxy is configured based on the properties in `application.properties`.
+     * The RPC proxy is configured based on the properties in `application.properties`, see {@link NodeGateway}.
      * @param host The host of the node we are connecting to.
      * @param rpcPort The RPC port of the node we are connecting to.
      * @param username The username for logging into the RPC client.
      * @param password The password for logging into the RPC client.
+     * @param poolSize The number of RPC connections to open to the node.
+     * @param healthCheckMillis How often each connection is pinged.
+     * @param healthCheckScheduler Schedules the health checks. Shared between nodes.
+     * @param healthChecks Runs the pings, so one that hangs can be given up on. Shared between nodes, with a thread
+     *                     for each of their connections.
      */
     public NodeRPCConnection(
-            @Value("${" + CONSTANTS.CORDA_NODE_HOST + "}") String host,
-            @Value("${" + CONSTANTS.CORDA_USER_NAME + "}") String username,
-            @Value("${" + CONSTANTS.CORDA_USER_PASSWORD + "}") String password,
-            @Value("${" + CONSTANTS.CORDA_RPC_PORT + "}") int rpcPort
+            String host,
+            String username,
+            String password,
+            int rpcPort,
+            int poolSize,
+            long healthCheckMillis,
+            ScheduledExecutorService healthCheckScheduler,
+            ExecutorService healthChecks
     ) {
+        if (poolSize < 1)
+            throw new IllegalArgumentException("RPC pool size must be positive. Found " + poolSize + ".");
         this.host = host;
         this.username = username;
         this.password = password;
         this.rpcPort = rpcPort;
+        this.poolSize = poolSize;
+        this.healthCheckMillis = healthCheckMillis;
+        this.healthCheckScheduler = healthCheckScheduler;
+        this.healthChecks = healthChecks;
     }
 
-    @PostConstruct
     public void initialiseNodeRPCConnection() {
         NetworkHostAndPort rpcAddress = new NetworkHostAndPort(host, rpcPort);
         CordaRPCClient rpcClient = new CordaRPCClient(rpcAddress);
-        this.rpcConnection = rpcClient.start(username, password);
-        this.proxy = rpcConnection.getProxy();
+        for (int i = 0; i < poolSize; i++) {
+            final PooledConnection pooled = new PooledConnection(i);
+            // A negative number of attempts retries for as long as the node is away.
+            final GracefulReconnect gracefulReconnect = new GracefulReconnect(
+                    () -> {
+                        pooled.connected = false;
+                        logger.warn("RPC connection " + pooled.index + " to " + rpcAddress + " lost, reconnecting.");
+                    },
+                    () -> {
+                        pooled.connected = true;
+                        logger.info("RPC connection " + pooled.index + " to " + rpcAddress + " re-established.");
+                    },
+                    -1
+            );
+            pooled.connection = rpcClient.start(username, password, gracefulReconnect);
+            pool.add(pooled);
+        }
+
+        this.proxy = (CordaRPCOps) Proxy.newProxyInstance(
+                CordaRPCOps.class.getClassLoader(),
+                new Class<?>[] { CordaRPCOps.class },
+                (self, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        switch (method.getName()) {
+                            case "equals": return self == args[0];
+                            case "hashCode": return System.identityHashCode(self);
+                            default: return "Pooled RPC proxy for " + rpcAddress;
+                        }
+                    }
+                    final PooledConnection pooled = select();
+                    pooled.inFlight.incrementAndGet();
+                    try {
+                        return method.invoke(pooled.connection.getProxy(), args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    } finally {
+                        pooled.inFlight.decrementAndGet();
+                    }
+                });
+
+        this.healthCheck = healthCheckScheduler.scheduleWithFixedDelay(this::checkHealth, healthCheckMillis, healthCheckMillis, TimeUnit.MILLISECONDS);
     }
 
     public CordaRPCOps getProxy() {
         return proxy;
     }
 
-    @PreDestroy
+    /** The number of connections currently connected and answering. */
+    public int getAvailableConnections() {
+        return (int) pool.stream().filter(PooledConnection::isAvailable).count();
+    }
+
+    /** The least busy available connection, or the next one in turn if none is available. */
+    private PooledConnection select() {
+        final int first = Math.floorMod(nextConnection.getAndIncrement(), pool.size());
+        PooledConnection selected = null;
+        for (int i = 0; i < pool.size(); i++) {
+            final PooledConnection candidate = pool.get((first + i) % pool.size());
+            if (!candidate.isAvailable()) continue;
+            if (selected == null || candidate.inFlight.get() < selected.inFlight.get()) selected = candidate;
+        }
+        return selected != null ? selected : pool.get(first);
+    }
+
+    // Pings every connection at once, then checks them together once the timeout is up, so the scheduler shared
+    // by all nodes is never held up by a connection that doesn't answer. A connection still busy with its previous
+    // ping isn't pinged again: it stays unhealthy, and holds one ping thread however long it hangs.
+    private void checkHealth() {
+        final long timeoutMillis = Math.min(healthCheckMillis, HEALTH_CHECK_TIMEOUT_MILLIS);
+        final Map<PooledConnection, Future<?>> pings = new LinkedHashMap<>();
+        for (PooledConnection pooled : pool) {
+            if (!pooled.connected) continue;
+            if (pooled.ping != null && !pooled.ping.isDone()) {
+                markUnhealthy(pooled, "It hasn't answered its previous ping yet.");
+                continue;
+            }
+            try {
+                pooled.ping = healthChecks.submit(() -> ping(pooled));
+            } catch (RejectedExecutionException ex) {
+                return; // Shutting down.
+            }
+            pings.put(pooled, pooled.ping);
+        }
+        if (pings.isEmpty()) return;
+        try {
+            healthCheckScheduler.schedule(() -> pings.forEach((pooled, ping) -> {
+                if (!ping.isDone()) markUnhealthy(pooled, "It didn't answer within " + timeoutMillis + "ms.");
+            }), timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            // Shutting down.
+        }
+    }
+
+    private void ping(PooledConnection pooled) {
+        try {
+            pooled.connection.getProxy().currentNodeTime();
+            if (!pooled.healthy) logger.info("RPC connection " + pooled.index + " is answering again.");
+            pooled.healthy = true;
+        } catch (Exception ex) {
+            markUnhealthy(pooled, ex.getMessage());
+        }
+    }
+
+    private void markUnhealthy(PooledConnection pooled, String reason) {
+        if (pooled.healthy) logger.warn("RPC connection " + pooled.index + " failed its health check. " + reason);
+        pooled.healthy = false;
+    }
+
     @Override
     public void close() throws Exception {
-        rpcConnection.notifyServerAndClose();
+        if (healthCheck != null) healthCheck.cancel(true);
+        for (PooledConnection pooled : pool) {
+            pooled.connection.notifyServerAndClose();
+        }
     }
 }
@@ -0,0 +1,282 @@
+package com.example.server;
+
+import com.example.state.BillOfLadingState;
+import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
+import com.example.state.PurchaseOrderState;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * The compact form of a trade, served with view=compact instead of the full StateAndRefs.
+ *
+ * Each state is flattened to its own fields plus its state ref, and parties are given by their X500 name
+ * rather than with their keys and certificates. The transaction envelope and notary are left out. A trade
+ * only has the states it has reached, absent states are omitted rather than sent as null.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TradeDto {
+    static final String FIELDS_FILTER = "tradeFields";
+
+    // There are only as many names as there are nodes on the network, so each is rendered once and shared.
+    private static final Map<CordaX500Name, String> partyNames = new ConcurrentHashMap<>();
+
+    private final PurchaseOrder purchaseOrder;
+    private final LetterOfCredit letterOfCredit;
+    private final BillOfLading billOfLading;
+
+    private TradeDto(PurchaseOrder purchaseOrder, LetterOfCredit letterOfCredit, BillOfLading billOfLading) {
+        this.purchaseOrder = purchaseOrder;
+        this.letterOfCredit = letterOfCredit;
+        this.billOfLading = billOfLading;
+    }
+
+    /** A trade given as [purchase order, letter of credit, bill of lading], any of which may be null. */
+    @SuppressWarnings("unchecked")
+    public static TradeDto of(List<StateAndRef<?>> states) {
+        final StateAndRef<PurchaseOrderState> po = (StateAndRef<PurchaseOrderState>) states.get(0);
+        final StateAndRef<LetterOfCreditState> loc = (StateAndRef<LetterOfCreditState>) states.get(1);
+        final StateAndRef<BillOfLadingState> bol = (StateAndRef<BillOfLadingState>) states.get(2);
+        return new TradeDto(
+                po != null ? new PurchaseOrder(po) : null,
+                loc != null ? new LetterOfCredit(loc) : null,
+                bol != null ? new BillOfLading(bol) : null
+        );
+    }
+
+    public static List<TradeDto> ofAll(List<List<StateAndRef<?>>> trades) {
+        return trades.stream().map(TradeDto::of).collect(Collectors.toList());
+    }
+
+    /**
+     * Wraps a response of trades so only the given fields of each state are written. With no fields every
+     * field is. The state ref is always written, so a client can tell the states apart.
+     */
+    public static MappingJacksonValue select(Object trades, Set<String> fields) {
+        final SimpleBeanPropertyFilter filter = fields == null || fields.isEmpty()
+                ? SimpleBeanPropertyFilter.serializeAll()
+                : SimpleBeanPropertyFilter.filterOutAllExcept(withRef(fields));
+        final FilterProvider filters = new SimpleFilterProvider().addFilter(FIELDS_FILTER, filter);
+        final MappingJacksonValue value = new MappingJacksonValue(trades);
+        value.setFilters(filters);
+        return value;
+    }
+
+    private static Set<String> withRef(Set<String> fields) {
+        final Set<String> selected = new HashSet<>(fields);
+        selected.add("ref");
+        return selected;
+    }
+
+    private static String name(Party party) {
+        return partyNames.computeIfAbsent(party.getName(), CordaX500Name::toString);
+    }
+
+    private static String ref(StateAndRef<?> stateAndRef) {
+        return stateAndRef.getRef().getTxhash() + ":" + stateAndRef.getRef().getIndex();
+    }
+
+    public PurchaseOrder getPurchaseOrder() { return purchaseOrder; }
+    public LetterOfCredit getLetterOfCredit() { return letterOfCredit; }
+    public BillOfLading getBillOfLading() { return billOfLading; }
+
+    @JsonFilter(FIELDS_FILTER)
+    public static class PurchaseOrder {
+        private final String ref;
+        private final String purchaseOrderId;
+        private final String seller;
+        private final String buyer;
+        private final String purchaseOrderIssueDate;
+        private final String productName;
+        private final Long productQuantity;
+        private final Long productPriceInUSD;
+        private final Long productGrossWeightInKG;
+
+        PurchaseOrder(StateAndRef<PurchaseOrderState> stateAndRef) {
+            final PurchaseOrderState po = stateAndRef.getState().getData();
+            this.ref = ref(stateAndRef);
+            this.purchaseOrderId = po.getPurchaseOrderId();
+            this.seller = name(po.getSeller());
+            this.buyer = name(po.getBuyer());
+            this.purchaseOrderIssueDate = po.getPurchaseOrderIssueDate();
+            this.productName = po.getProductName();
+            this.productQuantity = po.getProductQuantity();
+            this.productPriceInUSD = po.getProductPriceInUSD();
+            this.productGrossWeightInKG = po.getProductGrossWeightInKG();
+        }
+
+        public String getRef() { return ref; }
+        public String getPurchaseOrderId() { return purchaseOrderId; }
+        public String getSeller() { return seller; }
+        public String getBuyer() { return buyer; }
+        public String getPurchaseOrderIssueDate() { return purchaseOrderIssueDate; }
+        public String getProductName() { return productName; }
+        public Long getProductQuantity() { return productQuantity; }
+        public Long getProductPriceInUSD() { return productPriceInUSD; }
+        public Long getProductGrossWeightInKG() { return productGrossWeightInKG; }
+    }
+
+    @JsonFilter(FIELDS_FILTER)
+    public static class LetterOfCredit {
+        private final String ref;
+        private final String locId;
+        private final LocStatus locStatus;
+        private final String locType;
+        private final String locExpiryDate;
+        private final String purchaseOrderId;
+        private final String billOfLadingId;
+        private final String seller;
+        private final String buyer;
+        private final String advisingBank;
+        private final String issuingBank;
+        private final Long locValue;
+        private final String loadingPortAddress;
+        private final String loadingPortCity;
+        private final String loadingPortCountry;
+        private final String dischargePortAddress;
+        private final String dischargePortCity;
+        private final String dischargePortCountry;
+        private final String productName;
+        private final Long productQuantity;
+        private final Long productPriceInUSD;
+        private final Long productGrossWeightInKG;
+
+        LetterOfCredit(StateAndRef<LetterOfCreditState> stateAndRef) {
+            final LetterOfCreditState loc = stateAndRef.getState().getData();
+            this.ref = ref(stateAndRef);
+            this.locId = loc.getLocId();
+            this.locStatus = loc.getLocStatus();
+            this.locType = loc.getLocType();
+            this.locExpiryDate = loc.getLocExpiryDate();
+            this.purchaseOrderId = loc.getPurchaseOrderId();
+            this.billOfLadingId = loc.getBillOfLadingId();
+            this.seller = name(loc.getSeller());
+            this.buyer = name(loc.getBuyer());
+            this.advisingBank = name(loc.getAdvisingBank());
+            this.issuingBank = name(loc.getIssuingBank());
+            this.locValue = loc.getLocValue();
+            this.loadingPortAddress = loc.getLoadingPortAddress();
+            this.loadingPortCity = loc.getLoadingPortCity();
+            this.loadingPortCountry = loc.getLoadingPortCountry();
+            this.dischargePortAddress = loc.getDischargePortAddress();
+            this.dischargePortCity = loc.getDischargePortCity();
+            this.dischargePortCountry = loc.getDischargePortCountry();
+            this.productName = loc.getProductName();
+            this.productQuantity = loc.getProductQuantity();
+            this.productPriceInUSD = loc.getProductPriceInUSD();
+            this.productGrossWeightInKG = loc.getProductGrossWeightInKG();
+        }
+
+        public String getRef() { return ref; }
+        public String getLocId() { return locId; }
+        public LocStatus getLocStatus() { return locStatus; }
+        public String getLocType() { return locType; }
+        public String getLocExpiryDate() { return locExpiryDate; }
+        public String getPurchaseOrderId() { return purchaseOrderId; }
+        public String getBillOfLadingId() { return billOfLadingId; }
+        public String getSeller() { return seller; }
+        public String getBuyer() { return buyer; }
+        public String getAdvisingBank() { return advisingBank; }
+        public String getIssuingBank() { return issuingBank; }
+        public Long getLocValue() { return locValue; }
+        public String getLoadingPortAddress() { return loadingPortAddress; }
+        public String getLoadingPortCity() { return loadingPortCity; }
+        public String getLoadingPortCountry() { return loadingPortCountry; }
+        public String getDischargePortAddress() { return dischargePortAddress; }
+        public String getDischargePortCity() { return dischargePortCity; }
+        public String getDischargePortCountry() { return dischargePortCountry; }
+        public String getProductName() { return productName; }
+        public Long getProductQuantity() { return productQuantity; }
+        public Long getProductPriceInUSD() { return productPriceInUSD; }
+        public Long getProductGrossWeightInKG() { return productGrossWeightInKG; }
+    }
+
+    @JsonFilter(FIELDS_FILTER)
+    public static class BillOfLading {
+        private final String ref;
+        private final String billOfLadingId;
+        private final String currentOwner;
+        private final String seller;
+        private final String buyer;
+        private final String advisingBank;
+        private final String issuingBank;
+        private final String carrierCompanyName;
+        private final String carrierName;
+        private final String loadingDate;
+        private final String dischargeDate;
+        private final String productName;
+        private final String productDescription;
+        private final Long productQuantity;
+        private final Long productPriceInUSD;
+        private final Long productGrossWeightInKG;
+        private final String loadingPortAddress;
+        private final String loadingPortCity;
+        private final String loadingPortCountry;
+        private final String dischargePortAddress;
+        private final String dischargePortCity;
+        private final String dischargePortCountry;
+
+        BillOfLading(StateAndRef<BillOfLadingState> stateAndRef) {
+            final BillOfLadingState bol = stateAndRef.getState().getData();
+            this.ref = ref(stateAndRef);
+            this.billOfLadingId = bol.getBillOfLadingId();
+            this.currentOwner = name(bol.getCurrentOwner());
+            this.seller = name(bol.getSeller());
+            this.buyer = name(bol.getBuyer());
+            this.advisingBank = name(bol.getAdvisingBank());
+            this.issuingBank = name(bol.getIssuingBank());
+            this.carrierCompanyName = bol.getCarrierCompanyName();
+            this.carrierName = bol.getCarrierName();
+            this.loadingDate = bol.getLoadingDate();
+            this.dischargeDate = bol.getDischargeDate();
+            this.productName = bol.getProductName();
+            this.productDescription = bol.getProductDescription();
+            this.productQuantity = bol.getProductQuantity();
+            this.productPriceInUSD = bol.getProductPriceInUSD();
+            this.productGrossWeightInKG = bol.getProductGrossWeightInKG();
+            this.loadingPortAddress = bol.getLoadingPortAddress();
+            this.loadingPortCity = bol.getLoadingPortCity();
+            this.loadingPortCountry = bol.getLoadingPortCountry();
+            this.dischargePortAddress = bol.getDischargePortAddress();
+            this.dischargePortCity = bol.getDischargePortCity();
+            this.dischargePortCountry = bol.getDischargePortCountry();
+        }
+
+        public String getRef() { return ref; }
+        public String getBillOfLadingId() { return billOfLadingId; }
+        public String getCurrentOwner() { return currentOwner; }
+        public String getSeller() { return seller; }
+        public String getBuyer() { return buyer; }
+        public String getAdvisingBank() { return advisingBank; }
+        public String getIssuingBank() { return issuingBank; }
+        public String getCarrierCompanyName() { return carrierCompanyName; }
+        public String getCarrierName() { return carrierName; }
+        public String getLoadingDate() { return loadingDate; }
+        public String getDischargeDate() { return dischargeDate; }
+        public String getProductName() { return productName; }
+        public String getProductDescription() { return productDescription; }
+        public Long getProductQuantity() { return productQuantity; }
+        public Long getProductPriceInUSD() { return productPriceInUSD; }
+        public Long getProductGrossWeightInKG() { return productGrossWeightInKG; }
+        public String getLoadingPortAddress() { return loadingPortAddress; }
+        public String getLoadingPortCity() { return loadingPortCity; }
+        public String getLoadingPortCountry() { return loadingPortCountry; }
+        public String getDischargePortAddress() { return dischargePortAddress; }
+        public String getDischargePortCity() { return dischargePortCity; }
+        public String getDischargePortCountry() { return dischargePortCountry; }
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.server;
+
+import com.example.state.BillOfLadingState;
+import com.example.state.LetterOfCreditState;
+import com.example.state.PurchaseOrderState;
+import com.example.vault.VaultPager;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.messaging.DataFeed;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Subscription;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_NUM;
+
+/**
+ * In-memory, id-keyed copy of the trades in a node's vault, kept current from vaultTrackBy feeds so reads
+ * don't need an RPC round trip. Trades are listed the same way as by {@link TradeView}.
+ *
+ * Each applied vault update is passed on to the listeners as a {@link Change}, outside the projection's
+ * lock so that a slow listener doesn't hold up reads.
+ *
+ * States leave the projection when they leave the vault. A consumed purchase order is only kept while the
+ * letter of credit applied for with it is in the vault, since trades are joined on it.
+ *
+ * Updates that arrive while the initial snapshot is loading are queued and applied once it is in, so
+ * nothing recorded in between is lost. If a feed fails the projection stops being ready and callers
+ * should fall back to querying the vault.
+ */
+public class TradeProjection implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TradeProjection.class);
+    private static final QueryCriteria UNCONSUMED = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED);
+    private static final QueryCriteria CONSUMED = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.CONSUMED);
+
+    private final CordaRPCOps proxy;
+    private final List<Subscription> subscriptions = new ArrayList<>();
+
+    // Every purchase order by id, including the ones consumed by the letters of credit in the projection.
+    private final Map<String, StateAndRef<PurchaseOrderState>> purchaseOrders = new HashMap<>();
+    private final Set<String> openPurchaseOrderIds = new LinkedHashSet<>();
+    private final Map<String, StateAndRef<LetterOfCreditState>> letterOfCredits = new LinkedHashMap<>();
+    private final Map<String, StateAndRef<BillOfLadingState>> billOfLadings = new HashMap<>();
+    private final Map<String, String> locIdsByBillOfLadingId = new HashMap<>();
+    private final List<Consumer<Change>> listeners = new CopyOnWriteArrayList<>();
+
+    private final List<Supplier<Change>> pendingUpdates = new ArrayList<>();
+    private boolean ready = false;
+    private boolean failed = false;
+
+    public TradeProjection(@NotNull CordaRPCOps proxy) {
+        this.proxy = proxy;
+    }
+
+    /** A vault update for one state type, with the trades it touched as they are after the update. */
+    public static class Change {
+        private final String stateType;
+        private final List<StateAndRef<?>> consumed;
+        private final List<StateAndRef<?>> produced;
+        private final List<List<StateAndRef<?>>> trades;
+
+        Change(Class<?> stateType, Vault.Update<?> update, List<List<StateAndRef<?>>> trades) {
+            this.stateType = stateType.getSimpleName();
+            this.consumed = new ArrayList<>(update.getConsumed());
+            this.produced = new ArrayList<>(update.getProduced());
+            this.trades = trades;
+        }
+
+        public String getStateType() { return stateType; }
+        public List<StateAndRef<?>> getConsumed() { return consumed; }
+        public List<StateAndRef<?>> getProduced() { return produced; }
+        public List<List<StateAndRef<?>>> getTrades() { return trades; }
+    }
+
+    public void addListener(@NotNull Consumer<Change> listener) {
+        listeners.add(listener);
+    }
+
+    /** Subscribes to the vault feeds, then loads the current states a page at a time. */
+    public void start(int pageSize) {
+        track(PurchaseOrderState.class, this::applyPurchaseOrders);
+        track(LetterOfCreditState.class, this::applyLetterOfCredits);
+        track(BillOfLadingState.class, this::applyBillOfLadings);
+
+        VaultPager.of(proxy, PurchaseOrderState.class, CONSUMED, pageSize).forEachRemaining(this::putConsumedPurchaseOrder);
+        VaultPager.of(proxy, PurchaseOrderState.class, UNCONSUMED, pageSize).forEachRemaining(this::putPurchaseOrder);
+        VaultPager.of(proxy, LetterOfCreditState.class, UNCONSUMED, pageSize).forEachRemaining(this::putLetterOfCredit);
+        VaultPager.of(proxy, BillOfLadingState.class, UNCONSUMED, pageSize).forEachRemaining(this::putBillOfLading);
+
+        final List<Change> changes = new ArrayList<>();
+        synchronized (this) {
+            evictUnusedPurchaseOrders();
+            pendingUpdates.forEach(it -> changes.add(it.get()));
+            pendingUpdates.clear();
+            ready = !failed;
+        }
+        changes.forEach(this::notifyListeners);
+    }
+
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    /** Every trade: open purchase orders first, then letters of credit. */
+    @NotNull
+    public synchronized List<List<StateAndRef<?>>> trades() {
+        final List<List<StateAndRef<?>>> trades = new ArrayList<>(openPurchaseOrderIds.size() + letterOfCredits.size());
+        openPurchaseOrderIds.forEach(id -> trades.add(Arrays.asList(purchaseOrders.get(id), null, null)));
+        letterOfCredits.values().forEach(it -> trades.add(join(it)));
+        return trades;
+    }
+
+    /** The trade of the given letter of credit, or null if it isn't in the vault. */
+    @Nullable
+    public synchronized List<StateAndRef<?>> tradeByLocId(@NotNull String locId) {
+        final StateAndRef<LetterOfCreditState> letterOfCredit = letterOfCredits.get(locId);
+        return letterOfCredit == null ? null : join(letterOfCredit);
+    }
+
+    /** The purchase order with the given id if no letter of credit has been applied for it yet, otherwise null. */
+    @Nullable
+    public synchronized StateAndRef<PurchaseOrderState> openPurchaseOrder(@NotNull String purchaseOrderId) {
+        return openPurchaseOrderIds.contains(purchaseOrderId) ? purchaseOrders.get(purchaseOrderId) : null;
+    }
+
+    // Whether the purchase order is still held, open or joined to a letter of credit. For the eviction tests.
+    synchronized boolean holdsPurchaseOrder(@NotNull String purchaseOrderId) {
+        return purchaseOrders.containsKey(purchaseOrderId);
+    }
+
+    @Override
+    public void close() {
+        subscriptions.forEach(Subscription::unsubscribe);
+        synchronized (this) {
+            ready = false;
+        }
+    }
+
+    private List<StateAndRef<?>> join(StateAndRef<LetterOfCreditState> letterOfCredit) {
+        final LetterOfCreditState data = letterOfCredit.getState().getData();
+        return Arrays.asList(
+                purchaseOrders.get(data.getPurchaseOrderId()),
+                letterOfCredit,
+                TradeView.isBillAvailable(data) ? billOfLadings.get(data.getBillOfLadingId()) : null);
+    }
+
+    private <T extends ContractState> void track(Class<T> stateType, Function<Vault.Update<T>, Change> apply) {
+        // The snapshot is loaded separately with the pager, so only the first row of it is requested here.
+        final DataFeed<Vault.Page<T>, Vault.Update<T>> feed = proxy.vaultTrackBy(
+                UNCONSUMED, new PageSpecification(DEFAULT_PAGE_NUM, 1), VaultPager.BY_RECORDED_TIME, stateType);
+        subscriptions.add(feed.getUpdates().subscribe(
+                update -> onUpdate(() -> apply.apply(update)),
+                error -> onFeedError(stateType, error)));
+    }
+
+    private void onUpdate(Supplier<Change> apply) {
+        final Change change;
+        synchronized (this) {
+            if (failed) return;
+            if (!ready) {
+                pendingUpdates.add(apply);
+                return;
+            }
+            change = apply.get();
+        }
+        notifyListeners(change);
+    }
+
+    private synchronized void onFeedError(Class<?> stateType, Throwable error) {
+        logger.error("Vault feed for " + stateType.getSimpleName() + " failed, trade projection is stale.", error);
+        failed = true;
+        ready = false;
+        pendingUpdates.clear();
+    }
+
+    // Produced states are applied before consumed ones, so a state replaced by its next version keeps its
+    // position, and a consumed state only removes the entry if it is still the current version.
+
+    private synchronized Change applyPurchaseOrders(Vault.Update<PurchaseOrderState> update) {
+        update.getProduced().forEach(this::putPurchaseOrder);
+        update.getConsumed().forEach(this::putConsumedPurchaseOrder);
+
+        final List<List<StateAndRef<?>>> trades = new ArrayList<>();
+        update.getProduced().forEach(it -> trades.add(Arrays.asList(it, null, null)));
+        return new Change(PurchaseOrderState.class, update, trades);
+    }
+
+    private synchronized Change applyLetterOfCredits(Vault.Update<LetterOfCreditState> update) {
+        update.getProduced().forEach(this::putLetterOfCredit);
+        update.getConsumed().forEach(this::removeLetterOfCredit);
+
+        final List<List<StateAndRef<?>>> trades = new ArrayList<>();
+        update.getProduced().forEach(it -> trades.add(join(it)));
+        return new Change(LetterOfCreditState.class, update, trades);
+    }
+
+    private synchronized Change applyBillOfLadings(Vault.Update<BillOfLadingState> update) {
+        update.getProduced().forEach(this::putBillOfLading);
+        update.getConsumed().forEach(it -> billOfLadings.remove(it.getState().getData().getBillOfLadingId(), it));
+
+        final List<List<StateAndRef<?>>> trades = new ArrayList<>();
+        update.getProduced().forEach(it -> {
+            final String locId = locIdsByBillOfLadingId.get(it.getState().getData().getBillOfLadingId());
+            final StateAndRef<LetterOfCreditState> letterOfCredit = locId == null ? null : letterOfCredits.get(locId);
+            if (letterOfCredit != null) trades.add(join(letterOfCredit));
+        });
+        return new Change(BillOfLadingState.class, update, trades);
+    }
+
+    private void notifyListeners(Change change) {
+        for (Consumer<Change> listener : listeners) {
+            try {
+                listener.accept(change);
+            } catch (Exception ex) {
+                logger.warn("Trade projection listener failed. " + ex.getMessage());
+            }
+        }
+    }
+
+    private synchronized void putPurchaseOrder(StateAndRef<PurchaseOrderState> purchaseOrder) {
+        final String id = purchaseOrder.getState().getData().getPurchaseOrderId();
+        purchaseOrders.put(id, purchaseOrder);
+        openPurchaseOrderIds.add(id);
+    }
+
+    private synchronized void putConsumedPurchaseOrder(StateAndRef<PurchaseOrderState> purchaseOrder) {
+        final String id = purchaseOrder.getState().getData().getPurchaseOrderId();
+        purchaseOrders.put(id, purchaseOrder);
+        openPurchaseOrderIds.remove(id);
+    }
+
+    private synchronized void putLetterOfCredit(StateAndRef<LetterOfCreditState> letterOfCredit) {
+        final LetterOfCreditState data = letterOfCredit.getState().getData();
+        letterOfCredits.put(data.getLocId(), letterOfCredit);
+        if (TradeView.isBillAvailable(data)) locIdsByBillOfLadingId.put(data.getBillOfLadingId(), data.getLocId());
+    }
+
+    // Only a letter of credit that wasn't replaced by a newer version ends its trade, and takes the purchase
+    // order and the bill of lading index of the trade with it.
+    private synchronized void removeLetterOfCredit(StateAndRef<LetterOfCreditState> letterOfCredit) {
+        final LetterOfCreditState data = letterOfCredit.getState().getData();
+        if (!letterOfCredits.remove(data.getLocId(), letterOfCredit)) return;
+        if (!openPurchaseOrderIds.contains(data.getPurchaseOrderId())) purchaseOrders.remove(data.getPurchaseOrderId());
+        if (TradeView.isBillAvailable(data)) locIdsByBillOfLadingId.remove(data.getBillOfLadingId(), data.getLocId());
+    }
+
+    // The consumed purchase orders are loaded before the letters of credit, so those whose letter of credit
+    // has already left the vault are dropped once both are in.
+    private void evictUnusedPurchaseOrders() {
+        final Set<String> joinedIds = new HashSet<>();
+        letterOfCredits.values().forEach(it -> joinedIds.add(it.getState().getData().getPurchaseOrderId()));
+        purchaseOrders.keySet().removeIf(id -> !openPurchaseOrderIds.contains(id) && !joinedIds.contains(id));
+    }
+
+    private synchronized void putBillOfLading(StateAndRef<BillOfLadingState> billOfLading) {
+        billOfLadings.put(billOfLading.getState().getData().getBillOfLadingId(), billOfLading);
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.server;
+
+import com.example.schema.BillOfLadingSchemaV1.PersistentBillOfLading;
+import com.example.schema.PurchaseOrderSchemaV1.PersistentPurchaseOrder;
+import com.example.state.BillOfLadingState;
+import com.example.state.LetterOfCreditState;
+import com.example.state.PurchaseOrderState;
+import com.example.vault.VaultPager;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.Builder;
+import net.corda.core.node.services.vault.FieldInfo;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_NUM;
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.getField;
+
+/**
+ * Paged view of the trades in the vault, as served by GET /transaction.
+ * Each trade is the list [purchase order, letter of credit, bill of lading], with null for the documents
+ * that don't exist yet or aren't visible to this node. Open purchase orders come first, then letters of
+ * credit, both oldest first.
+ *
+ * A page costs at most three page queries for the open purchase orders and letters of credit plus one
+ * indexed IN query each for the purchase orders and bills of lading the letters of credit refer to.
+ */
+public class TradeView {
+    private static final QueryCriteria UNCONSUMED = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED);
+
+    private final CordaRPCOps proxy;
+
+    public TradeView(@NotNull CordaRPCOps proxy) {
+        this.proxy = proxy;
+    }
+
+    /** One page of trades, with the total number of trades across all pages. */
+    public static class Page {
+        private final List<List<StateAndRef<?>>> trades;
+        private final long totalTrades;
+
+        Page(List<List<StateAndRef<?>>> trades, long totalTrades) {
+            this.trades = trades;
+            this.totalTrades = totalTrades;
+        }
+
+        public List<List<StateAndRef<?>>> getTrades() { return trades; }
+        public long getTotalTrades() { return totalTrades; }
+    }
+
+    @NotNull
+    public Page page(int pageNumber, int pageSize) throws NoSuchFieldException {
+        if (pageNumber < DEFAULT_PAGE_NUM)
+            throw new IllegalArgumentException("Page number must be at least " + DEFAULT_PAGE_NUM + ". Found " + pageNumber + ".");
+        if (pageSize < 1)
+            throw new IllegalArgumentException("Page size must be positive. Found " + pageSize + ".");
+
+        final long offset = (long) (pageNumber - 1) * pageSize;
+        final List<List<StateAndRef<?>>> trades = new ArrayList<>();
+
+        // Open purchase orders fill the first pages.
+        final Vault.Page<PurchaseOrderState> openPurchaseOrders = proxy.vaultQueryBy(
+                UNCONSUMED, new PageSpecification(pageNumber, pageSize),
+                VaultPager.BY_RECORDED_TIME, PurchaseOrderState.class);
+        final long totalOpenPurchaseOrders = openPurchaseOrders.getTotalStatesAvailable();
+        openPurchaseOrders.getStates().forEach(it -> trades.add(Arrays.asList(it, null, null)));
+
+        // Letters of credit continue where the open purchase orders leave off.
+        final long locOffset = Math.max(0, offset - totalOpenPurchaseOrders);
+        final int locCount = pageSize - trades.size();
+        final Slice<LetterOfCreditState> letterOfCredits = slice(LetterOfCreditState.class, locOffset, locCount, pageSize);
+
+        final Set<String> poIds = new HashSet<>();
+        final Set<String> bolIds = new HashSet<>();
+        letterOfCredits.states.forEach(it -> {
+            poIds.add(it.getState().getData().getPurchaseOrderId());
+            if (isBillAvailable(it.getState().getData())) bolIds.add(it.getState().getData().getBillOfLadingId());
+        });
+
+        final Map<String, StateAndRef<PurchaseOrderState>> purchaseOrders = byId(
+                PurchaseOrderState.class, getField("purchaseOrderId", PersistentPurchaseOrder.class),
+                poIds, Vault.StateStatus.CONSUMED, PurchaseOrderState::getPurchaseOrderId, pageSize);
+        final Map<String, StateAndRef<BillOfLadingState>> billOfLadings = byId(
+                BillOfLadingState.class, getField("billOfLadingId", PersistentBillOfLading.class),
+                bolIds, Vault.StateStatus.UNCONSUMED, BillOfLadingState::getBillOfLadingId, pageSize);
+
+        letterOfCredits.states.forEach(it -> {
+            final LetterOfCreditState letterOfCredit = it.getState().getData();
+            trades.add(Arrays.asList(
+                    purchaseOrders.get(letterOfCredit.getPurchaseOrderId()),
+                    it,
+                    isBillAvailable(letterOfCredit) ? billOfLadings.get(letterOfCredit.getBillOfLadingId()) : null));
+        });
+
+        return new Page(trades, totalOpenPurchaseOrders + letterOfCredits.totalStatesAvailable);
+    }
+
+    /** Every trade, fetched a page at a time. */
+    @NotNull
+    public List<List<StateAndRef<?>>> all(int pageSize) throws NoSuchFieldException {
+        final List<List<StateAndRef<?>>> trades = new ArrayList<>();
+        for (int pageNumber = DEFAULT_PAGE_NUM; ; pageNumber++) {
+            final Page page = page(pageNumber, pageSize);
+            trades.addAll(page.getTrades());
+            if (page.getTrades().size() < pageSize || trades.size() >= page.getTotalTrades()) return trades;
+        }
+    }
+
+    static boolean isBillAvailable(@NotNull LetterOfCreditState letterOfCredit) {
+        return letterOfCredit.getLocStatus().isShipped();
+    }
+
+    private static class Slice<T extends ContractState> {
+        final List<StateAndRef<T>> states;
+        final long totalStatesAvailable;
+
+        Slice(List<StateAndRef<T>> states, long totalStatesAvailable) {
+            this.states = states;
+            this.totalStatesAvailable = totalStatesAvailable;
+        }
+    }
+
+    /**
+     * The unconsumed states of the given type at [offset, offset + count). The vault pages by
+     * page number, so an unaligned slice spans at most two pages of pageSize.
+     */
+    private <T extends ContractState> Slice<T> slice(Class<T> stateType, long offset, int count, int pageSize) {
+        if (count <= 0) {
+            final Vault.Page<T> countOnly = proxy.vaultQueryBy(
+                    UNCONSUMED, new PageSpecification(DEFAULT_PAGE_NUM, 1), VaultPager.BY_RECORDED_TIME, stateType);
+            return new Slice<>(Collections.emptyList(), countOnly.getTotalStatesAvailable());
+        }
+
+        final int firstPage = (int) (offset / pageSize) + DEFAULT_PAGE_NUM;
+        final int skip = (int) (offset % pageSize);
+
+        final Vault.Page<T> first = proxy.vaultQueryBy(
+                UNCONSUMED, new PageSpecification(firstPage, pageSize), VaultPager.BY_RECORDED_TIME, stateType);
+        final List<StateAndRef<T>> states = new ArrayList<>();
+        first.getStates().stream().skip(skip).limit(count).forEach(states::add);
+
+        if (states.size() < count && first.getStates().size() == pageSize) {
+            final Vault.Page<T> second = proxy.vaultQueryBy(
+                    UNCONSUMED, new PageSpecification(firstPage + 1, pageSize), VaultPager.BY_RECORDED_TIME, stateType);
+            second.getStates().stream().limit(count - states.size()).forEach(states::add);
+        }
+        return new Slice<>(states, first.getTotalStatesAvailable());
+    }
+
+    /** Looks up the states whose indexed id column is one of ids, keyed by that id. */
+    private <T extends ContractState> Map<String, StateAndRef<T>> byId(
+            Class<T> stateType,
+            FieldInfo idColumn,
+            Set<String> ids,
+            Vault.StateStatus status,
+            Function<T, String> idOf,
+            int pageSize
+    ) {
+        final Map<String, StateAndRef<T>> states = new HashMap<>();
+        if (ids.isEmpty()) return states;
+
+        final QueryCriteria criteria = new QueryCriteria.VaultCustomQueryCriteria(Builder.in(idColumn, ids), status);
+        VaultPager.of(proxy, stateType, criteria, pageSize)
+                .forEachRemaining(it -> states.putIfAbsent(idOf.apply(it.getState().getData()), it));
+        return states;
+    }
+}
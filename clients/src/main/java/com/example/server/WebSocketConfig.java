@@ -0,0 +1,62 @@
+package com.example.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+import java.util.List;
+
+/**
+ * STOMP over WebSocket at /ws. Trade changes are pushed to /topic/{node}/trades, and for the default node
+ * also to /topic/trades, as they are recorded in the vault, serialised with the same mapper as the REST responses.
+ *
+ * Only pages served by this server may connect, unless other origins are listed in
+ * config.websocket.allowed-origins, e.g. --config.websocket.allowed-origins=http://localhost:3000.
+ */
+@Configuration
+@EnableWebSocketMessageBroker
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+    public static final String TRADES_TOPIC = "/topic/trades";
+
+    /** The topic a single node's trade changes are pushed to. The default node's also go to TRADES_TOPIC. */
+    public static String tradesTopic(String node) {
+        return "/topic/" + node + "/trades";
+    }
+
+    private final ObjectMapper objectMapper;
+    private final String[] allowedOrigins;
+
+    public WebSocketConfig(
+            ObjectMapper objectMapper,
+            @Value("${" + CONSTANTS.WEBSOCKET_ALLOWED_ORIGINS + ":}") String[] allowedOrigins
+    ) {
+        this.objectMapper = objectMapper;
+        this.allowedOrigins = allowedOrigins;
+    }
+
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.addEndpoint("/ws").setAllowedOrigins(allowedOrigins);
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        registry.enableSimpleBroker("/topic");
+        registry.setApplicationDestinationPrefixes("/app");
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        final MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        messageConverters.add(converter);
+        // Keep the default converters for anything the Corda mapper isn't needed for.
+        return true;
+    }
+}
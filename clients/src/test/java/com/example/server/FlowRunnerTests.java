@@ -0,0 +1,131 @@
+package com.example.server;
+
+import com.example.flow.PaySellerFlow;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.StateMachineRunId;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.internal.concurrent.CordaFutureImplKt;
+import net.corda.core.internal.concurrent.OpenFuture;
+import net.corda.core.messaging.DataFeed;
+import net.corda.core.messaging.FlowProgressHandleImpl;
+import net.corda.core.node.NodeInfo;
+import net.corda.core.utilities.NetworkHostAndPort;
+import net.corda.testing.core.TestIdentity;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import rx.Observable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+public class FlowRunnerTests {
+    private static final TestIdentity SELLER = new TestIdentity(new CordaX500Name("Seller", "Chittagong", "BD"));
+
+    // The return value of each flow started, in order.
+    private final List<OpenFuture<Object>> started = new ArrayList<>();
+    private NodeContext node;
+    private FlowRunner flowRunner;
+
+    @Before
+    public void setup() {
+        node = new NodeContext("default", new StubRPCOps()
+                .on("nodeInfo", args -> new NodeInfo(Collections.singletonList(new NetworkHostAndPort("localhost", 10006)),
+                        Collections.singletonList(SELLER.getIdentity()), 4, 1L))
+                .on("notaryIdentities", args -> Collections.emptyList())
+                .on("networkMapFeed", args -> new DataFeed<>(Collections.emptyList(), Observable.never()))
+                .on("startTrackedFlowDynamic", args -> {
+                    final OpenFuture<Object> returnValue = CordaFutureImplKt.openFuture();
+                    started.add(returnValue);
+                    return new FlowProgressHandleImpl<>(
+                            StateMachineRunId.Companion.createRandom(), returnValue, Observable.<String>never());
+                })
+                .proxy());
+        flowRunner = new FlowRunner(60000, 32, new FlowStatusRegistry(100), new IdempotencyCache(100, 60000));
+    }
+
+    @Test
+    public void retryIsAnsweredFromTheFlowTheFirstRequestStarted() {
+        final String key = UUID.randomUUID().toString();
+
+        final ResponseEntity first = pay(key, request("LOC-1", "BOL-1"));
+        // The same body, with its keys in another order.
+        final Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("billOfLadingId", "BOL-1");
+        reordered.put("locId", "LOC-1");
+        final ResponseEntity retry = pay(key, reordered);
+
+        assertEquals(HttpStatus.ACCEPTED, first.getStatusCode());
+        assertEquals(HttpStatus.ACCEPTED, retry.getStatusCode());
+        assertEquals(flowId(first), flowId(retry));
+        assertEquals(1, started.size());
+    }
+
+    @Test
+    public void keyReusedForADifferentRequestIsRejected() {
+        final String key = UUID.randomUUID().toString();
+
+        pay(key, request("LOC-1", "BOL-1"));
+        final ResponseEntity other = pay(key, request("LOC-2", "BOL-1"));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, other.getStatusCode());
+        assertEquals(1, started.size());
+    }
+
+    @Test
+    public void keyMustBeAUuid() {
+        final ResponseEntity response = pay("1-2-3-4-5", request("LOC-1", "BOL-1"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(0, started.size());
+    }
+
+    @Test
+    public void keyIsReleasedWhenItsFlowFails() {
+        final String key = UUID.randomUUID().toString();
+
+        pay(key, request("LOC-1", "BOL-1"));
+        started.get(0).setException(new FlowException("Invalid locStatus"));
+        final ResponseEntity retry = pay(key, request("LOC-1", "BOL-1"));
+
+        assertEquals(HttpStatus.ACCEPTED, retry.getStatusCode());
+        assertEquals(2, started.size());
+    }
+
+    @Test
+    public void failedFlowIsAnsweredWithItsError() {
+        final ResponseEntity[] response = new ResponseEntity[1];
+        flowRunner.run(node, UUID.randomUUID().toString(), request("LOC-1", "BOL-1"), PaySellerFlow.Initiator.class,
+                () -> new Object[] { "LOC-1", "BOL-1" }, false, HttpStatus.OK, "letter_of_credit")
+                .setResultHandler(result -> response[0] = (ResponseEntity) result);
+
+        started.get(0).setException(new FlowException("Invalid locStatus"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response[0].getStatusCode());
+        assertEquals("Failed to complete flow. Invalid locStatus", ((Map<?, ?>) response[0].getBody()).get("message"));
+    }
+
+    private ResponseEntity pay(String idempotencyKey, Map<String, Object> request) {
+        return (ResponseEntity) flowRunner.run(node, idempotencyKey, request, PaySellerFlow.Initiator.class,
+                () -> new Object[] { request.get("locId"), request.get("billOfLadingId") },
+                true, HttpStatus.OK, "letter_of_credit").getResult();
+    }
+
+    private static Map<String, Object> request(String locId, String billOfLadingId) {
+        final Map<String, Object> request = new LinkedHashMap<>();
+        request.put("locId", locId);
+        request.put("billOfLadingId", billOfLadingId);
+        return request;
+    }
+
+    private static Object flowId(ResponseEntity response) {
+        return ((Map<?, ?>) response.getBody()).get("flow_id");
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.server;
+
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class IdempotencyCacheTests {
+    private static final long TTL_MILLIS = 1000;
+
+    private final TestClock clock = new TestClock();
+
+    @Test
+    public void claimedKeyIsAnsweredWithTheFirstClaim() {
+        final IdempotencyCache cache = new IdempotencyCache(10, TTL_MILLIS, clock);
+
+        assertNull(cache.claim("key", "first"));
+        final IdempotencyCache.Entry existing = cache.claim("key", "second");
+
+        assertNotNull(existing);
+        assertEquals("first", existing.getRequestDigest());
+        assertNull(existing.getStatus());
+    }
+
+    @Test
+    public void keyIsReleasedOnlyForItsOwnFlow() {
+        final IdempotencyCache cache = new IdempotencyCache(10, TTL_MILLIS, clock);
+        final FlowStatus status = new FlowStatus(UUID.randomUUID(), "Flow");
+
+        cache.claim("key", "first");
+        cache.started("key", status);
+        cache.release("key", null);
+        assertEquals(status, cache.claim("key", "first").getStatus());
+
+        cache.release("key", status);
+        assertNull(cache.claim("key", "second"));
+    }
+
+    @Test
+    public void expiredKeyCanBeClaimedAgain() {
+        final IdempotencyCache cache = new IdempotencyCache(10, TTL_MILLIS, clock);
+
+        cache.claim("key", "first");
+        clock.advance(TTL_MILLIS - 1);
+        assertNotNull(cache.claim("key", "second"));
+        clock.advance(1);
+
+        assertNull(cache.claim("key", "second"));
+        assertEquals("second", cache.claim("key", "third").getRequestDigest());
+    }
+
+    @Test
+    public void oldestKeysAreDroppedBeyondTheRetention() {
+        final IdempotencyCache cache = new IdempotencyCache(2, TTL_MILLIS, clock);
+
+        cache.claim("a", "a");
+        cache.claim("b", "b");
+        cache.claim("c", "c");
+
+        assertNotNull(cache.claim("b", "b"));
+        assertNotNull(cache.claim("c", "c"));
+        assertNull(cache.claim("a", "a"));
+    }
+
+    @Test
+    public void expiredKeyClaimedAgainCountsAsTheNewest() {
+        final IdempotencyCache cache = new IdempotencyCache(2, TTL_MILLIS, clock);
+
+        cache.claim("a", "a");
+        clock.advance(TTL_MILLIS / 2);
+        cache.claim("b", "b");
+        clock.advance(TTL_MILLIS / 2);
+        cache.claim("a", "a");
+        cache.claim("c", "c");
+
+        // b is now the oldest, so it is the one dropped to make room for c.
+        assertNotNull(cache.claim("a", "a"));
+        assertNotNull(cache.claim("c", "c"));
+        assertNull(cache.claim("b", "b"));
+    }
+
+    private static final class TestClock extends Clock {
+        private Instant now = Instant.parse("2020-07-01T00:00:00Z");
+
+        void advance(long millis) {
+            now = now.plusMillis(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
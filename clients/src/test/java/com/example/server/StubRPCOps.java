@@ -0,0 +1,40 @@
+package com.example.server;
+
+import net.corda.core.messaging.CordaRPCOps;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A CordaRPCOps answering only the methods given to it, by name. Any other call fails, so a test notices
+ * when the code under test starts making RPCs it didn't expect.
+ */
+class StubRPCOps {
+    private final Map<String, Function<Object[], Object>> methods = new HashMap<>();
+
+    StubRPCOps on(String methodName, Function<Object[], Object> answer) {
+        methods.put(methodName, answer);
+        return this;
+    }
+
+    CordaRPCOps proxy() {
+        return (CordaRPCOps) Proxy.newProxyInstance(
+                CordaRPCOps.class.getClassLoader(),
+                new Class<?>[]{CordaRPCOps.class},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        try {
+                            return method.invoke(this, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                    final Function<Object[], Object> answer = methods.get(method.getName());
+                    if (answer == null) throw new UnsupportedOperationException("Unexpected RPC: " + method.getName());
+                    return answer.apply(args);
+                });
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.server;
+
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.contracts.TransactionState;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.Party;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.messaging.DataFeed;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.ColumnPredicate;
+import net.corda.core.node.services.vault.CriteriaExpression;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import rx.subjects.PublishSubject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.example.contract.LetterOfCreditContract.LOC_CONTRACT_ID;
+
+/**
+ * An in-memory vault behind a {@link StubRPCOps}, answering the queries and feeds of TradeView and
+ * TradeProjection. States are returned in the order they were recorded, and a transaction is passed on to the
+ * feed of each state type it touches as that type's own update, as a node does.
+ *
+ * The only custom criteria understood are the IN queries on an id column that TradeView makes.
+ */
+class StubVault {
+    private final Party notary;
+    private final List<StateAndRef<ContractState>> recorded = new ArrayList<>();
+    private final Set<StateRef> consumed = new HashSet<>();
+    private final Map<Class<?>, PublishSubject<Vault.Update<ContractState>>> feeds = new HashMap<>();
+    private final List<Runnable> beforeQueries = new ArrayList<>();
+
+    StubVault(Party notary) {
+        this.notary = notary;
+    }
+
+    CordaRPCOps proxy() {
+        return new StubRPCOps()
+                .on("vaultQueryBy", args -> {
+                    final List<Runnable> actions = new ArrayList<>(beforeQueries);
+                    beforeQueries.clear();
+                    actions.forEach(Runnable::run);
+                    return query((QueryCriteria) args[0], (PageSpecification) args[1], (Class<?>) args[3]);
+                })
+                .on("vaultTrackBy", args -> new DataFeed<>(
+                        query((QueryCriteria) args[0], (PageSpecification) args[1], (Class<?>) args[3]),
+                        feed((Class<?>) args[3])))
+                .proxy();
+    }
+
+    /** Records a transaction, and passes it on to the feeds. */
+    List<StateAndRef<ContractState>> record(List<? extends StateAndRef<?>> inputs, ContractState... outputs) {
+        final SecureHash txId = SecureHash.randomSHA256();
+        final List<StateAndRef<ContractState>> produced = new ArrayList<>();
+        for (int index = 0; index < outputs.length; index++) {
+            produced.add(new StateAndRef<>(
+                    new TransactionState<>(outputs[index], LOC_CONTRACT_ID, notary), new StateRef(txId, index)));
+        }
+        @SuppressWarnings("unchecked")
+        final List<StateAndRef<ContractState>> spent = (List<StateAndRef<ContractState>>) (List<?>) inputs;
+        spent.forEach(it -> consumed.add(it.getRef()));
+        recorded.addAll(produced);
+
+        final Set<Class<?>> types = new LinkedHashSet<>();
+        spent.forEach(it -> types.add(it.getState().getData().getClass()));
+        produced.forEach(it -> types.add(it.getState().getData().getClass()));
+        types.forEach(type -> feed(type).onNext(new Vault.Update<>(
+                spent.stream().filter(it -> type.isInstance(it.getState().getData())).collect(Collectors.toSet()),
+                produced.stream().filter(it -> type.isInstance(it.getState().getData())).collect(Collectors.toSet()))));
+        return produced;
+    }
+
+    /** Records a transaction with no inputs. */
+    List<StateAndRef<ContractState>> record(ContractState... outputs) {
+        return record(Collections.emptyList(), outputs);
+    }
+
+    /** Runs the given action once, just before the next query, as if it happened while the query was running. */
+    void beforeNextQuery(Runnable action) {
+        beforeQueries.add(action);
+    }
+
+    void failFeed(Class<?> stateType, Throwable error) {
+        feed(stateType).onError(error);
+    }
+
+    private PublishSubject<Vault.Update<ContractState>> feed(Class<?> stateType) {
+        return feeds.computeIfAbsent(stateType, it -> PublishSubject.create());
+    }
+
+    private Vault.Page<ContractState> query(QueryCriteria criteria, PageSpecification paging, Class<?> stateType) {
+        final Vault.StateStatus status = ((QueryCriteria.CommonQueryCriteria) criteria).getStatus();
+        final List<StateAndRef<ContractState>> matches = recorded.stream()
+                .filter(it -> stateType.isInstance(it.getState().getData()))
+                .filter(it -> status == Vault.StateStatus.ALL
+                        || (status == Vault.StateStatus.CONSUMED) == consumed.contains(it.getRef()))
+                .filter(it -> matchesIds(criteria, it.getState().getData()))
+                .collect(Collectors.toList());
+
+        final int from = Math.min(matches.size(), (paging.getPageNumber() - 1) * paging.getPageSize());
+        final int to = Math.min(matches.size(), from + paging.getPageSize());
+        return new Vault.Page<>(matches.subList(from, to), Collections.emptyList(), matches.size(), status,
+                Collections.emptyList());
+    }
+
+    // Matches the IN criteria of TradeView on the id column, read from the state through its getter.
+    private static boolean matchesIds(QueryCriteria criteria, ContractState state) {
+        if (!(criteria instanceof QueryCriteria.VaultCustomQueryCriteria)) return true;
+        final CriteriaExpression.ColumnPredicateExpression<?, ?> expression =
+                (CriteriaExpression.ColumnPredicateExpression<?, ?>) ((QueryCriteria.VaultCustomQueryCriteria<?>) criteria).getExpression();
+        final Collection<?> ids = ((ColumnPredicate.CollectionExpression<?>) expression.getPredicate()).getRightLiteral();
+        final String column = expression.getColumn().getName();
+        try {
+            final Object id = state.getClass()
+                    .getMethod("get" + Character.toUpperCase(column.charAt(0)) + column.substring(1))
+                    .invoke(state);
+            return ids.contains(id);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("No " + column + " on " + state.getClass().getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.server;
+
+import com.example.state.BillOfLadingState;
+import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
+import com.example.state.PurchaseOrderState;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.testing.core.TestIdentity;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TradeProjectionTests {
+    private static final Party NOTARY = new TestIdentity(new CordaX500Name("Notary", "London", "GB")).getParty();
+    private static final Party SELLER = new TestIdentity(new CordaX500Name("Seller", "Chittagong", "BD")).getParty();
+    private static final Party BUYER = new TestIdentity(new CordaX500Name("Buyer", "Kowloon", "HK")).getParty();
+    private static final Party ADVISING_BANK = new TestIdentity(new CordaX500Name("AdvisingBank", "Dhaka", "BD")).getParty();
+    private static final Party ISSUING_BANK = new TestIdentity(new CordaX500Name("IssuingBank", "Kowloon", "HK")).getParty();
+
+    // Small enough for the snapshot and TradeView to go over several pages.
+    private static final int PAGE_SIZE = 2;
+
+    private StubVault vault;
+    private TradeProjection projection;
+    private TradeView tradeView;
+    private final List<TradeProjection.Change> changes = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        vault = new StubVault(NOTARY);
+        projection = new TradeProjection(vault.proxy());
+        tradeView = new TradeView(vault.proxy());
+        projection.addListener(changes::add);
+    }
+
+    @Test
+    public void snapshotListsTheTradesAsTradeViewDoes() throws Exception {
+        vault.record(purchaseOrder("PO-1"));
+        apply("PO-2", "LOC-2");
+        ship(issue(apply("PO-3", "LOC-3")), "BOL-3");
+        vault.record(purchaseOrder("PO-4"));
+
+        projection.start(PAGE_SIZE);
+
+        assertTrue(projection.isReady());
+        assertEquals(tradeView.all(PAGE_SIZE), projection.trades());
+        assertEquals(4, projection.trades().size());
+    }
+
+    @Test
+    public void updatesWhileTheSnapshotLoadsAreAppliedOnceItIsIn() throws Exception {
+        vault.record(purchaseOrder("PO-1"));
+        vault.beforeNextQuery(() -> vault.record(purchaseOrder("PO-2")));
+
+        projection.start(PAGE_SIZE);
+
+        assertTrue(projection.isReady());
+        assertEquals(tradeView.all(PAGE_SIZE), projection.trades());
+        assertEquals(1, changes.size());
+        assertEquals("PurchaseOrderState", changes.get(0).getStateType());
+    }
+
+    @Test
+    public void updatesAfterTheSnapshotAreAppliedAndPassedOn() throws Exception {
+        projection.start(PAGE_SIZE);
+
+        final StateAndRef<LetterOfCreditState> applied = apply("PO-1", "LOC-1");
+
+        assertEquals(tradeView.all(PAGE_SIZE), projection.trades());
+        assertNull(projection.openPurchaseOrder("PO-1"));
+        assertEquals(projection.tradeByLocId("LOC-1"), changes.get(changes.size() - 1).getTrades().get(0));
+        assertEquals(applied, projection.tradeByLocId("LOC-1").get(1));
+    }
+
+    @Test
+    public void shippedLetterOfCreditIsJoinedWithItsBillOfLading() throws Exception {
+        projection.start(PAGE_SIZE);
+
+        final List<StateAndRef<ContractState>> shipped = ship(issue(apply("PO-1", "LOC-1")), "BOL-1");
+        assertEquals(shipped.get(1), projection.tradeByLocId("LOC-1").get(2));
+
+        // Paying hands the bill of lading over in a new version, which the trade follows.
+        final List<StateAndRef<ContractState>> paid = vault.record(shipped,
+                letterOfCredit("LOC-1", "PO-1", LocStatus.SELLER_PAID, "BOL-1"),
+                billOfLading("BOL-1", ADVISING_BANK));
+        assertEquals(paid.get(1), projection.tradeByLocId("LOC-1").get(2));
+        assertEquals(tradeView.all(PAGE_SIZE), projection.trades());
+
+        final TradeProjection.Change billOfLadingChange = changes.get(changes.size() - 1);
+        assertEquals("BillOfLadingState", billOfLadingChange.getStateType());
+        assertEquals(Collections.singletonList(projection.tradeByLocId("LOC-1")), billOfLadingChange.getTrades());
+    }
+
+    @Test
+    public void purchaseOrderIsEvictedWithItsLetterOfCredit() throws Exception {
+        projection.start(PAGE_SIZE);
+
+        final StateAndRef<LetterOfCreditState> applied = apply("PO-1", "LOC-1");
+        assertTrue(projection.holdsPurchaseOrder("PO-1"));
+
+        vault.record(Collections.singletonList(applied));
+
+        assertNull(projection.tradeByLocId("LOC-1"));
+        assertFalse(projection.holdsPurchaseOrder("PO-1"));
+        assertEquals(tradeView.all(PAGE_SIZE), projection.trades());
+    }
+
+    @Test
+    public void consumedPurchaseOrdersWithoutALetterOfCreditAreNotLoaded() throws Exception {
+        vault.record(Collections.singletonList(apply("PO-1", "LOC-1")));
+
+        projection.start(PAGE_SIZE);
+
+        assertFalse(projection.holdsPurchaseOrder("PO-1"));
+        assertEquals(tradeView.all(PAGE_SIZE), projection.trades());
+    }
+
+    @Test
+    public void bankSeesTradesWithoutTheirPurchaseOrder() throws Exception {
+        // A bank is not a participant of the purchase order, so its vault has the letters of credit only.
+        ship(vault.record(letterOfCredit("LOC-1", "PO-1", LocStatus.ISSUED, null)).get(0), "BOL-1");
+        vault.record(letterOfCredit("LOC-2", "PO-2", LocStatus.APPLIED, null));
+
+        projection.start(PAGE_SIZE);
+
+        final List<List<StateAndRef<?>>> trades = projection.trades();
+        assertEquals(tradeView.all(PAGE_SIZE), trades);
+        assertEquals(2, trades.size());
+        assertNull(trades.get(0).get(0));
+        assertEquals("BOL-1", ((BillOfLadingState) trades.get(0).get(2).getState().getData()).getBillOfLadingId());
+    }
+
+    @Test
+    public void failedFeedMakesTheProjectionStale() {
+        projection.start(PAGE_SIZE);
+
+        vault.failFeed(LetterOfCreditState.class, new IllegalStateException("Connection lost"));
+
+        assertFalse(projection.isReady());
+    }
+
+    private StateAndRef<LetterOfCreditState> apply(String purchaseOrderId, String locId) {
+        final List<StateAndRef<ContractState>> created = vault.record(purchaseOrder(purchaseOrderId));
+        return cast(vault.record(created, letterOfCredit(locId, purchaseOrderId, LocStatus.APPLIED, null)).get(0));
+    }
+
+    private StateAndRef<LetterOfCreditState> issue(StateAndRef<LetterOfCreditState> applied) {
+        final LetterOfCreditState data = applied.getState().getData();
+        return cast(vault.record(Collections.singletonList(applied),
+                letterOfCredit(data.getLocId(), data.getPurchaseOrderId(), LocStatus.ISSUED, null)).get(0));
+    }
+
+    private List<StateAndRef<ContractState>> ship(StateAndRef<? extends ContractState> issued, String billOfLadingId) {
+        final LetterOfCreditState data = (LetterOfCreditState) issued.getState().getData();
+        return vault.record(Collections.singletonList(issued),
+                letterOfCredit(data.getLocId(), data.getPurchaseOrderId(), LocStatus.SHIPPED, billOfLadingId),
+                billOfLading(billOfLadingId, SELLER));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends ContractState> StateAndRef<T> cast(StateAndRef<ContractState> state) {
+        return (StateAndRef<T>) (StateAndRef<?>) state;
+    }
+
+    private static PurchaseOrderState purchaseOrder(String purchaseOrderId) {
+        return new PurchaseOrderState(purchaseOrderId, SELLER, BUYER, "2020-07-01", "Jute", 100L, 50L, 1000L);
+    }
+
+    private static LetterOfCreditState letterOfCredit(String locId, String purchaseOrderId, LocStatus status,
+                                                      String billOfLadingId) {
+        return new LetterOfCreditState(
+                locId, "IRREVOCABLE", "2021-07-01",
+                SELLER, BUYER, ADVISING_BANK, ISSUING_BANK,
+                5000L,
+                "Chittagong Port", "Chittagong", "Bangladesh",
+                "Kowloon Port", "Kowloon", "Hong Kong",
+                "Jute", 100L, 50L, 1000L,
+                status, purchaseOrderId, billOfLadingId
+        );
+    }
+
+    private static BillOfLadingState billOfLading(String billOfLadingId, Party owner) {
+        return new BillOfLadingState(
+                billOfLadingId, owner,
+                SELLER, BUYER, ADVISING_BANK, ISSUING_BANK,
+                "Chittagong Shipping Lines", "MV Jute", "2020-08-01", "2020-08-15",
+                "Jute", "Raw jute fibre", 100L, 50L, 1000L,
+                "Chittagong Port", "Chittagong", "Bangladesh",
+                "Kowloon Port", "Kowloon", "Hong Kong"
+        );
+    }
+}
@@ -2,525 +2,711 @@ package com.example.contract;
 
 import com.example.state.BillOfLadingState;
 import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
 import com.example.state.PurchaseOrderState;
 import net.corda.core.contracts.*;
 import net.corda.core.identity.Party;
 import net.corda.core.transactions.LedgerTransaction;
 import org.jetbrains.annotations.NotNull;
 
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static net.corda.core.contracts.ContractsDSL.requireSingleCommand;
-import static net.corda.core.contracts.ContractsDSL.requireThat;
 
 public class LetterOfCreditContract implements Contract {
     public static final String LOC_CONTRACT_ID = "com.example.contract.LetterOfCreditContract";
 
+    // The rules of each command, looked up by the command's class rather than testing it against each command in
+    // turn.
+    private static final Map<Class<? extends Commands>, Rules> RULES = new HashMap<>();
+
+    static {
+        RULES.put(Commands.CreatePurchaseOrder.class, LetterOfCreditContract::verifyCreatePurchaseOrder);
+        RULES.put(Commands.ApplyForLetterOfCredit.class, LetterOfCreditContract::verifyApplyForLetterOfCredit);
+        RULES.put(Commands.ApproveLetterOfCreditApplication.class, LetterOfCreditContract::verifyApproveLetterOfCreditApplication);
+        RULES.put(Commands.ShipProducts.class, LetterOfCreditContract::verifyShipProducts);
+        RULES.put(Commands.PaySeller.class, LetterOfCreditContract::verifyPaySeller);
+        RULES.put(Commands.PayAdvisingBank.class, LetterOfCreditContract::verifyPayAdvisingBank);
+        RULES.put(Commands.PayIssuingBank.class, LetterOfCreditContract::verifyPayIssuingBank);
+        RULES.put(Commands.Settle.class, LetterOfCreditContract::verifySettle);
+    }
+
     @Override
     public void verify(@NotNull LedgerTransaction tx) throws IllegalArgumentException {
         final CommandWithParties<Commands> command = requireSingleCommand(tx.getCommands(), Commands.class);
 
-        if (command.getValue() instanceof Commands.CreatePurchaseOrder) {
-            requireThat(requirements -> {
-                final List<ContractState> inputs = tx.inputsOfType(ContractState.class);
-
-                requirements.using(
-                        "There should be no input in CreatePurchaseOrder",
-                        inputs.isEmpty()
-                );
-                final List<PurchaseOrderState> outputs = tx.outputsOfType(PurchaseOrderState.class);
-
-                requirements.using(
-                        "Output should have exactly 1 PurchaseOrderState in CreatePurchaseOrder",
-                        outputs.size() == 1
-                );
-
-                final PurchaseOrderState purchaseOrder = outputs.get(0);
-                final Party seller = purchaseOrder.getSeller();
-                final Party buyer = purchaseOrder.getBuyer();
-                final boolean isAllNumericValuesPositive = purchaseOrder.getProductQuantity() > 0 &&
-                        purchaseOrder.getProductPriceInUSD() > 0 &&
-                        purchaseOrder.getProductGrossWeightInKG() > 0;
-
-                requirements.using(
-                        "The seller and the buyer should not be the same party.",
-                        !seller.equals(buyer)
-                );
-
-                requirements.using(
-                        "All numeric values in the purchase order should be positive.",
-                        isAllNumericValuesPositive
-                );
-
-                requirements.using(
-                        "Seller must be a signer in CreatePurchaseOrder.",
-                        command.getSigners().contains(seller.getOwningKey())
-                );
-
-                requirements.using(
-                        "Buyer must be a signer in CreatePurchaseOrder.",
-                        command.getSigners().contains(buyer.getOwningKey())
-                );
-
-                return null;
-            });
-        } else if (command.getValue() instanceof Commands.ApplyForLetterOfCredit) {
-            requireThat(requirements -> {
-                final List<PurchaseOrderState> inputs = tx.inputsOfType(PurchaseOrderState.class);
-                requirements.using(
-                        "Input should have exactly 1 PurchaseOrderState in ApplyForLetterOfCredit",
-                        inputs.size() == 1
-                );
-
-                final List<LetterOfCreditState> outputs = tx.outputsOfType(LetterOfCreditState.class);
-                requirements.using(
-                        "Output should have exactly 1 LetterOfCreditState in ApplyForLetterOfCredit",
-                        outputs.size() == 1
-                );
-
-                final PurchaseOrderState inputPurchaseOrder = inputs.get(0);
-                final LetterOfCreditState outputLetterOfCreditState = outputs.get(0);
-
-                final boolean isSameSellerAndBuyer =
-                        inputPurchaseOrder.getSeller().equals(outputLetterOfCreditState.getSeller()) &&
-                        inputPurchaseOrder.getBuyer().equals(outputLetterOfCreditState.getBuyer());
-                final boolean isSameProduct =
-                        inputPurchaseOrder.getProductQuantity()
-                            .equals(outputLetterOfCreditState.getProductQuantity()) &&
-                                inputPurchaseOrder.getProductPriceInUSD()
-                                    .equals(outputLetterOfCreditState.getProductPriceInUSD()) &&
-                                inputPurchaseOrder.getProductGrossWeightInKG()
-                                    .equals(outputLetterOfCreditState.getProductGrossWeightInKG()) &&
-                                inputPurchaseOrder.getProductName()
-                                        .equals(outputLetterOfCreditState.getProductName());
-                final boolean isValidLOCValue =
-                        outputLetterOfCreditState.getLocValue() > 0 &&
-                            outputLetterOfCreditState.getLocValue() >=
-                                inputPurchaseOrder.getProductQuantity() * inputPurchaseOrder.getProductPriceInUSD();
-
-                final boolean isAllPartyDistinct = !(
-                            outputLetterOfCreditState.getSeller().equals(outputLetterOfCreditState.getIssuingBank()) ||
-                            outputLetterOfCreditState.getSeller().equals(outputLetterOfCreditState.getAdvisingBank()) ||
-                            outputLetterOfCreditState.getBuyer().equals(outputLetterOfCreditState.getIssuingBank()) ||
-                            outputLetterOfCreditState.getBuyer().equals(outputLetterOfCreditState.getAdvisingBank())
-                        );
-
-                requirements.using(
-                        "PurchaseOrderId in LOC & Input PurchaseOrderId must be same.",
-                        inputPurchaseOrder.getPurchaseOrderId().equals(outputLetterOfCreditState.getPurchaseOrderId())
-                );
-
-                requirements.using(
-                        "Seller & Buyer should be conserved in input & output.",
-                        isSameSellerAndBuyer
-                );
-
-                requirements.using(
-                        "The advisingBank and the issuingBank should not be the same party.",
-                        !outputLetterOfCreditState.getAdvisingBank().equals(outputLetterOfCreditState.getIssuingBank())
-                );
-
-                requirements.using(
-                        "All participants should be distinct parties.",
-                        isAllPartyDistinct
-                );
-
-                requirements.using(
-                        "Product Details should be conserved in input & output.",
-                        isSameProduct
-                );
-
-                requirements.using(
-                        "LOC Value should be positive & sufficient for seller.",
-                        isValidLOCValue
-                );
-
-                requirements.using(
-                        "LetterOfCreditState status should be APPLIED in ApplyForLetterOfCredit.",
-                        outputLetterOfCreditState.getLocStatus().equalsIgnoreCase("APPLIED")
-                );
-
-                requirements.using(
-                        "Buyer must be a signer in ApplyForLetterOfCredit.",
-                        command.getSigners().contains(outputLetterOfCreditState.getBuyer().getOwningKey())
-                );
-
-                requirements.using(
-                        "Seller must be a signer in ApplyForLetterOfCredit.",
-                        command.getSigners().contains(outputLetterOfCreditState.getSeller().getOwningKey())
-                );
-
-                requirements.using(
-                        "IssuingBank must be a signer in ApplyForLetterOfCredit.",
-                        command.getSigners().contains(outputLetterOfCreditState.getIssuingBank().getOwningKey())
-                );
-
-                requirements.using(
-                        "AdvisingBank must be a signer in ApplyForLetterOfCredit.",
-                        command.getSigners().contains(outputLetterOfCreditState.getAdvisingBank().getOwningKey())
-                );
-
-                return null;
-            });
-        } else if (command.getValue() instanceof Commands.ApproveLetterOfCreditApplication) {
-            requireThat(requirements -> {
-                final List<LetterOfCreditState> inputs = tx.inputsOfType(LetterOfCreditState.class);
-                requirements.using(
-                        "Input should have exactly 1 LetterOfCreditState in ApproveLetterOfCreditApplication.",
-                        inputs.size() == 1
-                );
-
-                final List<LetterOfCreditState> outputs = tx.outputsOfType(LetterOfCreditState.class);
-                requirements.using(
-                        "Output should have exactly 1 LetterOfCreditState in ApproveLetterOfCreditApplication.",
-                        outputs.size() == 1
-                );
-
-                final LetterOfCreditState inputLetterOfCreditState = inputs.get(0);
-                final LetterOfCreditState outputLetterOfCreditState = outputs.get(0);
-
-                requirements.using(
-                        "LetterOfCreditState details should be same in input & output.",
-                        inputLetterOfCreditState.equalsIgnoreLOCStatus(outputLetterOfCreditState)
-                );
-
-                requirements.using(
-                        "Input LetterOfCreditState status should be APPLIED in ApproveLetterOfCreditApplication.",
-                        inputLetterOfCreditState.getLocStatus().equalsIgnoreCase("APPLIED")
-                );
-
-                requirements.using(
-                        "Output LetterOfCreditState status should be REJECTED/ISSUED in ApproveLetterOfCreditApplication.",
-                        outputLetterOfCreditState.getLocStatus().equalsIgnoreCase("ISSUED") ||
-                                outputLetterOfCreditState.getLocStatus().equalsIgnoreCase("REJECTED")
-                );
-
-                requirements.using(
-                        "Buyer must be a signer in ApproveLetterOfCreditApplication.",
-                        command.getSigners().contains(outputLetterOfCreditState.getBuyer().getOwningKey())
-                );
-
-                requirements.using(
-                        "Seller must be a signer in ApproveLetterOfCreditApplication.",
-                        command.getSigners().contains(outputLetterOfCreditState.getSeller().getOwningKey())
-                );
-
-                requirements.using(
-                        "IssuingBank must be a signer in ApproveLetterOfCreditApplication.",
-                        command.getSigners().contains(outputLetterOfCreditState.getIssuingBank().getOwningKey())
-                );
-
-                requirements.using(
-                        "AdvisingBank must be a signer in ApproveLetterOfCreditApplication.",
-                        command.getSigners().contains(outputLetterOfCreditState.getAdvisingBank().getOwningKey())
-                );
-
-                return null;
-            });
-        } else if (command.getValue() instanceof Commands.ShipProducts) {
-            requireThat(requirements -> {
-                final List<LetterOfCreditState> inputs = tx.inputsOfType(LetterOfCreditState.class);
-                requirements.using(
-                        "Input should have exactly 1 LetterOfCreditState in ShipProducts.",
-                        inputs.size() == 1
-                );
-
-                final List<LetterOfCreditState> outputsLetterOfCreditState = tx.outputsOfType(LetterOfCreditState.class);
-                requirements.using(
-                        "Output should have exactly 1 LetterOfCreditState in ShipProducts.",
-                        outputsLetterOfCreditState.size() == 1
-                );
-                final List<BillOfLadingState> outputsBillOfLadingState = tx.outputsOfType(BillOfLadingState.class);
-                requirements.using(
-                        "Output should have exactly 1 BillOfLadingState in ShipProducts.",
-                        outputsBillOfLadingState.size() == 1
-                );
-
-                final LetterOfCreditState inputLetterOfCreditState = inputs.get(0);
-                final LetterOfCreditState outputLetterOfCreditState = outputsLetterOfCreditState.get(0);
-                final BillOfLadingState outputBillOfLadingState = outputsBillOfLadingState.get(0);
-
-                final boolean isBillOfLadingDetailsSame =
-                        inputLetterOfCreditState.getSeller().equals(outputBillOfLadingState.getSeller()) &&
-                        inputLetterOfCreditState.getBuyer().equals(outputBillOfLadingState.getBuyer()) &&
-                        inputLetterOfCreditState.getAdvisingBank().equals(outputBillOfLadingState.getAdvisingBank()) &&
-                        inputLetterOfCreditState.getIssuingBank().equals(outputBillOfLadingState.getIssuingBank()) &&
-                        inputLetterOfCreditState.getProductName().equals(outputBillOfLadingState.getProductName()) &&
-                        inputLetterOfCreditState.getProductQuantity().equals(outputBillOfLadingState.getProductQuantity()) &&
-                        inputLetterOfCreditState.getProductPriceInUSD().equals(outputBillOfLadingState.getProductPriceInUSD()) &&
-                        inputLetterOfCreditState.getProductGrossWeightInKG().equals(outputBillOfLadingState.getProductGrossWeightInKG()) &&
-                        inputLetterOfCreditState.getLoadingPortAddress().equals(outputBillOfLadingState.getLoadingPortAddress()) &&
-                        inputLetterOfCreditState.getLoadingPortCity().equals(outputBillOfLadingState.getLoadingPortCity()) &&
-                        inputLetterOfCreditState.getLoadingPortCountry().equals(outputBillOfLadingState.getLoadingPortCountry()) &&
-                        inputLetterOfCreditState.getDischargePortAddress().equals(outputBillOfLadingState.getDischargePortAddress()) &&
-                        inputLetterOfCreditState.getDischargePortCity().equals(outputBillOfLadingState.getDischargePortCity()) &&
-                        inputLetterOfCreditState.getDischargePortCountry().equals(outputBillOfLadingState.getDischargePortCountry());
-
-                requirements.using(
-                        "BillOfLadingId in LOC & Output BillOfLadingId must be same",
-                        outputBillOfLadingState.getBillOfLadingId().equals(outputLetterOfCreditState.getBillOfLadingId())
-                );
-
-                requirements.using(
-                        "Seller should be the owner in output BillOfLading in ShipProducts.",
-                        outputBillOfLadingState.getCurrentOwner().equals(outputBillOfLadingState.getSeller())
-                );
-
-                requirements.using(
-                        "LetterOfCreditState details should be same in input & output.",
-                        inputLetterOfCreditState.equalsIgnoreLOCStatus(outputLetterOfCreditState)
-                );
-
-                requirements.using(
-                        "BillOfLadingState details should be conserved.",
-                        isBillOfLadingDetailsSame
-                );
-
-                requirements.using(
-                        "Input LetterOfCreditState status should be ISSUED in ShipProducts.",
-                        inputLetterOfCreditState.getLocStatus().equalsIgnoreCase("ISSUED")
-                );
-
-                requirements.using(
-                        "Output LetterOfCreditState status should be SHIPPED in ShipProducts.",
-                        outputLetterOfCreditState.getLocStatus().equalsIgnoreCase("SHIPPED")
-                );
-
-                requirements.using(
-                        "Buyer must be a signer in ShipProducts.",
-                        command.getSigners().contains(outputLetterOfCreditState.getBuyer().getOwningKey())
-                );
-
-                requirements.using(
-                        "Seller must be a signer in ShipProducts.",
-                        command.getSigners().contains(outputLetterOfCreditState.getSeller().getOwningKey())
-                );
-
-                requirements.using(
-                        "IssuingBank must be a signer in ShipProducts.",
-                        command.getSigners().contains(outputLetterOfCreditState.getIssuingBank().getOwningKey())
-                );
-
-                requirements.using(
-                        "AdvisingBank must be a signer in ShipProducts.",
-                        command.getSigners().contains(outputLetterOfCreditState.getAdvisingBank().getOwningKey())
-                );
-
-                return null;
-            });
-        } else if (command.getValue() instanceof Commands.PaySeller) {
-            requireThat(requirements -> {
-
-                final List<BillOfLadingState> inputsBillOfLadingState = tx.inputsOfType(BillOfLadingState.class);
-                requirements.using(
-                        "Input should have exactly 1 BillOfLadingState in PaySeller.",
-                        inputsBillOfLadingState.size() == 1
-                );
-                final List<LetterOfCreditState> inputsLetterOfCreditState = tx.inputsOfType(LetterOfCreditState.class);
-                requirements.using(
-                        "Input should have exactly 1 LetterOfCreditState in PaySeller.",
-                        inputsLetterOfCreditState.size() == 1
-                );
-
-                final List<LetterOfCreditState> outputs = tx.outputsOfType(LetterOfCreditState.class);
-                requirements.using(
-                        "Output should have exactly 1 LetterOfCreditState in PaySeller.",
-                        outputs.size() == 1
-                );
-                final List<BillOfLadingState> outputsBillOfLadingState = tx.outputsOfType(BillOfLadingState.class);
-                requirements.using(
-                        "Output should have exactly 1 BillOfLadingState in PaySeller.",
-                        outputsBillOfLadingState.size() == 1
-                );
-
-                final LetterOfCreditState inputLetterOfCreditState = inputsLetterOfCreditState.get(0);
-                final LetterOfCreditState outputLetterOfCreditState = outputs.get(0);
-
-                requirements.using(
-                        "Advising Bank should be the owner in output BillOfLading in PaySeller.",
-                        outputsBillOfLadingState.get(0).getCurrentOwner().equals(outputsBillOfLadingState.get(0).getAdvisingBank())
-                );
-
-                requirements.using(
-                        "LetterOfCreditState details should be same in input & output.",
-                        inputLetterOfCreditState.equalsIgnoreLOCStatus(outputLetterOfCreditState)
-                );
-
-                requirements.using(
-                        "Input LetterOfCreditState status should be SHIPPED in PaySeller.",
-                        inputLetterOfCreditState.getLocStatus().equalsIgnoreCase("SHIPPED")
-                );
-
-                requirements.using(
-                        "Output LetterOfCreditState status should be SELLER_PAID in PaySeller.",
-                        outputLetterOfCreditState.getLocStatus().equalsIgnoreCase("SELLER_PAID")
-                );
-
-                requirements.using(
-                        "Buyer must be a signer in ApplyForLetterOfCredit.",
-                        command.getSigners().contains(outputLetterOfCreditState.getBuyer().getOwningKey())
-                );
-
-                requirements.using(
-                        "Seller must be a signer in ApplyForLetterOfCredit.",
-                        command.getSigners().contains(outputLetterOfCreditState.getSeller().getOwningKey())
-                );
-
-                requirements.using(
-                        "IssuingBank must be a signer in ApplyForLetterOfCredit.",
-                        command.getSigners().contains(outputLetterOfCreditState.getIssuingBank().getOwningKey())
-                );
-
-                requirements.using(
-                        "AdvisingBank must be a signer in ApplyForLetterOfCredit.",
-                        command.getSigners().contains(outputLetterOfCreditState.getAdvisingBank().getOwningKey())
-                );
-
-                return null;
-            });
-        } else if (command.getValue() instanceof Commands.PayAdvisingBank) {
-            requireThat(requirements -> {
-                final List<BillOfLadingState> inputsBillOfLadingState = tx.inputsOfType(BillOfLadingState.class);
-                requirements.using(
-                        "Input should have exactly 1 BillOfLadingState in PayAdvisingBank.",
-                        inputsBillOfLadingState.size() == 1
-                );
-                final List<LetterOfCreditState> inputsLetterOfCreditState = tx.inputsOfType(LetterOfCreditState.class);
-                requirements.using(
-                        "Input should have exactly 1 LetterOfCreditState in PayAdvisingBank.",
-                        inputsLetterOfCreditState.size() == 1
-                );
-
-                final List<LetterOfCreditState> outputs = tx.outputsOfType(LetterOfCreditState.class);
-                requirements.using(
-                        "Output should have exactly 1 LetterOfCreditState in PayAdvisingBank.",
-                        outputs.size() == 1
-                );
-                final List<BillOfLadingState> outputsBillOfLadingState = tx.outputsOfType(BillOfLadingState.class);
-                requirements.using(
-                        "Output should have exactly 1 BillOfLadingState in PayAdvisingBank.",
-                        outputsBillOfLadingState.size() == 1
-                );
-
-                final LetterOfCreditState inputLetterOfCreditState = inputsLetterOfCreditState.get(0);
-                final LetterOfCreditState outputLetterOfCreditState = outputs.get(0);
-
-                requirements.using(
-                        "Issuing Bank should be the owner in output BillOfLading in PayAdvisingBank.",
-                        outputsBillOfLadingState.get(0).getCurrentOwner().equals(outputsBillOfLadingState.get(0).getIssuingBank())
-                );
-
-                requirements.using(
-                        "LetterOfCreditState details should be same in input & output.",
-                        inputLetterOfCreditState.equalsIgnoreLOCStatus(outputLetterOfCreditState)
-                );
-
-                requirements.using(
-                        "Input LetterOfCreditState status should be SELLER_PAID in PayAdvisingBank.",
-                        inputLetterOfCreditState.getLocStatus().equalsIgnoreCase("SELLER_PAID")
-                );
-
-                requirements.using(
-                        "Output LetterOfCreditState status should be ADVISING_BANK_PAID in PayAdvisingBank.",
-                        outputLetterOfCreditState.getLocStatus().equalsIgnoreCase("ADVISING_BANK_PAID")
-                );
-
-                requirements.using(
-                        "Buyer must be a signer in ApplyForLetterOfCredit.",
-                        command.getSigners().contains(outputLetterOfCreditState.getBuyer().getOwningKey())
-                );
-
-                requirements.using(
-                        "Seller must be a signer in ApplyForLetterOfCredit.",
-                        command.getSigners().contains(outputLetterOfCreditState.getSeller().getOwningKey())
-                );
-
-                requirements.using(
-                        "IssuingBank must be a signer in ApplyForLetterOfCredit.",
-                        command.getSigners().contains(outputLetterOfCreditState.getIssuingBank().getOwningKey())
-                );
-
-                requirements.using(
-                        "AdvisingBank must be a signer in ApplyForLetterOfCredit.",
-                        command.getSigners().contains(outputLetterOfCreditState.getAdvisingBank().getOwningKey())
-                );
+        final Rules rules = RULES.get(command.getValue().getClass());
+        if (rules == null)
+            throw new IllegalArgumentException("Unknown Command: " + command.getValue());
+        rules.verify(new StatesByType(tx), command.getSigners());
+    }
 
-                return null;
-            });
-        } else if (command.getValue() instanceof Commands.PayIssuingBank) {
-            requireThat(requirements -> {
-                final List<BillOfLadingState> inputsBillOfLadingState = tx.inputsOfType(BillOfLadingState.class);
-                requirements.using(
-                        "Input should have exactly 1 BillOfLadingState in PayIssuingBank.",
-                        inputsBillOfLadingState.size() == 1
-                );
-                final List<LetterOfCreditState> inputsLetterOfCreditState = tx.inputsOfType(LetterOfCreditState.class);
-                requirements.using(
-                        "Input should have exactly 1 LetterOfCreditState in PayIssuingBank.",
-                        inputsLetterOfCreditState.size() == 1
-                );
+    private static void verifyCreatePurchaseOrder(StatesByType states, List<PublicKey> signers) {
+        require(
+                "There should be no input in CreatePurchaseOrder",
+                states.inputCount == 0
+        );
+        final List<PurchaseOrderState> outputs = states.outputPurchaseOrders;
+
+        // Several purchase orders can be created in one transaction, see CreatePurchaseOrderBatchFlow.
+        require(
+                "Output should have at least 1 PurchaseOrderState in CreatePurchaseOrder",
+                !outputs.isEmpty()
+        );
+
+        require(
+                "Each PurchaseOrderState should have a distinct purchaseOrderId in CreatePurchaseOrder.",
+                outputs.stream().map(PurchaseOrderState::getPurchaseOrderId).distinct().count() == outputs.size()
+        );
+
+        for (PurchaseOrderState purchaseOrder : outputs) {
+            final Party seller = purchaseOrder.getSeller();
+            final Party buyer = purchaseOrder.getBuyer();
+            final boolean isAllNumericValuesPositive = purchaseOrder.getProductQuantity() > 0 &&
+                    purchaseOrder.getProductPriceInUSD() > 0 &&
+                    purchaseOrder.getProductGrossWeightInKG() > 0;
+
+            require(
+                    "The seller and the buyer should not be the same party.",
+                    !seller.equals(buyer)
+            );
+
+            require(
+                    "All numeric values in the purchase order should be positive.",
+                    isAllNumericValuesPositive
+            );
+
+            require(
+                    "Seller must be a signer in CreatePurchaseOrder.",
+                    signers.contains(seller.getOwningKey())
+            );
+
+            require(
+                    "Buyer must be a signer in CreatePurchaseOrder.",
+                    signers.contains(buyer.getOwningKey())
+            );
+        }
+    }
 
-                final List<LetterOfCreditState> outputs = tx.outputsOfType(LetterOfCreditState.class);
-                requirements.using(
-                        "Output should have exactly 1 LetterOfCreditState in PayIssuingBank.",
-                        outputs.size() == 1
-                );
-                final List<BillOfLadingState> outputsBillOfLadingState = tx.outputsOfType(BillOfLadingState.class);
-                requirements.using(
-                        "Output should have exactly 1 BillOfLadingState in PayIssuingBank.",
-                        outputsBillOfLadingState.size() == 1
-                );
+    private static void verifyApplyForLetterOfCredit(StatesByType states, List<PublicKey> signers) {
+        final List<PurchaseOrderState> inputs = states.inputPurchaseOrders;
+        require(
+                "Input should have exactly 1 PurchaseOrderState in ApplyForLetterOfCredit",
+                inputs.size() == 1
+        );
+
+        final List<LetterOfCreditState> outputs = states.outputLettersOfCredit;
+        require(
+                "Output should have exactly 1 LetterOfCreditState in ApplyForLetterOfCredit",
+                outputs.size() == 1
+        );
+
+        final PurchaseOrderState inputPurchaseOrder = inputs.get(0);
+        final LetterOfCreditState outputLetterOfCreditState = outputs.get(0);
+
+        final boolean isSameSellerAndBuyer =
+                inputPurchaseOrder.getSeller().equals(outputLetterOfCreditState.getSeller()) &&
+                inputPurchaseOrder.getBuyer().equals(outputLetterOfCreditState.getBuyer());
+        final boolean isSameProduct =
+                inputPurchaseOrder.getProductQuantity()
+                    .equals(outputLetterOfCreditState.getProductQuantity()) &&
+                        inputPurchaseOrder.getProductPriceInUSD()
+                            .equals(outputLetterOfCreditState.getProductPriceInUSD()) &&
+                        inputPurchaseOrder.getProductGrossWeightInKG()
+                            .equals(outputLetterOfCreditState.getProductGrossWeightInKG()) &&
+                        inputPurchaseOrder.getProductName()
+                                .equals(outputLetterOfCreditState.getProductName());
+        final boolean isValidLOCValue =
+                outputLetterOfCreditState.getLocValue() > 0 &&
+                    outputLetterOfCreditState.getLocValue() >=
+                        inputPurchaseOrder.getProductQuantity() * inputPurchaseOrder.getProductPriceInUSD();
+
+        final boolean isAllPartyDistinct = !(
+                    outputLetterOfCreditState.getSeller().equals(outputLetterOfCreditState.getIssuingBank()) ||
+                    outputLetterOfCreditState.getSeller().equals(outputLetterOfCreditState.getAdvisingBank()) ||
+                    outputLetterOfCreditState.getBuyer().equals(outputLetterOfCreditState.getIssuingBank()) ||
+                    outputLetterOfCreditState.getBuyer().equals(outputLetterOfCreditState.getAdvisingBank())
+                );
+
+        require(
+                "PurchaseOrderId in LOC & Input PurchaseOrderId must be same.",
+                inputPurchaseOrder.getPurchaseOrderId().equals(outputLetterOfCreditState.getPurchaseOrderId())
+        );
+
+        require(
+                "Seller & Buyer should be conserved in input & output.",
+                isSameSellerAndBuyer
+        );
+
+        require(
+                "The advisingBank and the issuingBank should not be the same party.",
+                !outputLetterOfCreditState.getAdvisingBank().equals(outputLetterOfCreditState.getIssuingBank())
+        );
+
+        require(
+                "All participants should be distinct parties.",
+                isAllPartyDistinct
+        );
+
+        require(
+                "Product Details should be conserved in input & output.",
+                isSameProduct
+        );
+
+        require(
+                "LOC Value should be positive & sufficient for seller.",
+                isValidLOCValue
+        );
+
+        require(
+                "LetterOfCreditState status should be APPLIED in ApplyForLetterOfCredit.",
+                outputLetterOfCreditState.getLocStatus() == LocStatus.APPLIED
+        );
+
+        require(
+                "Buyer must be a signer in ApplyForLetterOfCredit.",
+                signers.contains(outputLetterOfCreditState.getBuyer().getOwningKey())
+        );
+
+        require(
+                "Seller must be a signer in ApplyForLetterOfCredit.",
+                signers.contains(inputPurchaseOrder.getSeller().getOwningKey())
+        );
+    }
 
-                final LetterOfCreditState inputLetterOfCreditState = inputsLetterOfCreditState.get(0);
-                final LetterOfCreditState outputLetterOfCreditState = outputs.get(0);
+    private static void verifyApproveLetterOfCreditApplication(StatesByType states, List<PublicKey> signers) {
+        // Several applications can be approved in one transaction, see
+        // ApproveLetterOfCreditApplicationBatchFlow. Each input is paired with the output of the same locId.
+        final List<LetterOfCreditState> inputs = states.inputLettersOfCredit;
+        require(
+                "Input should have at least 1 LetterOfCreditState in ApproveLetterOfCreditApplication.",
+                !inputs.isEmpty()
+        );
+
+        final List<LetterOfCreditState> outputs = states.outputLettersOfCredit;
+        require(
+                "Output should have as many LetterOfCreditStates as input in ApproveLetterOfCreditApplication.",
+                outputs.size() == inputs.size()
+        );
+
+        final Map<String, LetterOfCreditState> inputsByLocId = inputs.stream()
+                .collect(Collectors.toMap(LetterOfCreditState::getLocId, it -> it, (a, b) -> a));
+        require(
+                "Each input LetterOfCreditState should have a distinct locId in ApproveLetterOfCreditApplication.",
+                inputsByLocId.size() == inputs.size()
+        );
+
+        for (LetterOfCreditState outputLetterOfCreditState : outputs) {
+            final LetterOfCreditState inputLetterOfCreditState =
+                    inputsByLocId.remove(outputLetterOfCreditState.getLocId());
+
+            require(
+                    "Each output LetterOfCreditState should have an input of the same locId in ApproveLetterOfCreditApplication.",
+                    inputLetterOfCreditState != null
+            );
+
+            require(
+                    "LetterOfCreditState details should be same in input & output.",
+                    inputLetterOfCreditState.equalsIgnoreLOCStatus(outputLetterOfCreditState)
+            );
+
+            require(
+                    "LetterOfCreditState status must follow the LOC lifecycle.",
+                    inputLetterOfCreditState.getLocStatus().canMoveTo(outputLetterOfCreditState.getLocStatus())
+            );
+
+            require(
+                    "Input LetterOfCreditState status should be APPLIED in ApproveLetterOfCreditApplication.",
+                    inputLetterOfCreditState.getLocStatus() == LocStatus.APPLIED
+            );
+
+            require(
+                    "Output LetterOfCreditState status should be REJECTED/ISSUED in ApproveLetterOfCreditApplication.",
+                    outputLetterOfCreditState.getLocStatus() == LocStatus.ISSUED ||
+                            outputLetterOfCreditState.getLocStatus() == LocStatus.REJECTED
+            );
+
+            require(
+                    "IssuingBank must be a signer in ApproveLetterOfCreditApplication.",
+                    signers.contains(outputLetterOfCreditState.getIssuingBank().getOwningKey())
+            );
+        }
+    }
 
-                requirements.using(
-                        "Buyer should be the owner in output BillOfLading in PayIssuingBank.",
-                        outputsBillOfLadingState.get(0).getCurrentOwner().equals(outputsBillOfLadingState.get(0).getBuyer())
-                );
+    private static void verifyShipProducts(StatesByType states, List<PublicKey> signers) {
+        final List<LetterOfCreditState> inputs = states.inputLettersOfCredit;
+        require(
+                "Input should have exactly 1 LetterOfCreditState in ShipProducts.",
+                inputs.size() == 1
+        );
+
+        final List<LetterOfCreditState> outputsLetterOfCreditState = states.outputLettersOfCredit;
+        require(
+                "Output should have exactly 1 LetterOfCreditState in ShipProducts.",
+                outputsLetterOfCreditState.size() == 1
+        );
+        final List<BillOfLadingState> outputsBillOfLadingState = states.outputBillsOfLading;
+        require(
+                "Output should have exactly 1 BillOfLadingState in ShipProducts.",
+                outputsBillOfLadingState.size() == 1
+        );
+
+        final LetterOfCreditState inputLetterOfCreditState = inputs.get(0);
+        final LetterOfCreditState outputLetterOfCreditState = outputsLetterOfCreditState.get(0);
+        final BillOfLadingState outputBillOfLadingState = outputsBillOfLadingState.get(0);
+
+        final boolean isBillOfLadingDetailsSame =
+                inputLetterOfCreditState.getSeller().equals(outputBillOfLadingState.getSeller()) &&
+                inputLetterOfCreditState.getBuyer().equals(outputBillOfLadingState.getBuyer()) &&
+                inputLetterOfCreditState.getAdvisingBank().equals(outputBillOfLadingState.getAdvisingBank()) &&
+                inputLetterOfCreditState.getIssuingBank().equals(outputBillOfLadingState.getIssuingBank()) &&
+                inputLetterOfCreditState.getProductName().equals(outputBillOfLadingState.getProductName()) &&
+                inputLetterOfCreditState.getProductQuantity().equals(outputBillOfLadingState.getProductQuantity()) &&
+                inputLetterOfCreditState.getProductPriceInUSD().equals(outputBillOfLadingState.getProductPriceInUSD()) &&
+                inputLetterOfCreditState.getProductGrossWeightInKG().equals(outputBillOfLadingState.getProductGrossWeightInKG()) &&
+                inputLetterOfCreditState.getLoadingPortAddress().equals(outputBillOfLadingState.getLoadingPortAddress()) &&
+                inputLetterOfCreditState.getLoadingPortCity().equals(outputBillOfLadingState.getLoadingPortCity()) &&
+                inputLetterOfCreditState.getLoadingPortCountry().equals(outputBillOfLadingState.getLoadingPortCountry()) &&
+                inputLetterOfCreditState.getDischargePortAddress().equals(outputBillOfLadingState.getDischargePortAddress()) &&
+                inputLetterOfCreditState.getDischargePortCity().equals(outputBillOfLadingState.getDischargePortCity()) &&
+                inputLetterOfCreditState.getDischargePortCountry().equals(outputBillOfLadingState.getDischargePortCountry());
+
+        require(
+                "BillOfLadingId in LOC & Output BillOfLadingId must be same",
+                outputBillOfLadingState.getBillOfLadingId().equals(outputLetterOfCreditState.getBillOfLadingId())
+        );
+
+        require(
+                "Seller should be the owner in output BillOfLading in ShipProducts.",
+                outputBillOfLadingState.getCurrentOwner().equals(outputBillOfLadingState.getSeller())
+        );
+
+        require(
+                "LetterOfCreditState details should be same in input & output.",
+                inputLetterOfCreditState.equalsIgnoreLOCStatus(outputLetterOfCreditState)
+        );
+
+        require(
+                "LetterOfCreditState status must follow the LOC lifecycle.",
+                inputLetterOfCreditState.getLocStatus().canMoveTo(outputLetterOfCreditState.getLocStatus())
+        );
+
+        require(
+                "BillOfLadingState details should be conserved.",
+                isBillOfLadingDetailsSame
+        );
+
+        require(
+                "Input LetterOfCreditState status should be ISSUED in ShipProducts.",
+                inputLetterOfCreditState.getLocStatus() == LocStatus.ISSUED
+        );
+
+        require(
+                "Output LetterOfCreditState status should be SHIPPED in ShipProducts.",
+                outputLetterOfCreditState.getLocStatus() == LocStatus.SHIPPED
+        );
+
+        require(
+                "Seller must be a signer in ShipProducts.",
+                signers.contains(outputLetterOfCreditState.getSeller().getOwningKey())
+        );
+    }
 
-                requirements.using(
-                        "LetterOfCreditState details should be same in input & output.",
-                        inputLetterOfCreditState.equalsIgnoreLOCStatus(outputLetterOfCreditState)
-                );
+    private static void verifyPaySeller(StatesByType states, List<PublicKey> signers) {
+        final List<BillOfLadingState> inputsBillOfLadingState = states.inputBillsOfLading;
+        require(
+                "Input should have exactly 1 BillOfLadingState in PaySeller.",
+                inputsBillOfLadingState.size() == 1
+        );
+        final List<LetterOfCreditState> inputsLetterOfCreditState = states.inputLettersOfCredit;
+        require(
+                "Input should have exactly 1 LetterOfCreditState in PaySeller.",
+                inputsLetterOfCreditState.size() == 1
+        );
+
+        final List<LetterOfCreditState> outputs = states.outputLettersOfCredit;
+        require(
+                "Output should have exactly 1 LetterOfCreditState in PaySeller.",
+                outputs.size() == 1
+        );
+        final List<BillOfLadingState> outputsBillOfLadingState = states.outputBillsOfLading;
+        require(
+                "Output should have exactly 1 BillOfLadingState in PaySeller.",
+                outputsBillOfLadingState.size() == 1
+        );
+
+        final LetterOfCreditState inputLetterOfCreditState = inputsLetterOfCreditState.get(0);
+        final LetterOfCreditState outputLetterOfCreditState = outputs.get(0);
+        final BillOfLadingState inputBillOfLadingState = inputsBillOfLadingState.get(0);
+        final BillOfLadingState outputBillOfLadingState = outputsBillOfLadingState.get(0);
+
+        require(
+                "Seller should be the owner in input BillOfLading in PaySeller.",
+                inputBillOfLadingState.getCurrentOwner().equals(inputBillOfLadingState.getSeller())
+        );
+
+        require(
+                "Advising Bank should be the owner in output BillOfLading in PaySeller.",
+                outputBillOfLadingState.getCurrentOwner().equals(outputBillOfLadingState.getAdvisingBank())
+        );
+
+        require(
+                "BillOfLading should be the one of the LetterOfCredit in PaySeller.",
+                inputBillOfLadingState.getBillOfLadingId().equals(inputLetterOfCreditState.getBillOfLadingId())
+        );
+
+        require(
+                "BillOfLadingState details should be same in input & output.",
+                inputBillOfLadingState.equalsIgnoreOwner(outputBillOfLadingState)
+        );
+
+        require(
+                "LetterOfCreditState details should be same in input & output.",
+                inputLetterOfCreditState.equalsIgnoreLOCStatus(outputLetterOfCreditState)
+        );
+
+        require(
+                "LetterOfCreditState status must follow the LOC lifecycle.",
+                inputLetterOfCreditState.getLocStatus().canMoveTo(outputLetterOfCreditState.getLocStatus())
+        );
+
+        require(
+                "Input LetterOfCreditState status should be SHIPPED in PaySeller.",
+                inputLetterOfCreditState.getLocStatus() == LocStatus.SHIPPED
+        );
+
+        require(
+                "Output LetterOfCreditState status should be SELLER_PAID in PaySeller.",
+                outputLetterOfCreditState.getLocStatus() == LocStatus.SELLER_PAID
+        );
+
+        require(
+                "Seller must be a signer in PaySeller.",
+                signers.contains(outputLetterOfCreditState.getSeller().getOwningKey())
+        );
+
+        require(
+                "AdvisingBank must be a signer in PaySeller.",
+                signers.contains(outputLetterOfCreditState.getAdvisingBank().getOwningKey())
+        );
+    }
 
-                requirements.using(
-                        "Input LetterOfCreditState status should be ADVISING_BANK_PAID in PayIssuingBank.",
-                        inputLetterOfCreditState.getLocStatus().equalsIgnoreCase("ADVISING_BANK_PAID")
-                );
+    private static void verifyPayAdvisingBank(StatesByType states, List<PublicKey> signers) {
+        final List<BillOfLadingState> inputsBillOfLadingState = states.inputBillsOfLading;
+        require(
+                "Input should have exactly 1 BillOfLadingState in PayAdvisingBank.",
+                inputsBillOfLadingState.size() == 1
+        );
+        final List<LetterOfCreditState> inputsLetterOfCreditState = states.inputLettersOfCredit;
+        require(
+                "Input should have exactly 1 LetterOfCreditState in PayAdvisingBank.",
+                inputsLetterOfCreditState.size() == 1
+        );
+
+        final List<LetterOfCreditState> outputs = states.outputLettersOfCredit;
+        require(
+                "Output should have exactly 1 LetterOfCreditState in PayAdvisingBank.",
+                outputs.size() == 1
+        );
+        final List<BillOfLadingState> outputsBillOfLadingState = states.outputBillsOfLading;
+        require(
+                "Output should have exactly 1 BillOfLadingState in PayAdvisingBank.",
+                outputsBillOfLadingState.size() == 1
+        );
+
+        final LetterOfCreditState inputLetterOfCreditState = inputsLetterOfCreditState.get(0);
+        final LetterOfCreditState outputLetterOfCreditState = outputs.get(0);
+        final BillOfLadingState inputBillOfLadingState = inputsBillOfLadingState.get(0);
+        final BillOfLadingState outputBillOfLadingState = outputsBillOfLadingState.get(0);
+
+        require(
+                "Advising Bank should be the owner in input BillOfLading in PayAdvisingBank.",
+                inputBillOfLadingState.getCurrentOwner().equals(inputBillOfLadingState.getAdvisingBank())
+        );
+
+        require(
+                "Issuing Bank should be the owner in output BillOfLading in PayAdvisingBank.",
+                outputBillOfLadingState.getCurrentOwner().equals(outputBillOfLadingState.getIssuingBank())
+        );
+
+        require(
+                "BillOfLading should be the one of the LetterOfCredit in PayAdvisingBank.",
+                inputBillOfLadingState.getBillOfLadingId().equals(inputLetterOfCreditState.getBillOfLadingId())
+        );
+
+        require(
+                "BillOfLadingState details should be same in input & output.",
+                inputBillOfLadingState.equalsIgnoreOwner(outputBillOfLadingState)
+        );
+
+        require(
+                "LetterOfCreditState details should be same in input & output.",
+                inputLetterOfCreditState.equalsIgnoreLOCStatus(outputLetterOfCreditState)
+        );
+
+        require(
+                "LetterOfCreditState status must follow the LOC lifecycle.",
+                inputLetterOfCreditState.getLocStatus().canMoveTo(outputLetterOfCreditState.getLocStatus())
+        );
+
+        require(
+                "Input LetterOfCreditState status should be SELLER_PAID in PayAdvisingBank.",
+                inputLetterOfCreditState.getLocStatus() == LocStatus.SELLER_PAID
+        );
+
+        require(
+                "Output LetterOfCreditState status should be ADVISING_BANK_PAID in PayAdvisingBank.",
+                outputLetterOfCreditState.getLocStatus() == LocStatus.ADVISING_BANK_PAID
+        );
+
+        require(
+                "IssuingBank must be a signer in PayAdvisingBank.",
+                signers.contains(outputLetterOfCreditState.getIssuingBank().getOwningKey())
+        );
+
+        require(
+                "AdvisingBank must be a signer in PayAdvisingBank.",
+                signers.contains(outputLetterOfCreditState.getAdvisingBank().getOwningKey())
+        );
+    }
 
-                requirements.using(
-                        "Output LetterOfCreditState status should be ISSUING_BANK_PAID in PayIssuingBank.",
-                        outputLetterOfCreditState.getLocStatus().equalsIgnoreCase("ISSUING_BANK_PAID")
-                );
+    private static void verifyPayIssuingBank(StatesByType states, List<PublicKey> signers) {
+        final List<BillOfLadingState> inputsBillOfLadingState = states.inputBillsOfLading;
+        require(
+                "Input should have exactly 1 BillOfLadingState in PayIssuingBank.",
+                inputsBillOfLadingState.size() == 1
+        );
+        final List<LetterOfCreditState> inputsLetterOfCreditState = states.inputLettersOfCredit;
+        require(
+                "Input should have exactly 1 LetterOfCreditState in PayIssuingBank.",
+                inputsLetterOfCreditState.size() == 1
+        );
+
+        final List<LetterOfCreditState> outputs = states.outputLettersOfCredit;
+        require(
+                "Output should have exactly 1 LetterOfCreditState in PayIssuingBank.",
+                outputs.size() == 1
+        );
+        final List<BillOfLadingState> outputsBillOfLadingState = states.outputBillsOfLading;
+        require(
+                "Output should have exactly 1 BillOfLadingState in PayIssuingBank.",
+                outputsBillOfLadingState.size() == 1
+        );
+
+        final LetterOfCreditState inputLetterOfCreditState = inputsLetterOfCreditState.get(0);
+        final LetterOfCreditState outputLetterOfCreditState = outputs.get(0);
+        final BillOfLadingState inputBillOfLadingState = inputsBillOfLadingState.get(0);
+        final BillOfLadingState outputBillOfLadingState = outputsBillOfLadingState.get(0);
+
+        require(
+                "Issuing Bank should be the owner in input BillOfLading in PayIssuingBank.",
+                inputBillOfLadingState.getCurrentOwner().equals(inputBillOfLadingState.getIssuingBank())
+        );
+
+        require(
+                "Buyer should be the owner in output BillOfLading in PayIssuingBank.",
+                outputBillOfLadingState.getCurrentOwner().equals(outputBillOfLadingState.getBuyer())
+        );
+
+        require(
+                "BillOfLading should be the one of the LetterOfCredit in PayIssuingBank.",
+                inputBillOfLadingState.getBillOfLadingId().equals(inputLetterOfCreditState.getBillOfLadingId())
+        );
+
+        require(
+                "BillOfLadingState details should be same in input & output.",
+                inputBillOfLadingState.equalsIgnoreOwner(outputBillOfLadingState)
+        );
+
+        require(
+                "LetterOfCreditState details should be same in input & output.",
+                inputLetterOfCreditState.equalsIgnoreLOCStatus(outputLetterOfCreditState)
+        );
+
+        require(
+                "LetterOfCreditState status must follow the LOC lifecycle.",
+                inputLetterOfCreditState.getLocStatus().canMoveTo(outputLetterOfCreditState.getLocStatus())
+        );
+
+        require(
+                "Input LetterOfCreditState status should be ADVISING_BANK_PAID in PayIssuingBank.",
+                inputLetterOfCreditState.getLocStatus() == LocStatus.ADVISING_BANK_PAID
+        );
+
+        require(
+                "Output LetterOfCreditState status should be ISSUING_BANK_PAID in PayIssuingBank.",
+                outputLetterOfCreditState.getLocStatus() == LocStatus.ISSUING_BANK_PAID
+        );
+
+        require(
+                "Buyer must be a signer in PayIssuingBank.",
+                signers.contains(outputLetterOfCreditState.getBuyer().getOwningKey())
+        );
+
+        require(
+                "IssuingBank must be a signer in PayIssuingBank.",
+                signers.contains(outputLetterOfCreditState.getIssuingBank().getOwningKey())
+        );
+    }
 
-                requirements.using(
-                        "Buyer must be a signer in ApplyForLetterOfCredit.",
-                        command.getSigners().contains(outputLetterOfCreditState.getBuyer().getOwningKey())
-                );
+    // PaySeller, PayAdvisingBank and PayIssuingBank in one go, see SettleLetterOfCreditFlow.
+    private static void verifySettle(StatesByType states, List<PublicKey> signers) {
+        final List<BillOfLadingState> inputsBillOfLadingState = states.inputBillsOfLading;
+        require(
+                "Input should have exactly 1 BillOfLadingState in Settle.",
+                inputsBillOfLadingState.size() == 1
+        );
+        final List<LetterOfCreditState> inputsLetterOfCreditState = states.inputLettersOfCredit;
+        require(
+                "Input should have exactly 1 LetterOfCreditState in Settle.",
+                inputsLetterOfCreditState.size() == 1
+        );
+
+        final List<LetterOfCreditState> outputs = states.outputLettersOfCredit;
+        require(
+                "Output should have exactly 1 LetterOfCreditState in Settle.",
+                outputs.size() == 1
+        );
+        final List<BillOfLadingState> outputsBillOfLadingState = states.outputBillsOfLading;
+        require(
+                "Output should have exactly 1 BillOfLadingState in Settle.",
+                outputsBillOfLadingState.size() == 1
+        );
+
+        final LetterOfCreditState inputLetterOfCreditState = inputsLetterOfCreditState.get(0);
+        final LetterOfCreditState outputLetterOfCreditState = outputs.get(0);
+        final BillOfLadingState inputBillOfLadingState = inputsBillOfLadingState.get(0);
+        final BillOfLadingState outputBillOfLadingState = outputsBillOfLadingState.get(0);
+
+        require(
+                "Seller should be the owner in input BillOfLading in Settle.",
+                inputBillOfLadingState.getCurrentOwner().equals(inputBillOfLadingState.getSeller())
+        );
+
+        require(
+                "Buyer should be the owner in output BillOfLading in Settle.",
+                outputBillOfLadingState.getCurrentOwner().equals(outputBillOfLadingState.getBuyer())
+        );
+
+        require(
+                "BillOfLading should be the one of the LetterOfCredit in Settle.",
+                inputBillOfLadingState.getBillOfLadingId().equals(inputLetterOfCreditState.getBillOfLadingId()) &&
+                        outputBillOfLadingState.getBillOfLadingId().equals(inputBillOfLadingState.getBillOfLadingId())
+        );
+
+        require(
+                "BillOfLadingState details should be same in input & output.",
+                inputBillOfLadingState.equalsIgnoreOwner(outputBillOfLadingState)
+        );
+
+        require(
+                "LetterOfCreditState details should be same in input & output.",
+                inputLetterOfCreditState.equalsIgnoreLOCStatus(outputLetterOfCreditState)
+        );
+
+        require(
+                "LetterOfCreditState status must follow the LOC lifecycle.",
+                inputLetterOfCreditState.getLocStatus().canMoveTo(outputLetterOfCreditState.getLocStatus())
+        );
+
+        require(
+                "Input LetterOfCreditState status should be SHIPPED in Settle.",
+                inputLetterOfCreditState.getLocStatus() == LocStatus.SHIPPED
+        );
+
+        require(
+                "Output LetterOfCreditState status should be ISSUING_BANK_PAID in Settle.",
+                outputLetterOfCreditState.getLocStatus() == LocStatus.ISSUING_BANK_PAID
+        );
+
+        require(
+                "Buyer must be a signer in Settle.",
+                signers.contains(outputLetterOfCreditState.getBuyer().getOwningKey())
+        );
+
+        require(
+                "Seller must be a signer in Settle.",
+                signers.contains(outputLetterOfCreditState.getSeller().getOwningKey())
+        );
+
+        require(
+                "IssuingBank must be a signer in Settle.",
+                signers.contains(outputLetterOfCreditState.getIssuingBank().getOwningKey())
+        );
+
+        require(
+                "AdvisingBank must be a signer in Settle.",
+                signers.contains(outputLetterOfCreditState.getAdvisingBank().getOwningKey())
+        );
+    }
 
-                requirements.using(
-                        "Seller must be a signer in ApplyForLetterOfCredit.",
-                        command.getSigners().contains(outputLetterOfCreditState.getSeller().getOwningKey())
-                );
+    /** Same as requireThat's requirements.using, without a lambda to build for each transaction. */
+    private static void require(String message, boolean condition) {
+        if (!condition)
+            throw new IllegalArgumentException("Failed requirement: " + message);
+    }
 
-                requirements.using(
-                        "IssuingBank must be a signer in ApplyForLetterOfCredit.",
-                        command.getSigners().contains(outputLetterOfCreditState.getIssuingBank().getOwningKey())
-                );
+    private interface Rules {
+        void verify(StatesByType states, List<PublicKey> signers);
+    }
 
-                requirements.using(
-                        "AdvisingBank must be a signer in ApplyForLetterOfCredit.",
-                        command.getSigners().contains(outputLetterOfCreditState.getAdvisingBank().getOwningKey())
-                );
+    /**
+     * The states of a transaction grouped by type, in one pass over its inputs and outputs. inputsOfType and
+     * outputsOfType filter all the states of the transaction again on every call. A list is only made for the types
+     * the transaction has, the others are left empty.
+     */
+    private static final class StatesByType {
+        final int inputCount;
+        List<PurchaseOrderState> inputPurchaseOrders = Collections.emptyList();
+        List<LetterOfCreditState> inputLettersOfCredit = Collections.emptyList();
+        List<BillOfLadingState> inputBillsOfLading = Collections.emptyList();
+        List<PurchaseOrderState> outputPurchaseOrders = Collections.emptyList();
+        List<LetterOfCreditState> outputLettersOfCredit = Collections.emptyList();
+        List<BillOfLadingState> outputBillsOfLading = Collections.emptyList();
+
+        StatesByType(LedgerTransaction tx) {
+            final List<StateAndRef<ContractState>> inputs = tx.getInputs();
+            inputCount = inputs.size();
+            for (StateAndRef<ContractState> input : inputs) {
+                final ContractState state = input.getState().getData();
+                if (state instanceof PurchaseOrderState) inputPurchaseOrders = add(inputPurchaseOrders, (PurchaseOrderState) state);
+                else if (state instanceof LetterOfCreditState) inputLettersOfCredit = add(inputLettersOfCredit, (LetterOfCreditState) state);
+                else if (state instanceof BillOfLadingState) inputBillsOfLading = add(inputBillsOfLading, (BillOfLadingState) state);
+            }
+            for (TransactionState<ContractState> output : tx.getOutputs()) {
+                final ContractState state = output.getData();
+                if (state instanceof PurchaseOrderState) outputPurchaseOrders = add(outputPurchaseOrders, (PurchaseOrderState) state);
+                else if (state instanceof LetterOfCreditState) outputLettersOfCredit = add(outputLettersOfCredit, (LetterOfCreditState) state);
+                else if (state instanceof BillOfLadingState) outputBillsOfLading = add(outputBillsOfLading, (BillOfLadingState) state);
+            }
+        }
 
-                return null;
-            });
-        } else {
-            throw new IllegalArgumentException("Unknown Command: " + command.getValue());
+        /** Adds the state to the list, made on the first state added. */
+        private static <T> List<T> add(List<T> states, T state) {
+            final List<T> added = states.isEmpty() ? new ArrayList<>(1) : states;
+            added.add(state);
+            return added;
         }
     }
 
+    /**
+     * Each command is signed only by the parties whose positions it changes; the other participants receive the
+     * transaction from FinalityFlow as observers.
+     *   CreatePurchaseOrder: seller, buyer
+     *   ApplyForLetterOfCredit: buyer, seller, as it consumes their purchase order
+     *   ApproveLetterOfCreditApplication: issuing bank
+     *   ShipProducts: seller
+     *   PaySeller: advising bank, seller
+     *   PayAdvisingBank: issuing bank, advising bank
+     *   PayIssuingBank: buyer, issuing bank
+     *   Settle: all four, as it pays every party
+     */
     public interface Commands extends CommandData {
         class CreatePurchaseOrder implements Commands {}
         class ApplyForLetterOfCredit implements Commands {}
@@ -529,5 +715,6 @@ public class LetterOfCreditContract implements Contract {
         class PaySeller implements Commands {}
         class PayAdvisingBank implements Commands {}
         class PayIssuingBank implements Commands {}
+        class Settle implements Commands {}
     }
 }
@@ -0,0 +1,90 @@
+package com.example.schema;
+
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+import org.jetbrains.annotations.Nullable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.util.Collections;
+
+/**
+ * A BillOfLadingState schema.
+ * A bill of lading is re-issued on every change of ownership, so it is unique per id and owner. As for purchase orders,
+ * the flows check that rather than the index.
+ */
+public class BillOfLadingSchemaV1 extends MappedSchema {
+    public BillOfLadingSchemaV1() {
+        super(BillOfLadingSchema.class, 1, Collections.singletonList(PersistentBillOfLading.class));
+    }
+
+    @Nullable
+    @Override
+    public String getMigrationResource() {
+        return "bill-of-lading.changelog-master";
+    }
+
+    @Entity
+    @Table(name = "bill_of_lading_states", indexes = {
+            @Index(name = "bol_id_owner_idx", columnList = "bill_of_lading_id, current_owner"),
+            @Index(name = "bol_current_owner_idx", columnList = "current_owner")
+    })
+    public static class PersistentBillOfLading extends PersistentState {
+        @Column(name = "bill_of_lading_id", nullable = false) private final String billOfLadingId;
+        @Column(name = "current_owner", nullable = false) private final String currentOwner;
+        @Column(name = "seller", nullable = false) private final String seller;
+        @Column(name = "buyer", nullable = false) private final String buyer;
+        @Column(name = "advising_bank", nullable = false) private final String advisingBank;
+        @Column(name = "issuing_bank", nullable = false) private final String issuingBank;
+
+        public PersistentBillOfLading(String billOfLadingId,
+                                      String currentOwner,
+                                      String seller,
+                                      String buyer,
+                                      String advisingBank,
+                                      String issuingBank) {
+            this.billOfLadingId = billOfLadingId;
+            this.currentOwner = currentOwner;
+            this.seller = seller;
+            this.buyer = buyer;
+            this.advisingBank = advisingBank;
+            this.issuingBank = issuingBank;
+        }
+
+        // Default constructor required by hibernate.
+        public PersistentBillOfLading() {
+            this.billOfLadingId = null;
+            this.currentOwner = null;
+            this.seller = null;
+            this.buyer = null;
+            this.advisingBank = null;
+            this.issuingBank = null;
+        }
+
+        public String getBillOfLadingId() {
+            return billOfLadingId;
+        }
+
+        public String getCurrentOwner() {
+            return currentOwner;
+        }
+
+        public String getSeller() {
+            return seller;
+        }
+
+        public String getBuyer() {
+            return buyer;
+        }
+
+        public String getAdvisingBank() {
+            return advisingBank;
+        }
+
+        public String getIssuingBank() {
+            return issuingBank;
+        }
+    }
+}
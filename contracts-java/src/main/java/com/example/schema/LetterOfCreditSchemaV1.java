@@ -0,0 +1,111 @@
+package com.example.schema;
+
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+import org.jetbrains.annotations.Nullable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.util.Collections;
+
+/**
+ * A LetterOfCreditState schema.
+ * Indexes the columns the flows and the web server look LOCs up by.
+ */
+public class LetterOfCreditSchemaV1 extends MappedSchema {
+    public LetterOfCreditSchemaV1() {
+        super(LetterOfCreditSchema.class, 1, Collections.singletonList(PersistentLetterOfCredit.class));
+    }
+
+    @Nullable
+    @Override
+    public String getMigrationResource() {
+        return "letter-of-credit.changelog-master";
+    }
+
+    @Entity
+    @Table(name = "letter_of_credit_states", indexes = {
+            @Index(name = "loc_id_idx", columnList = "loc_id"),
+            @Index(name = "loc_status_idx", columnList = "loc_status"),
+            @Index(name = "loc_purchase_order_id_idx", columnList = "purchase_order_id"),
+            @Index(name = "loc_bill_of_lading_id_idx", columnList = "bill_of_lading_id"),
+            @Index(name = "loc_seller_idx", columnList = "seller"),
+            @Index(name = "loc_buyer_idx", columnList = "buyer"),
+            @Index(name = "loc_advising_bank_idx", columnList = "advising_bank"),
+            @Index(name = "loc_issuing_bank_idx", columnList = "issuing_bank")
+    })
+    public static class PersistentLetterOfCredit extends PersistentState {
+        @Column(name = "loc_id", nullable = false) private final String locId;
+        @Column(name = "loc_status", nullable = false) private final String locStatus;
+        @Column(name = "purchase_order_id") private final String purchaseOrderId;
+        @Column(name = "bill_of_lading_id") private final String billOfLadingId;
+        @Column(name = "seller", nullable = false) private final String seller;
+        @Column(name = "buyer", nullable = false) private final String buyer;
+        @Column(name = "advising_bank", nullable = false) private final String advisingBank;
+        @Column(name = "issuing_bank", nullable = false) private final String issuingBank;
+
+        public PersistentLetterOfCredit(String locId,
+                                        String locStatus,
+                                        String purchaseOrderId,
+                                        String billOfLadingId,
+                                        String seller,
+                                        String buyer,
+                                        String advisingBank,
+                                        String issuingBank) {
+            this.locId = locId;
+            this.locStatus = locStatus;
+            this.purchaseOrderId = purchaseOrderId;
+            this.billOfLadingId = billOfLadingId;
+            this.seller = seller;
+            this.buyer = buyer;
+            this.advisingBank = advisingBank;
+            this.issuingBank = issuingBank;
+        }
+
+        // Default constructor required by hibernate.
+        public PersistentLetterOfCredit() {
+            this.locId = null;
+            this.locStatus = null;
+            this.purchaseOrderId = null;
+            this.billOfLadingId = null;
+            this.seller = null;
+            this.buyer = null;
+            this.advisingBank = null;
+            this.issuingBank = null;
+        }
+
+        public String getLocId() {
+            return locId;
+        }
+
+        public String getLocStatus() {
+            return locStatus;
+        }
+
+        public String getPurchaseOrderId() {
+            return purchaseOrderId;
+        }
+
+        public String getBillOfLadingId() {
+            return billOfLadingId;
+        }
+
+        public String getSeller() {
+            return seller;
+        }
+
+        public String getBuyer() {
+            return buyer;
+        }
+
+        public String getAdvisingBank() {
+            return advisingBank;
+        }
+
+        public String getIssuingBank() {
+            return issuingBank;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.schema;
+
+/**
+ * The family of schemas for PurchaseOrderState.
+ */
+public class PurchaseOrderSchema { }
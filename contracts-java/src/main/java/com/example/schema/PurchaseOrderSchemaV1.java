@@ -0,0 +1,65 @@
+package com.example.schema;
+
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+import org.jetbrains.annotations.Nullable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.util.Collections;
+
+/**
+ * A PurchaseOrderState schema.
+ * A purchase order is recorded once and consumed by its LOC application, so its id is unique. The flows check that
+ * before signing: a unique index would only fail the recording, on one node, after the transaction is notarised.
+ */
+public class PurchaseOrderSchemaV1 extends MappedSchema {
+    public PurchaseOrderSchemaV1() {
+        super(PurchaseOrderSchema.class, 1, Collections.singletonList(PersistentPurchaseOrder.class));
+    }
+
+    @Nullable
+    @Override
+    public String getMigrationResource() {
+        return "purchase-order.changelog-master";
+    }
+
+    @Entity
+    @Table(name = "purchase_order_states", indexes = {
+            @Index(name = "po_purchase_order_id_idx", columnList = "purchase_order_id"),
+            @Index(name = "po_seller_idx", columnList = "seller"),
+            @Index(name = "po_buyer_idx", columnList = "buyer")
+    })
+    public static class PersistentPurchaseOrder extends PersistentState {
+        @Column(name = "purchase_order_id", nullable = false) private final String purchaseOrderId;
+        @Column(name = "seller", nullable = false) private final String seller;
+        @Column(name = "buyer", nullable = false) private final String buyer;
+
+        public PersistentPurchaseOrder(String purchaseOrderId, String seller, String buyer) {
+            this.purchaseOrderId = purchaseOrderId;
+            this.seller = seller;
+            this.buyer = buyer;
+        }
+
+        // Default constructor required by hibernate.
+        public PersistentPurchaseOrder() {
+            this.purchaseOrderId = null;
+            this.seller = null;
+            this.buyer = null;
+        }
+
+        public String getPurchaseOrderId() {
+            return purchaseOrderId;
+        }
+
+        public String getSeller() {
+            return seller;
+        }
+
+        public String getBuyer() {
+            return buyer;
+        }
+    }
+}
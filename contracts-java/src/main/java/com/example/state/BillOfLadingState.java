@@ -1,18 +1,24 @@
 package com.example.state;
 
 import com.example.contract.LetterOfCreditContract;
+import com.example.schema.BillOfLadingSchemaV1;
 import net.corda.core.contracts.BelongsToContract;
-import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.LinearState;
+import net.corda.core.contracts.UniqueIdentifier;
 import net.corda.core.identity.AbstractParty;
 import net.corda.core.identity.Party;
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+import net.corda.core.schemas.QueryableState;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
 @BelongsToContract(LetterOfCreditContract.class)
-public class BillOfLadingState implements ContractState {
+public class BillOfLadingState implements LinearState, QueryableState {
     @NotNull private final String billOfLadingId;
     @NotNull private final Party currentOwner;
     @NotNull private final Party seller;
@@ -111,6 +117,35 @@ public class BillOfLadingState implements ContractState {
         return Arrays.asList(seller, buyer, advisingBank, issuingBank);
     }
 
+    @NotNull
+    @Override
+    public UniqueIdentifier getLinearId() {
+        return LinearIds.fromBusinessId(billOfLadingId);
+    }
+
+    @NotNull
+    @Override
+    public PersistentState generateMappedObject(@NotNull MappedSchema schema) {
+        if (schema instanceof BillOfLadingSchemaV1) {
+            return new BillOfLadingSchemaV1.PersistentBillOfLading(
+                    billOfLadingId,
+                    currentOwner.getName().toString(),
+                    seller.getName().toString(),
+                    buyer.getName().toString(),
+                    advisingBank.getName().toString(),
+                    issuingBank.getName().toString()
+            );
+        } else {
+            throw new IllegalArgumentException("Unrecognised schema " + schema);
+        }
+    }
+
+    @NotNull
+    @Override
+    public Iterable<MappedSchema> supportedSchemas() {
+        return Collections.singletonList(new BillOfLadingSchemaV1());
+    }
+
     @NotNull
     public Party getCurrentOwner() {
         return currentOwner;
@@ -249,8 +284,15 @@ public class BillOfLadingState implements ContractState {
         if (obj == null || obj.getClass() != this.getClass()) return false;
         final BillOfLadingState that = (BillOfLadingState) obj;
 
+        return this.equalsIgnoreOwner(obj) && currentOwner.equals(that.currentOwner);
+    }
+
+    public boolean equalsIgnoreOwner(Object obj) {
+        if (obj == this) return true;
+        if (obj == null || obj.getClass() != this.getClass()) return false;
+        final BillOfLadingState that = (BillOfLadingState) obj;
+
         return billOfLadingId.equals(that.billOfLadingId) &&
-        currentOwner.equals(that.currentOwner) &&
         seller.equals(that.seller) &&
         buyer.equals(that.buyer) &&
         advisingBank.equals(that.advisingBank) &&
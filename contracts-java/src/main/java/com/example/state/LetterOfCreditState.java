@@ -1,19 +1,25 @@
 package com.example.state;
 
 import com.example.contract.LetterOfCreditContract;
+import com.example.schema.LetterOfCreditSchemaV1;
 import net.corda.core.contracts.BelongsToContract;
-import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.LinearState;
+import net.corda.core.contracts.UniqueIdentifier;
 import net.corda.core.identity.AbstractParty;
 import net.corda.core.identity.Party;
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+import net.corda.core.schemas.QueryableState;
 import net.corda.core.serialization.ConstructorForDeserialization;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
 @BelongsToContract(LetterOfCreditContract.class)
-public class LetterOfCreditState implements ContractState {
+public class LetterOfCreditState implements LinearState, QueryableState {
     @NotNull private final String locId;
     @NotNull private final String locType;
     @NotNull private final String locExpiryDate;
@@ -32,12 +38,8 @@ public class LetterOfCreditState implements ContractState {
     @NotNull private final Long productQuantity;
     @NotNull private final Long productPriceInUSD;
     @NotNull private final Long productGrossWeightInKG;
-    /**
-     // locStatus LifeCycle
-     // APPLIED -> REJECTED
-     // APPLIED -> ISSUED -> SHIPPED -> SELLER_PAID -> ADVISING_BANK_PAID -> ISSUING_BANK_PAID
-     */
-    @NotNull private final String locStatus;
+    // See LocStatus for the lifecycle.
+    @NotNull private final LocStatus locStatus;
 
     // Reference to the PurchaseOrder
     private String purchaseOrderId;
@@ -80,7 +82,7 @@ public class LetterOfCreditState implements ContractState {
                                @NotNull Long productQuantity,
                                @NotNull Long productPriceInUSD,
                                @NotNull Long productGrossWeightInKG,
-                               @NotNull String locStatus,
+                               @NotNull LocStatus locStatus,
                                String purchaseOrderId,
                                String billOfLadingId
     ) {
@@ -145,13 +147,13 @@ public class LetterOfCreditState implements ContractState {
                 productQuantity,
                 productPriceInUSD,
                 productGrossWeightInKG,
-                "APPLIED",
+                LocStatus.APPLIED,
                 purchaseOrderId,
                 null
         );
     }
 
-    public static LetterOfCreditState locWithUpdatedStatus(LetterOfCreditState currentLOC, String newStatus) {
+    public static LetterOfCreditState locWithUpdatedStatus(LetterOfCreditState currentLOC, LocStatus newStatus) {
         return new LetterOfCreditState(
                 currentLOC.locId,
                 currentLOC.locType,
@@ -185,7 +187,38 @@ public class LetterOfCreditState implements ContractState {
     }
 
     @NotNull
-    public String getLocStatus() {
+    @Override
+    public UniqueIdentifier getLinearId() {
+        return LinearIds.fromBusinessId(locId);
+    }
+
+    @NotNull
+    @Override
+    public PersistentState generateMappedObject(@NotNull MappedSchema schema) {
+        if (schema instanceof LetterOfCreditSchemaV1) {
+            return new LetterOfCreditSchemaV1.PersistentLetterOfCredit(
+                    locId,
+                    locStatus.name(),
+                    purchaseOrderId,
+                    billOfLadingId,
+                    seller.getName().toString(),
+                    buyer.getName().toString(),
+                    advisingBank.getName().toString(),
+                    issuingBank.getName().toString()
+            );
+        } else {
+            throw new IllegalArgumentException("Unrecognised schema " + schema);
+        }
+    }
+
+    @NotNull
+    @Override
+    public Iterable<MappedSchema> supportedSchemas() {
+        return Collections.singletonList(new LetterOfCreditSchemaV1());
+    }
+
+    @NotNull
+    public LocStatus getLocStatus() {
         return locStatus;
     }
 
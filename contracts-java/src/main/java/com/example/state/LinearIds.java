@@ -0,0 +1,34 @@
+package com.example.state;
+
+import net.corda.core.contracts.UniqueIdentifier;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Maps the String business ids carried by the trade states onto their linear ids.
+ *
+ * The flows mint business ids from new UniqueIdentifier().toString(), so a business id is normally
+ * a UUID and is used as the linear id as-is. Any other id is mapped onto a name-based UUID so the
+ * linear id stays deterministic. The business id is always kept as the external id.
+ */
+public final class LinearIds {
+    private LinearIds() { }
+
+    @NotNull
+    public static UniqueIdentifier fromBusinessId(@NotNull String businessId) {
+        return new UniqueIdentifier(businessId, uuidOf(businessId));
+    }
+
+    @NotNull
+    public static UUID uuidOf(@NotNull String businessId) {
+        try {
+            final UUID uuid = UUID.fromString(businessId);
+            if (uuid.toString().equals(businessId)) return uuid;
+        } catch (IllegalArgumentException ignored) {
+            // Not a UUID, fall through to a name-based UUID.
+        }
+        return UUID.nameUUIDFromBytes(businessId.getBytes(StandardCharsets.UTF_8));
+    }
+}
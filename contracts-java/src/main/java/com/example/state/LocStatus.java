@@ -0,0 +1,48 @@
+package com.example.state;
+
+import net.corda.core.serialization.CordaSerializable;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The lifecycle of a letter of credit:
+ * APPLIED -> REJECTED
+ * APPLIED -> ISSUED -> SHIPPED -> SELLER_PAID -> ADVISING_BANK_PAID -> ISSUING_BANK_PAID
+ * SHIPPED -> ISSUING_BANK_PAID (settled in one step)
+ */
+@CordaSerializable
+public enum LocStatus {
+    APPLIED,
+    REJECTED,
+    ISSUED,
+    SHIPPED,
+    SELLER_PAID,
+    ADVISING_BANK_PAID,
+    ISSUING_BANK_PAID;
+
+    // TRANSITIONS[from.ordinal()][to.ordinal()]: whether an LOC may go from one status to the other.
+    private static final boolean[][] TRANSITIONS = new boolean[values().length][values().length];
+
+    static {
+        allow(APPLIED, ISSUED);
+        allow(APPLIED, REJECTED);
+        allow(ISSUED, SHIPPED);
+        allow(SHIPPED, SELLER_PAID);
+        allow(SHIPPED, ISSUING_BANK_PAID);
+        allow(SELLER_PAID, ADVISING_BANK_PAID);
+        allow(ADVISING_BANK_PAID, ISSUING_BANK_PAID);
+    }
+
+    private static void allow(LocStatus from, LocStatus to) {
+        TRANSITIONS[from.ordinal()][to.ordinal()] = true;
+    }
+
+    /** Whether an LOC with this status may move to the given one. */
+    public boolean canMoveTo(@NotNull LocStatus next) {
+        return TRANSITIONS[ordinal()][next.ordinal()];
+    }
+
+    /** Whether the products have been shipped, i.e. a BillOfLading exists for the LOC. */
+    public boolean isShipped() {
+        return this != APPLIED && this != REJECTED && this != ISSUED;
+    }
+}
@@ -1,18 +1,24 @@
 package com.example.state;
 
 import com.example.contract.LetterOfCreditContract;
+import com.example.schema.PurchaseOrderSchemaV1;
 import net.corda.core.contracts.BelongsToContract;
-import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.LinearState;
+import net.corda.core.contracts.UniqueIdentifier;
 import net.corda.core.identity.AbstractParty;
 import net.corda.core.identity.Party;
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+import net.corda.core.schemas.QueryableState;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
 @BelongsToContract(LetterOfCreditContract.class)
-public class PurchaseOrderState implements ContractState {
+public class PurchaseOrderState implements LinearState, QueryableState {
     @NotNull private final String purchaseOrderId;
     @NotNull private final Party seller;
     @NotNull private final Party buyer;
@@ -46,6 +52,32 @@ public class PurchaseOrderState implements ContractState {
         return Arrays.asList(seller, buyer);
     }
 
+    @NotNull
+    @Override
+    public UniqueIdentifier getLinearId() {
+        return LinearIds.fromBusinessId(purchaseOrderId);
+    }
+
+    @NotNull
+    @Override
+    public PersistentState generateMappedObject(@NotNull MappedSchema schema) {
+        if (schema instanceof PurchaseOrderSchemaV1) {
+            return new PurchaseOrderSchemaV1.PersistentPurchaseOrder(
+                    purchaseOrderId,
+                    seller.getName().toString(),
+                    buyer.getName().toString()
+            );
+        } else {
+            throw new IllegalArgumentException("Unrecognised schema " + schema);
+        }
+    }
+
+    @NotNull
+    @Override
+    public Iterable<MappedSchema> supportedSchemas() {
+        return Collections.singletonList(new PurchaseOrderSchemaV1());
+    }
+
     @NotNull
     public String getPurchaseOrderId() {
         return purchaseOrderId;
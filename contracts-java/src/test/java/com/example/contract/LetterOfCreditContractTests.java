@@ -0,0 +1,226 @@
+package com.example.contract;
+
+import com.example.state.BillOfLadingState;
+import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
+import com.example.state.PurchaseOrderState;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.testing.core.TestIdentity;
+import net.corda.testing.node.MockServices;
+import org.junit.Test;
+
+import java.security.PublicKey;
+import java.util.Arrays;
+
+import static com.example.contract.LetterOfCreditContract.LOC_CONTRACT_ID;
+import static net.corda.testing.node.NodeTestUtils.ledger;
+
+public class LetterOfCreditContractTests {
+    private static final TestIdentity SELLER = new TestIdentity(new CordaX500Name("Seller", "Chittagong", "BD"));
+    private static final TestIdentity BUYER = new TestIdentity(new CordaX500Name("Buyer", "Kowloon", "HK"));
+    private static final TestIdentity ADVISING_BANK = new TestIdentity(new CordaX500Name("AdvisingBank", "Dhaka", "BD"));
+    private static final TestIdentity ISSUING_BANK = new TestIdentity(new CordaX500Name("IssuingBank", "Kowloon", "HK"));
+
+    private static final PublicKey[] ALL_PARTIES = {
+            SELLER.getPublicKey(), BUYER.getPublicKey(), ADVISING_BANK.getPublicKey(), ISSUING_BANK.getPublicKey()
+    };
+
+    private final MockServices ledgerServices = new MockServices(Arrays.asList("com.example.contract"));
+
+    @Test
+    public void applyForLetterOfCreditIsSignedByTheBuyerAndTheSeller() {
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.input(LOC_CONTRACT_ID, purchaseOrder());
+                tx.output(LOC_CONTRACT_ID, letterOfCredit(LocStatus.APPLIED));
+                tx.tweak(tw -> {
+                    tw.command(BUYER.getPublicKey(), new LetterOfCreditContract.Commands.ApplyForLetterOfCredit());
+                    return tw.failsWith("Seller must be a signer in ApplyForLetterOfCredit.");
+                });
+                tx.command(Arrays.asList(BUYER.getPublicKey(), SELLER.getPublicKey()),
+                        new LetterOfCreditContract.Commands.ApplyForLetterOfCredit());
+                return tx.verifies();
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void paySellerHandsTheBillOfLadingFromTheSellerToTheAdvisingBank() {
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.input(LOC_CONTRACT_ID, letterOfCredit(LocStatus.SHIPPED));
+                tx.input(LOC_CONTRACT_ID, billOfLading(SELLER.getParty(), "MV Jute"));
+                tx.output(LOC_CONTRACT_ID, letterOfCredit(LocStatus.SELLER_PAID));
+                tx.output(LOC_CONTRACT_ID, billOfLading(ADVISING_BANK.getParty(), "MV Jute"));
+                tx.command(Arrays.asList(SELLER.getPublicKey(), ADVISING_BANK.getPublicKey()),
+                        new LetterOfCreditContract.Commands.PaySeller());
+                return tx.verifies();
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void paySellerMustTakeTheBillOfLadingFromTheSeller() {
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.input(LOC_CONTRACT_ID, letterOfCredit(LocStatus.SHIPPED));
+                tx.input(LOC_CONTRACT_ID, billOfLading(ISSUING_BANK.getParty(), "MV Jute"));
+                tx.output(LOC_CONTRACT_ID, letterOfCredit(LocStatus.SELLER_PAID));
+                tx.output(LOC_CONTRACT_ID, billOfLading(ADVISING_BANK.getParty(), "MV Jute"));
+                tx.command(Arrays.asList(SELLER.getPublicKey(), ADVISING_BANK.getPublicKey()),
+                        new LetterOfCreditContract.Commands.PaySeller());
+                return tx.failsWith("Seller should be the owner in input BillOfLading in PaySeller.");
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void payAdvisingBankMustConserveTheBillOfLadingDetails() {
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.input(LOC_CONTRACT_ID, letterOfCredit(LocStatus.SELLER_PAID));
+                tx.input(LOC_CONTRACT_ID, billOfLading(ADVISING_BANK.getParty(), "MV Jute"));
+                tx.output(LOC_CONTRACT_ID, letterOfCredit(LocStatus.ADVISING_BANK_PAID));
+                tx.output(LOC_CONTRACT_ID, billOfLading(ISSUING_BANK.getParty(), "MV Hessian"));
+                tx.command(Arrays.asList(ADVISING_BANK.getPublicKey(), ISSUING_BANK.getPublicKey()),
+                        new LetterOfCreditContract.Commands.PayAdvisingBank());
+                return tx.failsWith("BillOfLadingState details should be same in input & output.");
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void payIssuingBankMustBeForTheBillOfLadingOfTheLetterOfCredit() {
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.input(LOC_CONTRACT_ID, letterOfCredit(LocStatus.ADVISING_BANK_PAID));
+                tx.input(LOC_CONTRACT_ID, billOfLading("BOL-2", ISSUING_BANK.getParty(), "MV Jute"));
+                tx.output(LOC_CONTRACT_ID, letterOfCredit(LocStatus.ISSUING_BANK_PAID));
+                tx.output(LOC_CONTRACT_ID, billOfLading("BOL-2", BUYER.getParty(), "MV Jute"));
+                tx.command(Arrays.asList(BUYER.getPublicKey(), ISSUING_BANK.getPublicKey()),
+                        new LetterOfCreditContract.Commands.PayIssuingBank());
+                return tx.failsWith("BillOfLading should be the one of the LetterOfCredit in PayIssuingBank.");
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void settleHandsTheBillOfLadingFromTheSellerToTheBuyer() {
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.input(LOC_CONTRACT_ID, letterOfCredit(LocStatus.SHIPPED));
+                tx.input(LOC_CONTRACT_ID, billOfLading(SELLER.getParty(), "MV Jute"));
+                tx.output(LOC_CONTRACT_ID, letterOfCredit(LocStatus.ISSUING_BANK_PAID));
+                tx.output(LOC_CONTRACT_ID, billOfLading(BUYER.getParty(), "MV Jute"));
+                tx.command(Arrays.asList(ALL_PARTIES), new LetterOfCreditContract.Commands.Settle());
+                return tx.verifies();
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void settleMustConserveTheBillOfLadingDetails() {
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.input(LOC_CONTRACT_ID, letterOfCredit(LocStatus.SHIPPED));
+                tx.input(LOC_CONTRACT_ID, billOfLading(SELLER.getParty(), "MV Jute"));
+                tx.output(LOC_CONTRACT_ID, letterOfCredit(LocStatus.ISSUING_BANK_PAID));
+                tx.output(LOC_CONTRACT_ID, billOfLading(BUYER.getParty(), "MV Hessian"));
+                tx.command(Arrays.asList(ALL_PARTIES), new LetterOfCreditContract.Commands.Settle());
+                return tx.failsWith("BillOfLadingState details should be same in input & output.");
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void settleMustHandTheBillOfLadingToTheBuyer() {
+        ledger(ledgerServices, l -> {
+            l.transaction(tx -> {
+                tx.input(LOC_CONTRACT_ID, letterOfCredit(LocStatus.SHIPPED));
+                tx.input(LOC_CONTRACT_ID, billOfLading(SELLER.getParty(), "MV Jute"));
+                tx.output(LOC_CONTRACT_ID, letterOfCredit(LocStatus.ISSUING_BANK_PAID));
+                tx.output(LOC_CONTRACT_ID, billOfLading(ISSUING_BANK.getParty(), "MV Jute"));
+                tx.command(Arrays.asList(ALL_PARTIES), new LetterOfCreditContract.Commands.Settle());
+                return tx.failsWith("Buyer should be the owner in output BillOfLading in Settle.");
+            });
+            return null;
+        });
+    }
+
+    private static PurchaseOrderState purchaseOrder() {
+        return new PurchaseOrderState(
+                "PO-1",
+                SELLER.getParty(),
+                BUYER.getParty(),
+                "2020-07-01",
+                "Jute",
+                100L,
+                50L,
+                1000L
+        );
+    }
+
+    private static LetterOfCreditState letterOfCredit(LocStatus status) {
+        return new LetterOfCreditState(
+                "LOC-1",
+                "IRREVOCABLE",
+                "2021-07-01",
+                SELLER.getParty(),
+                BUYER.getParty(),
+                ADVISING_BANK.getParty(),
+                ISSUING_BANK.getParty(),
+                5000L,
+                "Chittagong Port",
+                "Chittagong",
+                "Bangladesh",
+                "Kowloon Port",
+                "Kowloon",
+                "Hong Kong",
+                "Jute",
+                100L,
+                50L,
+                1000L,
+                status,
+                "PO-1",
+                status.isShipped() ? "BOL-1" : null
+        );
+    }
+
+    private static BillOfLadingState billOfLading(Party owner, String carrierName) {
+        return billOfLading("BOL-1", owner, carrierName);
+    }
+
+    private static BillOfLadingState billOfLading(String billOfLadingId, Party owner, String carrierName) {
+        return new BillOfLadingState(
+                billOfLadingId,
+                owner,
+                SELLER.getParty(),
+                BUYER.getParty(),
+                ADVISING_BANK.getParty(),
+                ISSUING_BANK.getParty(),
+                "Chittagong Shipping Lines",
+                carrierName,
+                "2020-08-01",
+                "2020-08-15",
+                "Jute",
+                "Raw jute fibre",
+                100L,
+                50L,
+                1000L,
+                "Chittagong Port",
+                "Chittagong",
+                "Bangladesh",
+                "Kowloon Port",
+                "Kowloon",
+                "Hong Kong"
+        );
+    }
+}
@@ -4,14 +4,12 @@ import co.paralleluniverse.fibers.Suspendable;
 import com.example.contract.LetterOfCreditContract;
 import com.example.state.LetterOfCreditState;
 import com.example.state.PurchaseOrderState;
+import com.example.vault.StateLookup;
 import net.corda.core.contracts.Command;
 import net.corda.core.contracts.StateAndRef;
 import net.corda.core.contracts.UniqueIdentifier;
-import net.corda.core.crypto.SecureHash;
 import net.corda.core.flows.*;
 import net.corda.core.identity.Party;
-import net.corda.core.node.services.Vault;
-import net.corda.core.node.services.vault.QueryCriteria;
 import net.corda.core.transactions.SignedTransaction;
 import net.corda.core.transactions.TransactionBuilder;
 import net.corda.core.utilities.ProgressTracker;
@@ -27,7 +25,7 @@ import static net.corda.core.contracts.ContractsDSL.requireThat;
 public interface ApplyForLetterOfCreditFlow {
     @InitiatingFlow
     @StartableByRPC
-    class Initiator extends FlowLogic<SignedTransaction> {
+    class Initiator extends NotaryConflictRetryingFlow {
 
         private final ProgressTracker.Step GENERATING_TRANSACTION = new ProgressTracker.Step("Generating transaction.");
         private final ProgressTracker.Step VERIFYING_TRANSACTION = new ProgressTracker.Step("Verifying contract constraints.");
@@ -35,7 +33,7 @@ public interface ApplyForLetterOfCreditFlow {
         private final ProgressTracker.Step GATHERING_SIGNS = new ProgressTracker.Step("Gathering signatures.") {
             @Override
             public ProgressTracker childProgressTracker() {
-                return CollectSignaturesFlow.Companion.tracker();
+                return CollectSignaturesInParallelFlow.tracker();
             }
         };
         private final ProgressTracker.Step FINALISING_TRANSACTION = new ProgressTracker.Step("Obtaining notary signature and finalizing transaction.") {
@@ -86,8 +84,27 @@ public interface ApplyForLetterOfCreditFlow {
                          @NotNull String dischargePortAddress,
                          @NotNull String dischargePortCity,
                          @NotNull String dischargePortCountry) {
+            this(new UniqueIdentifier().toString(), purchaseOrderId, locType, locExpiryDate, advisingBank, issuingBank,
+                    locValue, loadingPortAddress, loadingPortCity, loadingPortCountry,
+                    dischargePortAddress, dischargePortCity, dischargePortCountry);
+        }
+
+        /** With the locId given by the caller, e.g. from a request's idempotency key. */
+        public Initiator(@NotNull String locId,
+                         @NotNull String purchaseOrderId,
+                         @NotNull String locType,
+                         @NotNull String locExpiryDate,
+                         @NotNull Party advisingBank,
+                         @NotNull Party issuingBank,
+                         @NotNull Long locValue,
+                         @NotNull String loadingPortAddress,
+                         @NotNull String loadingPortCity,
+                         @NotNull String loadingPortCountry,
+                         @NotNull String dischargePortAddress,
+                         @NotNull String dischargePortCity,
+                         @NotNull String dischargePortCountry) {
             this.purchaseOrderId = purchaseOrderId;
-            this.locId = new UniqueIdentifier().toString();
+            this.locId = locId;
             this.locType = locType;
             this.locExpiryDate = locExpiryDate;
             this.advisingBank = advisingBank;
@@ -105,18 +122,19 @@ public interface ApplyForLetterOfCreditFlow {
 
         @Suspendable
         @Override
-        public SignedTransaction call() throws FlowException {
-
-            // Taking first notary on network. (For Dev)
-            final Party notary = getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
+        protected SignedTransaction attempt() throws FlowException {
 
             // Stage-1: GENERATING_TRANSACTION
             progressTracker.setCurrentStep(GENERATING_TRANSACTION);
-            StateAndRef<PurchaseOrderState> inputPurchaseOrderRef = getPurchaseOrderStateAndRef(purchaseOrderId);
+            StateAndRef<PurchaseOrderState> inputPurchaseOrderRef =
+                    StateLookup.findUnconsumed(getServiceHub(), PurchaseOrderState.class, purchaseOrderId);
+            StateLookup.reserve(this, inputPurchaseOrderRef);
+            // The LOC stays with the notary of its purchase order.
+            final Party notary = inputPurchaseOrderRef.getState().getNotary();
             final PurchaseOrderState inputPurchaseOrder =  inputPurchaseOrderRef.getState().getData();
             if (!inputPurchaseOrderRef.getState().getData().getBuyer().equals(getOurIdentity()))
                 throw new FlowException("I (" + getOurIdentity() + ") must be the buyer in the referenced PurchaseOrderState.");
-            if (!isLOCIdUnique(locId))
+            if (!StateLookup.isBusinessIdUnique(getServiceHub(), LetterOfCreditState.class, locId))
                 throw new FlowException("locId:" + locId + " already exists.");
             final LetterOfCreditState letterOfCredit = new LetterOfCreditState(
                     locId,
@@ -139,12 +157,17 @@ public interface ApplyForLetterOfCreditFlow {
                     inputPurchaseOrder.getProductGrossWeightInKG(),
                     inputPurchaseOrder.getPurchaseOrderId()
             );
-            final List<Party> requiredSigners = Arrays.asList(
+            final List<Party> participants = Arrays.asList(
                     inputPurchaseOrder.getBuyer(),
                     inputPurchaseOrder.getSeller(),
                     issuingBank,
                     advisingBank
             );
+            // The seller co-owns the purchase order being consumed, so signs for it together with the buyer.
+            final List<Party> requiredSigners = Arrays.asList(
+                    inputPurchaseOrder.getBuyer(),
+                    inputPurchaseOrder.getSeller()
+            );
             Command<ApplyForLetterOfCredit> txCommand = new Command<>(
                     new ApplyForLetterOfCredit(),
                     requiredSigners.stream().map(Party::getOwningKey).collect(Collectors.toList())
@@ -164,14 +187,11 @@ public interface ApplyForLetterOfCreditFlow {
 
             // Stage-4: GATHERING_SIGNS
             progressTracker.setCurrentStep(GATHERING_SIGNS);
-            List<FlowSession> signerFlows = requiredSigners.stream()
-                    .filter(it -> !it.equals(getOurIdentity()))
-                    .map(this::initiateFlow)
-                    .collect(Collectors.toList());
+            List<FlowSession> participantFlows = SignerSessions.initiate(this, participants, requiredSigners);
             final SignedTransaction fullySignedTx = subFlow(
-                    new CollectSignaturesFlow(
+                    new CollectSignaturesInParallelFlow(
                             partlySignedTx,
-                            signerFlows,
+                            SignerSessions.signers(participantFlows, requiredSigners),
                             GATHERING_SIGNS.childProgressTracker()
                     )
             );
@@ -181,34 +201,11 @@ public interface ApplyForLetterOfCreditFlow {
             return subFlow(
                     new FinalityFlow(
                             fullySignedTx,
-                            signerFlows,
+                            participantFlows,
                             FINALISING_TRANSACTION.childProgressTracker()
                     )
             );
         }
-
-        boolean isLOCIdUnique(String locId) {
-            QueryCriteria.VaultQueryCriteria criteria =
-                    new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.ALL);
-            Vault.Page<LetterOfCreditState> results =
-                    getServiceHub().getVaultService().queryBy(LetterOfCreditState.class, criteria);
-            return results.getStates().stream().noneMatch(
-                    it -> it.getState().getData().getLocId().equals(locId)
-            );
-        }
-
-        StateAndRef<PurchaseOrderState> getPurchaseOrderStateAndRef(String purchaseOrderId) throws FlowException {
-            QueryCriteria.VaultQueryCriteria criteria =
-                    new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED);
-            Vault.Page<PurchaseOrderState> results =
-                    getServiceHub().getVaultService().queryBy(PurchaseOrderState.class, criteria);
-            List<StateAndRef<PurchaseOrderState>> purchaseOrders = results.getStates();
-            for (StateAndRef<PurchaseOrderState> order : purchaseOrders) {
-                if (order.getState().getData().getPurchaseOrderId().equals(purchaseOrderId))
-                    return order;
-            }
-            throw new FlowException("Unconsumed PurchaseOrderState with ID:" + purchaseOrderId + "not found!");
-        }
     }
 
     @InitiatedBy(ApplyForLetterOfCreditFlow.Initiator.class)
@@ -267,9 +264,7 @@ public interface ApplyForLetterOfCreditFlow {
             final SignTxFlow signTxFlow = new SignTxFlow(buyerSession,
                     SignTransactionFlow.Companion.tracker(),
                     getOurIdentity());
-            final SecureHash txId = subFlow(signTxFlow).getId();
-
-            return subFlow(new ReceiveFinalityFlow(buyerSession, txId));
+            return SignerSessions.respond(this, buyerSession, signTxFlow);
         }
     }
 }
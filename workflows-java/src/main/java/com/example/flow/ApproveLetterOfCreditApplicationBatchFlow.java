@@ -0,0 +1,342 @@
+package com.example.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.example.contract.LetterOfCreditContract;
+import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
+import com.example.vault.StateLookup;
+import net.corda.core.contracts.Command;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.flows.*;
+import net.corda.core.identity.Party;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.serialization.CordaSerializable;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.ProgressTracker;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.example.contract.LetterOfCreditContract.Commands.ApproveLetterOfCreditApplication;
+import static net.corda.core.contracts.ContractsDSL.requireThat;
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_NUM;
+
+/**
+ * Approves or rejects many letter of credit applications at once, for the issuing bank. The applications are
+ * grouped by their buyer, seller, advising bank and notary, and each group is decided in a single transaction
+ * signed by its parties once, instead of one transaction per application. See ApproveLetterOfCreditApplicationFlow
+ * for a single one.
+ *
+ * The groups are decided one after the other, and one failing doesn't undo or stop the others, so the flow returns
+ * what became of each application rather than failing as a whole. Only the checks on the whole batch, made before
+ * any group is decided, fail the flow.
+ */
+public interface ApproveLetterOfCreditApplicationBatchFlow {
+    // Keeps each transaction well within the network's maximum transaction size.
+    int MAX_BATCH_SIZE = 1000;
+
+    /** What became of a batch: the transactions of the groups decided, and why the others could not be. */
+    @CordaSerializable
+    class Outcome {
+        @NotNull private final List<SignedTransaction> transactions;
+        // locId -> why its group could not be decided
+        @NotNull private final Map<String, String> failures;
+
+        public Outcome(@NotNull List<SignedTransaction> transactions, @NotNull Map<String, String> failures) {
+            this.transactions = transactions;
+            this.failures = failures;
+        }
+
+        @NotNull public List<SignedTransaction> getTransactions() { return transactions; }
+        @NotNull public Map<String, String> getFailures() { return failures; }
+    }
+
+    @StartableByRPC
+    class Initiator extends FlowLogic<Outcome> {
+
+        private final ProgressTracker.Step LOADING_APPLICATIONS = new ProgressTracker.Step("Loading and grouping the applications.");
+        private final ProgressTracker.Step DECIDING_GROUPS = new ProgressTracker.Step("Deciding each group of applications in its own transaction.");
+
+        @NotNull
+        private final ProgressTracker progressTracker = new ProgressTracker(
+                LOADING_APPLICATIONS,
+                DECIDING_GROUPS
+        );
+
+        @NotNull
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        // locId -> ISSUED/REJECTED
+        @NotNull private final Map<String, LocStatus> locStatuses;
+
+        public Initiator(@NotNull Map<String, LocStatus> locStatuses) {
+            this.locStatuses = locStatuses;
+        }
+
+        @Suspendable
+        @Override
+        public Outcome call() throws FlowException {
+            // Stage-1: LOADING_APPLICATIONS
+            progressTracker.setCurrentStep(LOADING_APPLICATIONS);
+            if (locStatuses.isEmpty() || locStatuses.size() > MAX_BATCH_SIZE)
+                throw new FlowException("A batch must have between 1 and " + MAX_BATCH_SIZE + " applications. Found " + locStatuses.size() + ".");
+            for (Map.Entry<String, LocStatus> entry : locStatuses.entrySet()) {
+                if (!LocStatus.APPLIED.canMoveTo(entry.getValue()))
+                    throw new FlowException("Proposed LOC Status must be ISSUED/REJECTED. Found " + entry.getValue() + " for locId:" + entry.getKey() + ".");
+            }
+
+            // All the applications are loaded with one query rather than one each.
+            final List<StateAndRef<LetterOfCreditState>> applications = getServiceHub().getVaultService().queryBy(
+                    LetterOfCreditState.class,
+                    StateLookup.byBusinessIds(locStatuses.keySet(), Vault.StateStatus.UNCONSUMED),
+                    new PageSpecification(DEFAULT_PAGE_NUM, locStatuses.size())
+            ).getStates();
+            if (applications.size() != locStatuses.size()) {
+                final List<String> found = applications.stream()
+                        .map(it -> it.getState().getData().getLocId())
+                        .collect(Collectors.toList());
+                final List<String> missing = locStatuses.keySet().stream()
+                        .filter(it -> !found.contains(it))
+                        .collect(Collectors.toList());
+                throw new FlowException("Unconsumed LetterOfCreditState with ID:" + missing + " not found!");
+            }
+            StateLookup.reserve(this, applications);
+
+            final Map<List<Party>, List<StateAndRef<LetterOfCreditState>>> groups = new LinkedHashMap<>();
+            for (StateAndRef<LetterOfCreditState> application : applications) {
+                final LetterOfCreditState letterOfCredit = application.getState().getData();
+                if (!letterOfCredit.getIssuingBank().equals(getOurIdentity()))
+                    throw new FlowException("I (" + getOurIdentity() + ") must be the issuing bank in LOC " + letterOfCredit.getLocId() + ".");
+                if (letterOfCredit.getLocStatus() != LocStatus.APPLIED)
+                    throw new FlowException("Invalid locStatus:" + letterOfCredit.getLocStatus() + " found for locId:" + letterOfCredit.getLocId() + ". Required locStatus: APPLIED");
+                // Applications with different notaries can't be decided in one transaction.
+                final List<Party> counterparties = Arrays.asList(
+                        letterOfCredit.getBuyer(),
+                        letterOfCredit.getSeller(),
+                        letterOfCredit.getAdvisingBank(),
+                        application.getState().getNotary()
+                );
+                groups.computeIfAbsent(counterparties, it -> new ArrayList<>()).add(application);
+            }
+
+            // Stage-2: DECIDING_GROUPS
+            progressTracker.setCurrentStep(DECIDING_GROUPS);
+            final List<SignedTransaction> transactions = new ArrayList<>();
+            final Map<String, String> failures = new LinkedHashMap<>();
+            for (List<StateAndRef<LetterOfCreditState>> group : groups.values()) {
+                try {
+                    transactions.add(subFlow(new GroupInitiator(group, locStatuses)));
+                } catch (FlowException | UnexpectedFlowEndException e) {
+                    final SignedTransaction decided = decidedBy(group);
+                    if (decided != null) {
+                        getLogger().warn("Group decided in " + decided.getId() + " but not finalised with every party. " + e.getMessage());
+                        transactions.add(decided);
+                    } else {
+                        group.forEach(it -> failures.put(it.getState().getData().getLocId(), e.getMessage()));
+                    }
+                }
+            }
+            return new Outcome(transactions, failures);
+        }
+
+        // FinalityFlow records the transaction before sending it to the other parties, so a group can fail after
+        // being decided. Its applications then have a new version, from the transaction that decided them.
+        @Nullable
+        private SignedTransaction decidedBy(@NotNull List<StateAndRef<LetterOfCreditState>> group) {
+            final List<StateRef> applied = group.stream().map(it -> it.getRef()).collect(Collectors.toList());
+            final List<StateAndRef<LetterOfCreditState>> current = getServiceHub().getVaultService().queryBy(
+                    LetterOfCreditState.class,
+                    StateLookup.byBusinessIds(
+                            group.stream().map(it -> it.getState().getData().getLocId()).collect(Collectors.toList()),
+                            Vault.StateStatus.UNCONSUMED),
+                    new PageSpecification(DEFAULT_PAGE_NUM, group.size())
+            ).getStates();
+            if (current.size() != group.size() || current.stream().anyMatch(it -> applied.contains(it.getRef())))
+                return null;
+            return getServiceHub().getValidatedTransactions().getTransaction(current.get(0).getRef().getTxhash());
+        }
+    }
+
+    /** Decides the applications of one group, which all have the same parties and notary, in one transaction. */
+    @InitiatingFlow
+    class GroupInitiator extends FlowLogic<SignedTransaction> {
+
+        // Static, unlike the steps of the other flows: this flow's tracker becomes a child of the Initiator's, and
+        // steps referring to the GroupInitiator they belong to make the Initiator's checkpoint unrestorable.
+        private static final ProgressTracker.Step GENERATING_TRANSACTION = new ProgressTracker.Step("Generating transaction.");
+        private static final ProgressTracker.Step VERIFYING_TRANSACTION = new ProgressTracker.Step("Verifying contract constraints.");
+        private static final ProgressTracker.Step SIGNING_TRANSACTION = new ProgressTracker.Step("Signing transaction with our private key.");
+        private static final ProgressTracker.Step GATHERING_SIGNS = new ProgressTracker.Step("Gathering signatures.") {
+            @Override
+            public ProgressTracker childProgressTracker() {
+                return CollectSignaturesInParallelFlow.tracker();
+            }
+        };
+        private static final ProgressTracker.Step FINALISING_TRANSACTION = new ProgressTracker.Step("Obtaining notary signature and finalizing transaction.") {
+            @Override
+            public ProgressTracker childProgressTracker() {
+                return FinalityFlow.Companion.tracker();
+            }
+        };
+
+        @NotNull
+        private final ProgressTracker progressTracker = new ProgressTracker(
+                GENERATING_TRANSACTION,
+                VERIFYING_TRANSACTION,
+                SIGNING_TRANSACTION,
+                GATHERING_SIGNS,
+                FINALISING_TRANSACTION
+        );
+
+        @NotNull
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @NotNull private final List<StateAndRef<LetterOfCreditState>> applications;
+        @NotNull private final Map<String, LocStatus> locStatuses;
+
+        public GroupInitiator(
+                @NotNull List<StateAndRef<LetterOfCreditState>> applications,
+                @NotNull Map<String, LocStatus> locStatuses) {
+            this.applications = applications;
+            this.locStatuses = locStatuses;
+        }
+
+        @Suspendable
+        @Override
+        public SignedTransaction call() throws FlowException {
+            // The applications of a group share their notary, which they stay with.
+            final Party notary = applications.get(0).getState().getNotary();
+
+            // Stage-1: GENERATING_TRANSACTION
+            progressTracker.setCurrentStep(GENERATING_TRANSACTION);
+            final LetterOfCreditState first = applications.get(0).getState().getData();
+            final List<Party> participants = Arrays.asList(
+                    first.getBuyer(),
+                    first.getSeller(),
+                    first.getIssuingBank(),
+                    first.getAdvisingBank()
+            );
+            final List<Party> requiredSigners = Arrays.asList(
+                    first.getIssuingBank()
+            );
+            Command<ApproveLetterOfCreditApplication> txCommand = new Command<>(
+                    new ApproveLetterOfCreditApplication(),
+                    requiredSigners.stream().map(Party::getOwningKey).collect(Collectors.toList())
+            );
+            final TransactionBuilder txBuilder = new TransactionBuilder(notary).addCommand(txCommand);
+            for (StateAndRef<LetterOfCreditState> application : applications) {
+                final LetterOfCreditState inputLetterOfCredit = application.getState().getData();
+                txBuilder.addInputState(application);
+                txBuilder.addOutputState(
+                        LetterOfCreditState.locWithUpdatedStatus(
+                                inputLetterOfCredit,
+                                locStatuses.get(inputLetterOfCredit.getLocId())
+                        ),
+                        LetterOfCreditContract.LOC_CONTRACT_ID
+                );
+            }
+
+            // Stage-2: VERIFYING_TRANSACTION
+            progressTracker.setCurrentStep(VERIFYING_TRANSACTION);
+            txBuilder.verify(getServiceHub());
+
+            // Stage-3: SIGNING_TRANSACTION
+            progressTracker.setCurrentStep(SIGNING_TRANSACTION);
+            final SignedTransaction partlySignedTx = getServiceHub().signInitialTransaction(txBuilder);
+
+            // Stage-4: GATHERING_SIGNS
+            progressTracker.setCurrentStep(GATHERING_SIGNS);
+            List<FlowSession> participantFlows = SignerSessions.initiate(this, participants, requiredSigners);
+            final SignedTransaction fullySignedTx = subFlow(
+                    new CollectSignaturesInParallelFlow(
+                            partlySignedTx,
+                            SignerSessions.signers(participantFlows, requiredSigners),
+                            GATHERING_SIGNS.childProgressTracker()
+                    )
+            );
+
+            // Stage-5: FINALISING_TRANSACTION
+            progressTracker.setCurrentStep(FINALISING_TRANSACTION);
+            return subFlow(
+                    new FinalityFlow(
+                            fullySignedTx,
+                            participantFlows,
+                            FINALISING_TRANSACTION.childProgressTracker()
+                    )
+            );
+        }
+    }
+
+    @InitiatedBy(ApproveLetterOfCreditApplicationBatchFlow.GroupInitiator.class)
+    class Responder extends FlowLogic<SignedTransaction> {
+
+        private final FlowSession issuingBankSession;
+
+        public Responder(FlowSession issuingBankSession) { this.issuingBankSession = issuingBankSession; }
+
+        @Suspendable
+        @Override
+        public SignedTransaction call() throws FlowException {
+            class SignTxFlow extends SignTransactionFlow {
+                private final Party ourId;
+                private SignTxFlow(
+                        FlowSession otherPartyFlow,
+                        ProgressTracker progressTracker,
+                        Party ourId
+                ) {
+                    super(otherPartyFlow, progressTracker);
+                    this.ourId = ourId;
+                }
+
+                @Override
+                protected void checkTransaction(@NotNull SignedTransaction stx) {
+                    requireThat(requirements -> {
+                        final List<LetterOfCreditState> letterOfCreditStates =
+                                stx.getTx().outputsOfType(LetterOfCreditState.class);
+
+                        requirements.using(
+                                "There must be between 1 and " + MAX_BATCH_SIZE + " LetterOfCreditStates in output.",
+                                !letterOfCreditStates.isEmpty() && letterOfCreditStates.size() <= MAX_BATCH_SIZE
+                        );
+
+                        for (LetterOfCreditState proposedLetterOfCreditState : letterOfCreditStates) {
+                            requirements.using(
+                                    "LetterOfCreditStatus must be APPROVED/REJECTED in output LetterOfCreditState.",
+                                    proposedLetterOfCreditState.getLocStatus() == LocStatus.ISSUED ||
+                                            proposedLetterOfCreditState.getLocStatus() == LocStatus.REJECTED
+                            );
+
+                            requirements.using(
+                                    "I (" + getOurIdentity() + ") must be relevant.",
+                                    proposedLetterOfCreditState.getSeller().equals(ourId) ||
+                                            proposedLetterOfCreditState.getAdvisingBank().equals(ourId) ||
+                                            proposedLetterOfCreditState.getBuyer().equals(ourId)
+                            );
+                        }
+
+                        return null;
+                    });
+                }
+            }
+            final SignTxFlow signTxFlow = new SignTxFlow(issuingBankSession,
+                    SignTransactionFlow.Companion.tracker(),
+                    getOurIdentity());
+            return SignerSessions.respond(this, issuingBankSession, signTxFlow);
+        }
+    }
+}
@@ -3,13 +3,12 @@ package com.example.flow;
 import co.paralleluniverse.fibers.Suspendable;
 import com.example.contract.LetterOfCreditContract;
 import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
+import com.example.vault.StateLookup;
 import net.corda.core.contracts.Command;
 import net.corda.core.contracts.StateAndRef;
-import net.corda.core.crypto.SecureHash;
 import net.corda.core.flows.*;
 import net.corda.core.identity.Party;
-import net.corda.core.node.services.Vault;
-import net.corda.core.node.services.vault.QueryCriteria;
 import net.corda.core.transactions.SignedTransaction;
 import net.corda.core.transactions.TransactionBuilder;
 import net.corda.core.utilities.ProgressTracker;
@@ -25,7 +24,7 @@ import static net.corda.core.contracts.ContractsDSL.requireThat;
 public interface ApproveLetterOfCreditApplicationFlow {
     @InitiatingFlow
     @StartableByRPC
-    class Initiator extends FlowLogic<SignedTransaction> {
+    class Initiator extends NotaryConflictRetryingFlow {
 
         private final ProgressTracker.Step GENERATING_TRANSACTION = new ProgressTracker.Step("Generating transaction.");
         private final ProgressTracker.Step VERIFYING_TRANSACTION = new ProgressTracker.Step("Verifying contract constraints.");
@@ -33,7 +32,7 @@ public interface ApproveLetterOfCreditApplicationFlow {
         private final ProgressTracker.Step GATHERING_SIGNS = new ProgressTracker.Step("Gathering signatures.") {
             @Override
             public ProgressTracker childProgressTracker() {
-                return CollectSignaturesFlow.Companion.tracker();
+                return CollectSignaturesInParallelFlow.tracker();
             }
         };
         private final ProgressTracker.Step FINALISING_TRANSACTION = new ProgressTracker.Step("Obtaining notary signature and finalizing transaction.") {
@@ -60,40 +59,44 @@ public interface ApproveLetterOfCreditApplicationFlow {
         }
 
         @NotNull private final String locId;
-        @NotNull private final String locStatus;
+        @NotNull private final LocStatus locStatus;
 
-        public Initiator(@NotNull String locId, @NotNull String locStatus) {
+        public Initiator(@NotNull String locId, @NotNull LocStatus locStatus) {
             this.locId = locId;
             this.locStatus = locStatus;
         }
 
         @Suspendable
         @Override
-        public SignedTransaction call() throws FlowException {
-
-            // Taking first notary on network. (For Dev)
-            final Party notary = getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
+        protected SignedTransaction attempt() throws FlowException {
 
             // Stage-1: GENERATING_TRANSACTION
             progressTracker.setCurrentStep(GENERATING_TRANSACTION);
-            StateAndRef<LetterOfCreditState> inputLetterOfCreditRef = getLetterOfCreditStateAndRef(locId);
+            StateAndRef<LetterOfCreditState> inputLetterOfCreditRef =
+                    StateLookup.findUnconsumed(getServiceHub(), LetterOfCreditState.class, locId);
+            StateLookup.reserve(this, inputLetterOfCreditRef);
+            // Every step of the lifecycle stays with the notary the LOC was created with.
+            final Party notary = inputLetterOfCreditRef.getState().getNotary();
             final LetterOfCreditState inputLetterOfCredit =  inputLetterOfCreditRef.getState().getData();
             if (!inputLetterOfCreditRef.getState().getData().getIssuingBank().equals(getOurIdentity()))
                 throw new FlowException("I (" + getOurIdentity() + ") must be the issuing bank in the referenced proposed LOC.");
-            if (!inputLetterOfCredit.getLocStatus().equals("APPLIED"))
+            if (inputLetterOfCredit.getLocStatus() != LocStatus.APPLIED)
                 throw new FlowException("Invalid locStatus:" + inputLetterOfCredit.getLocStatus() + " found. Required locStatus: APPLIED");
-            if (!(locStatus.equals("ISSUED") || locStatus.equals("REJECTED")))
+            if (!LocStatus.APPLIED.canMoveTo(locStatus))
                 throw new FlowException("Proposed LOC Status must be ISSUED/REJECTED. Found " + locStatus + ".");
             final LetterOfCreditState letterOfCredit = LetterOfCreditState.locWithUpdatedStatus(
                     inputLetterOfCredit,
                     locStatus
             );
-            final List<Party> requiredSigners = Arrays.asList(
+            final List<Party> participants = Arrays.asList(
                     inputLetterOfCredit.getBuyer(),
                     inputLetterOfCredit.getSeller(),
                     inputLetterOfCredit.getIssuingBank(),
                     inputLetterOfCredit.getAdvisingBank()
             );
+            final List<Party> requiredSigners = Arrays.asList(
+                    inputLetterOfCredit.getIssuingBank()
+            );
             Command<ApproveLetterOfCreditApplication> txCommand = new Command<>(
                     new ApproveLetterOfCreditApplication(),
                     requiredSigners.stream().map(Party::getOwningKey).collect(Collectors.toList())
@@ -113,14 +116,11 @@ public interface ApproveLetterOfCreditApplicationFlow {
 
             // Stage-4: GATHERING_SIGNS
             progressTracker.setCurrentStep(GATHERING_SIGNS);
-            List<FlowSession> signerFlows = requiredSigners.stream()
-                    .filter(it -> !it.equals(getOurIdentity()))
-                    .map(this::initiateFlow)
-                    .collect(Collectors.toList());
+            List<FlowSession> participantFlows = SignerSessions.initiate(this, participants, requiredSigners);
             final SignedTransaction fullySignedTx = subFlow(
-                    new CollectSignaturesFlow(
+                    new CollectSignaturesInParallelFlow(
                             partlySignedTx,
-                            signerFlows,
+                            SignerSessions.signers(participantFlows, requiredSigners),
                             GATHERING_SIGNS.childProgressTracker()
                     )
             );
@@ -130,24 +130,11 @@ public interface ApproveLetterOfCreditApplicationFlow {
             return subFlow(
                     new FinalityFlow(
                             fullySignedTx,
-                            signerFlows,
+                            participantFlows,
                             FINALISING_TRANSACTION.childProgressTracker()
                     )
             );
         }
-
-        StateAndRef<LetterOfCreditState> getLetterOfCreditStateAndRef(String locId) throws FlowException {
-            QueryCriteria.VaultQueryCriteria criteria =
-                    new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED);
-            Vault.Page<LetterOfCreditState> results =
-                    getServiceHub().getVaultService().queryBy(LetterOfCreditState.class, criteria);
-            List<StateAndRef<LetterOfCreditState>> purchaseOrders = results.getStates();
-            for (StateAndRef<LetterOfCreditState> loc : purchaseOrders) {
-                if (loc.getState().getData().getLocId().equals(locId))
-                    return loc;
-            }
-            throw new FlowException("Unconsumed LetterOfCreditState with ID:" + locId + "not found!");
-        }
     }
 
     @InitiatedBy(ApproveLetterOfCreditApplicationFlow.Initiator.class)
@@ -186,8 +173,8 @@ public interface ApproveLetterOfCreditApplicationFlow {
 
                         requirements.using(
                                 "LetterOfCreditStatus must be APPROVED/REJECTED in output LetterOfCreditState.",
-                                proposedLetterOfCreditState.getLocStatus().equals("ISSUED") ||
-                                        proposedLetterOfCreditState.getLocStatus().equals("REJECTED")
+                                proposedLetterOfCreditState.getLocStatus() == LocStatus.ISSUED ||
+                                        proposedLetterOfCreditState.getLocStatus() == LocStatus.REJECTED
                         );
 
 
@@ -206,9 +193,7 @@ public interface ApproveLetterOfCreditApplicationFlow {
             final SignTxFlow signTxFlow = new SignTxFlow(issuingBankSession,
                     SignTransactionFlow.Companion.tracker(),
                     getOurIdentity());
-            final SecureHash txId = subFlow(signTxFlow).getId();
-
-            return subFlow(new ReceiveFinalityFlow(issuingBankSession, txId));
+            return SignerSessions.respond(this, issuingBankSession, signTxFlow);
         }
     }
 }
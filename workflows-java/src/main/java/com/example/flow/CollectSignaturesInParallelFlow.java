@@ -0,0 +1,130 @@
+package com.example.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import net.corda.core.crypto.TransactionSignature;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.FlowSession;
+import net.corda.core.flows.SendTransactionFlow;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.utilities.ProgressTracker;
+import org.jetbrains.annotations.NotNull;
+
+import java.security.PublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A drop-in replacement for CollectSignaturesFlow which asks all the counterparties for their signatures before
+ * waiting for any of them. CollectSignaturesFlow sends the transaction to one counterparty and waits for its
+ * signature before moving on to the next, so gathering signatures takes as long as all the counterparties together.
+ * Here they check and sign the transaction at the same time, and it takes as long as the slowest of them.
+ *
+ * The counterparties respond with SignTransactionFlow, as they do to CollectSignaturesFlow.
+ *
+ * How long each counterparty took to sign, from the transaction being sent to it to its signature being received,
+ * is logged and available from {@link #getSigningTimes()}. Signatures are received in the order the transaction was
+ * sent, so a counterparty's time includes any wait for the counterparties before it.
+ */
+public class CollectSignaturesInParallelFlow extends FlowLogic<SignedTransaction> {
+
+    private static final ProgressTracker.Step SENDING = new ProgressTracker.Step("Sending the transaction to the counterparties.");
+    private static final ProgressTracker.Step RECEIVING = new ProgressTracker.Step("Receiving the counterparties' signatures.");
+    private static final ProgressTracker.Step VERIFYING = new ProgressTracker.Step("Verifying the collected signatures.");
+
+    @NotNull
+    public static ProgressTracker tracker() {
+        return new ProgressTracker(SENDING, RECEIVING, VERIFYING);
+    }
+
+    @NotNull private final SignedTransaction partlySignedTx;
+    @NotNull private final List<FlowSession> sessions;
+    @NotNull private final ProgressTracker progressTracker;
+    @NotNull private final Map<Party, Duration> signingTimes = new LinkedHashMap<>();
+
+    public CollectSignaturesInParallelFlow(
+            @NotNull SignedTransaction partlySignedTx,
+            @NotNull List<FlowSession> sessions,
+            @NotNull ProgressTracker progressTracker) {
+        this.partlySignedTx = partlySignedTx;
+        this.sessions = sessions;
+        this.progressTracker = progressTracker;
+    }
+
+    public CollectSignaturesInParallelFlow(@NotNull SignedTransaction partlySignedTx, @NotNull List<FlowSession> sessions) {
+        this(partlySignedTx, sessions, tracker());
+    }
+
+    @NotNull
+    @Override
+    public ProgressTracker getProgressTracker() {
+        return progressTracker;
+    }
+
+    /** How long each counterparty took to sign, in the order they were asked. */
+    @NotNull
+    public Map<Party, Duration> getSigningTimes() {
+        return Collections.unmodifiableMap(signingTimes);
+    }
+
+    @Suspendable
+    @Override
+    public SignedTransaction call() throws FlowException {
+        final Party notary = partlySignedTx.getTx().getNotary();
+        final Set<PublicKey> signed = partlySignedTx.getSigs().stream()
+                .map(TransactionSignature::getBy)
+                .collect(Collectors.toSet());
+        final Set<PublicKey> unsigned = partlySignedTx.getTx().getRequiredSigningKeys().stream()
+                .filter(it -> !signed.contains(it))
+                .filter(it -> notary == null || !it.equals(notary.getOwningKey()))
+                .collect(Collectors.toSet());
+
+        // Stage-1: SENDING
+        // Once a counterparty has the transaction and the keys to sign with, it checks and signs it without
+        // waiting for us, so all of them are busy while we send to the next.
+        progressTracker.setCurrentStep(SENDING);
+        final Map<FlowSession, Instant> sentAt = new LinkedHashMap<>();
+        for (FlowSession session : sessions) {
+            final PublicKey key = session.getCounterparty().getOwningKey();
+            if (!unsigned.contains(key))
+                throw new FlowException(session.getCounterparty() + " is not a required signer of transaction " + partlySignedTx.getId() + ".");
+            sentAt.put(session, getServiceHub().getClock().instant());
+            subFlow(new SendTransactionFlow(session, partlySignedTx));
+            session.send(Collections.singletonList(key));
+        }
+
+        // Stage-2: RECEIVING
+        progressTracker.setCurrentStep(RECEIVING);
+        SignedTransaction signedTx = partlySignedTx;
+        for (Map.Entry<FlowSession, Instant> entry : sentAt.entrySet()) {
+            final FlowSession session = entry.getKey();
+            final List<?> signatures = session.receive(List.class).unwrap(it -> it);
+            final Duration signingTime = Duration.between(entry.getValue(), getServiceHub().getClock().instant());
+            signingTimes.put(session.getCounterparty(), signingTime);
+            getLogger().info("Signature from " + session.getCounterparty() + " received in " + signingTime.toMillis() + " ms.");
+            for (Object signature : signatures) {
+                if (!(signature instanceof TransactionSignature)
+                        || !((TransactionSignature) signature).getBy().equals(session.getCounterparty().getOwningKey()))
+                    throw new FlowException(session.getCounterparty() + " returned a signature with a key it was not asked for.");
+                signedTx = signedTx.withAdditionalSignature((TransactionSignature) signature);
+            }
+        }
+
+        // Stage-3: VERIFYING
+        progressTracker.setCurrentStep(VERIFYING);
+        try {
+            if (notary == null) signedTx.verifyRequiredSignatures();
+            else signedTx.verifySignaturesExcept(notary.getOwningKey());
+        } catch (Exception e) {
+            throw new FlowException("The collected signatures of transaction " + signedTx.getId() + " are not valid.", e);
+        }
+        return signedTx;
+    }
+}
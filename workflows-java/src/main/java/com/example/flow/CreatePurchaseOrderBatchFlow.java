@@ -0,0 +1,246 @@
+package com.example.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.example.contract.LetterOfCreditContract;
+import com.example.state.PurchaseOrderState;
+import com.example.vault.StateLookup;
+import net.corda.core.contracts.Command;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.flows.*;
+import net.corda.core.identity.Party;
+import net.corda.core.serialization.CordaSerializable;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.ProgressTracker;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.example.contract.LetterOfCreditContract.Commands.CreatePurchaseOrder;
+import static net.corda.core.contracts.ContractsDSL.requireThat;
+
+/**
+ * Creates many purchase orders for the same buyer in a single transaction, so they cost one round of
+ * signatures and one notarisation between them instead of one each. See CreatePurchaseOrderFlow for a single one.
+ */
+public interface CreatePurchaseOrderBatchFlow {
+    // Keeps a batch well within the network's maximum transaction size. Larger uploads are split by the caller.
+    int MAX_BATCH_SIZE = 1000;
+
+    /** The details of one purchase order of a batch. */
+    @CordaSerializable
+    class Item {
+        @NotNull private final String purchaseOrderIssueDate;
+        @NotNull private final String productName;
+        @NotNull private final Long productQuantity;
+        @NotNull private final Long productPriceInUSD;
+        @NotNull private final Long productGrossWeightInKG;
+
+        public Item(
+                @NotNull String purchaseOrderIssueDate,
+                @NotNull String productName,
+                @NotNull Long productQuantity,
+                @NotNull Long productPriceInUSD,
+                @NotNull Long productGrossWeightInKG) {
+            this.purchaseOrderIssueDate = purchaseOrderIssueDate;
+            this.productName = productName;
+            this.productQuantity = productQuantity;
+            this.productPriceInUSD = productPriceInUSD;
+            this.productGrossWeightInKG = productGrossWeightInKG;
+        }
+
+        @NotNull public String getPurchaseOrderIssueDate() { return purchaseOrderIssueDate; }
+        @NotNull public String getProductName() { return productName; }
+        @NotNull public Long getProductQuantity() { return productQuantity; }
+        @NotNull public Long getProductPriceInUSD() { return productPriceInUSD; }
+        @NotNull public Long getProductGrossWeightInKG() { return productGrossWeightInKG; }
+    }
+
+    @InitiatingFlow
+    @StartableByRPC
+    class Initiator extends FlowLogic<SignedTransaction> {
+
+        private final ProgressTracker.Step GENERATING_TRANSACTION = new ProgressTracker.Step("Generating transaction.");
+        private final ProgressTracker.Step VERIFYING_TRANSACTION = new ProgressTracker.Step("Verifying contract constraints.");
+        private final ProgressTracker.Step SIGNING_TRANSACTION = new ProgressTracker.Step("Signing transaction with our private key.");
+        private final ProgressTracker.Step GATHERING_SIGNS = new ProgressTracker.Step("Gathering signatures.") {
+            @Override
+            public ProgressTracker childProgressTracker() {
+                return CollectSignaturesInParallelFlow.tracker();
+            }
+        };
+        private final ProgressTracker.Step FINALISING_TRANSACTION = new ProgressTracker.Step("Obtaining notary signature and finalizing transaction.") {
+            @Override
+            public ProgressTracker childProgressTracker() {
+                return FinalityFlow.Companion.tracker();
+            }
+        };
+
+        @NotNull private final ProgressTracker progressTracker = new ProgressTracker(
+                GENERATING_TRANSACTION,
+                VERIFYING_TRANSACTION,
+                SIGNING_TRANSACTION,
+                GATHERING_SIGNS,
+                FINALISING_TRANSACTION
+        );
+
+        @NotNull
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @NotNull private final Party buyer;
+        @NotNull private final List<Item> items;
+        @NotNull private final List<String> purchaseOrderIds;
+
+        public Initiator(@NotNull Party buyer, @NotNull List<Item> items) {
+            this(
+                    items.stream().map(it -> new UniqueIdentifier().toString()).collect(Collectors.toList()),
+                    buyer,
+                    items
+            );
+        }
+
+        /** With a purchaseOrderId per item given by the caller, as for CreatePurchaseOrderFlow. */
+        public Initiator(@NotNull List<String> purchaseOrderIds, @NotNull Party buyer, @NotNull List<Item> items) {
+            this.buyer = buyer;
+            this.items = items;
+            this.purchaseOrderIds = purchaseOrderIds;
+        }
+
+        @Suspendable
+        @Override
+        public SignedTransaction call() throws FlowException {
+            final Party seller = getOurIdentity();
+
+            // Stage-1: GENERATING_TRANSACTION
+            progressTracker.setCurrentStep(GENERATING_TRANSACTION);
+            if (items.isEmpty() || items.size() > MAX_BATCH_SIZE)
+                throw new FlowException("A batch must have between 1 and " + MAX_BATCH_SIZE + " purchase orders. Found " + items.size() + ".");
+            if (purchaseOrderIds.size() != items.size() || purchaseOrderIds.stream().distinct().count() != items.size())
+                throw new FlowException("A batch must have a distinct purchaseOrderId per purchase order.");
+            if (!StateLookup.areBusinessIdsUnique(getServiceHub(), PurchaseOrderState.class, purchaseOrderIds))
+                throw new FlowException("A purchaseOrderId of the batch already exists.");
+            // Chosen per the CorDapp config, by the first purchase order. (See NotarySelector)
+            final Party notary = NotarySelector.forNewState(this, purchaseOrderIds.get(0));
+            final List<Party> requiredSigners = Arrays.asList(
+                    seller,
+                    buyer
+            );
+            Command<CreatePurchaseOrder> txCommand = new Command<>(
+                    new CreatePurchaseOrder(),
+                    requiredSigners.stream().map(Party::getOwningKey).collect(Collectors.toList())
+            );
+            final TransactionBuilder txBuilder = new TransactionBuilder(notary).addCommand(txCommand);
+            for (int i = 0; i < items.size(); i++) {
+                final Item item = items.get(i);
+                txBuilder.addOutputState(new PurchaseOrderState(
+                        purchaseOrderIds.get(i),
+                        seller,
+                        buyer,
+                        item.getPurchaseOrderIssueDate(),
+                        item.getProductName(),
+                        item.getProductQuantity(),
+                        item.getProductPriceInUSD(),
+                        item.getProductGrossWeightInKG()
+                ), LetterOfCreditContract.LOC_CONTRACT_ID);
+            }
+
+            // Stage-2: VERIFYING_TRANSACTION
+            progressTracker.setCurrentStep(VERIFYING_TRANSACTION);
+            txBuilder.verify(getServiceHub());
+
+            // Stage-3: SIGNING_TRANSACTION
+            progressTracker.setCurrentStep(SIGNING_TRANSACTION);
+            final SignedTransaction partlySignedTx = getServiceHub().signInitialTransaction(txBuilder);
+
+            // Stage-4: GATHERING_SIGNS
+            progressTracker.setCurrentStep(GATHERING_SIGNS);
+            List<FlowSession> signerFlows = requiredSigners.stream()
+                    .filter(it -> !it.equals(getOurIdentity()))
+                    .map(this::initiateFlow)
+                    .collect(Collectors.toList());
+            final SignedTransaction fullySignedTx = subFlow(
+                    new CollectSignaturesInParallelFlow(
+                            partlySignedTx,
+                            signerFlows,
+                            GATHERING_SIGNS.childProgressTracker()
+                    )
+            );
+
+            // Stage-5: FINALISING_TRANSACTION
+            progressTracker.setCurrentStep(FINALISING_TRANSACTION);
+            final Instant finalisingFrom = getServiceHub().getClock().instant();
+            final SignedTransaction notarisedTx = subFlow(
+                    new FinalityFlow(
+                            fullySignedTx,
+                            signerFlows,
+                            FINALISING_TRANSACTION.childProgressTracker()
+                    )
+            );
+            NotarySelector.recordLatency(this, notary, Duration.between(finalisingFrom, getServiceHub().getClock().instant()));
+            return notarisedTx;
+        }
+    }
+
+    @InitiatedBy(CreatePurchaseOrderBatchFlow.Initiator.class)
+    class Responder extends FlowLogic<SignedTransaction> {
+
+        private final FlowSession sellerSession;
+
+        public Responder(FlowSession sellerSession) { this.sellerSession = sellerSession; }
+
+        @Suspendable
+        @Override
+        public SignedTransaction call() throws FlowException {
+            class SignTxFlow extends SignTransactionFlow {
+                private SignTxFlow(FlowSession otherPartyFlow, ProgressTracker progressTracker) {
+                    super(otherPartyFlow, progressTracker);
+                }
+
+                @Override
+                protected void checkTransaction(@NotNull SignedTransaction stx) {
+                    requireThat(requirements -> {
+                        final List<PurchaseOrderState> proposedPurchaseOrders =
+                                stx.getTx().outputsOfType(PurchaseOrderState.class);
+
+                        requirements.using(
+                                "There must be between 1 and " + MAX_BATCH_SIZE + " PurchaseOrderStates in output.",
+                                !proposedPurchaseOrders.isEmpty() && proposedPurchaseOrders.size() <= MAX_BATCH_SIZE
+                        );
+
+                        requirements.using(
+                                "I (" + getOurIdentity() + ") must be the buyer of every purchase order.",
+                                proposedPurchaseOrders.stream().allMatch(it -> it.getBuyer().equals(getOurIdentity()))
+                        );
+
+                        // As in CreatePurchaseOrderFlow, the ids must be free in our vault too, not only the seller's.
+                        final List<String> purchaseOrderIds = proposedPurchaseOrders.stream()
+                                .map(PurchaseOrderState::getPurchaseOrderId)
+                                .collect(Collectors.toList());
+                        requirements.using(
+                                "A batch must have a distinct purchaseOrderId per purchase order.",
+                                purchaseOrderIds.stream().distinct().count() == purchaseOrderIds.size()
+                        );
+                        requirements.using(
+                                "A purchaseOrderId of the batch already exists.",
+                                StateLookup.areBusinessIdsUnique(getServiceHub(), PurchaseOrderState.class, purchaseOrderIds)
+                        );
+
+                        return null;
+                    });
+                }
+            }
+            final SignTxFlow signTxFlow = new SignTxFlow(sellerSession, SignTransactionFlow.Companion.tracker());
+            final SecureHash txId = subFlow(signTxFlow).getId();
+
+            return subFlow(new ReceiveFinalityFlow(sellerSession, txId));
+        }
+    }
+}
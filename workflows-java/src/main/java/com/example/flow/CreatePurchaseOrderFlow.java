@@ -3,18 +3,19 @@ package com.example.flow;
 import co.paralleluniverse.fibers.Suspendable;
 import com.example.contract.LetterOfCreditContract;
 import com.example.state.PurchaseOrderState;
+import com.example.vault.StateLookup;
 import net.corda.core.contracts.Command;
 import net.corda.core.contracts.UniqueIdentifier;
 import net.corda.core.crypto.SecureHash;
 import net.corda.core.flows.*;
 import net.corda.core.identity.Party;
-import net.corda.core.node.services.Vault;
-import net.corda.core.node.services.vault.QueryCriteria;
 import net.corda.core.transactions.SignedTransaction;
 import net.corda.core.transactions.TransactionBuilder;
 import net.corda.core.utilities.ProgressTracker;
 import org.jetbrains.annotations.NotNull;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -33,7 +34,7 @@ public interface CreatePurchaseOrderFlow {
         private final ProgressTracker.Step GATHERING_SIGNS = new ProgressTracker.Step("Gathering signatures.") {
             @Override
             public ProgressTracker childProgressTracker() {
-                return CollectSignaturesFlow.Companion.tracker();
+                return CollectSignaturesInParallelFlow.tracker();
             }
         };
         private final ProgressTracker.Step FINALISING_TRANSACTION = new ProgressTracker.Step("Obtaining notary signature and finalizing transaction.") {
@@ -72,7 +73,23 @@ public interface CreatePurchaseOrderFlow {
                 @NotNull Long productQuantity,
                 @NotNull Long productPriceInUSD,
                 @NotNull Long productGrossWeightInKG) {
-            this.purchaseOrderId = new UniqueIdentifier().toString();
+            this(new UniqueIdentifier().toString(), buyer, purchaseOrderIssueDate, productName,
+                    productQuantity, productPriceInUSD, productGrossWeightInKG);
+        }
+
+        /**
+         * With the purchaseOrderId given by the caller, e.g. from a request's idempotency key, so that running
+         * the flow again for the same request fails instead of creating a second purchase order.
+         */
+        public Initiator(
+                @NotNull String purchaseOrderId,
+                @NotNull Party buyer,
+                @NotNull String purchaseOrderIssueDate,
+                @NotNull String productName,
+                @NotNull Long productQuantity,
+                @NotNull Long productPriceInUSD,
+                @NotNull Long productGrossWeightInKG) {
+            this.purchaseOrderId = purchaseOrderId;
             this.buyer = buyer;
             this.purchaseOrderIssueDate = purchaseOrderIssueDate;
             this.productName = productName;
@@ -91,12 +108,12 @@ public interface CreatePurchaseOrderFlow {
             // Thus should not be accessed in Constructor or Initialization
             final Party seller = getOurIdentity();
 
-            // Taking first notary on network. (For Dev)
-            final Party notary = getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
+            // Chosen per the CorDapp config. (See NotarySelector)
+            final Party notary = NotarySelector.forNewState(this, purchaseOrderId);
 
             // Stage-1: GENERATING_TRANSACTION
             progressTracker.setCurrentStep(GENERATING_TRANSACTION);
-            if (!isPurchaseOrderIdUnique(purchaseOrderId))
+            if (!StateLookup.isBusinessIdUnique(getServiceHub(), PurchaseOrderState.class, purchaseOrderId))
                 throw new FlowException("purchaseOrderId:" + purchaseOrderId + " already exists.");
             final PurchaseOrderState purchaseOrder = new PurchaseOrderState(
                     purchaseOrderId,
@@ -135,7 +152,7 @@ public interface CreatePurchaseOrderFlow {
                     .map(this::initiateFlow)
                     .collect(Collectors.toList());
             final SignedTransaction fullySignedTx = subFlow(
-                    new CollectSignaturesFlow(
+                    new CollectSignaturesInParallelFlow(
                             partlySignedTx,
                             signerFlows,
                             GATHERING_SIGNS.childProgressTracker()
@@ -144,23 +161,16 @@ public interface CreatePurchaseOrderFlow {
 
             // Stage-5: FINALISING_TRANSACTION
             progressTracker.setCurrentStep(FINALISING_TRANSACTION);
-            return subFlow(
+            final Instant finalisingFrom = getServiceHub().getClock().instant();
+            final SignedTransaction notarisedTx = subFlow(
                     new FinalityFlow(
                             fullySignedTx,
                             signerFlows,
                             FINALISING_TRANSACTION.childProgressTracker()
                     )
             );
-        }
-
-        boolean isPurchaseOrderIdUnique(String purchaseOrderId) {
-            QueryCriteria.VaultQueryCriteria criteria =
-                    new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.ALL);
-            Vault.Page<PurchaseOrderState> results =
-                    getServiceHub().getVaultService().queryBy(PurchaseOrderState.class, criteria);
-            return results.getStates().stream().noneMatch(
-                    it -> it.getState().getData().getPurchaseOrderId().equals(purchaseOrderId)
-            );
+            NotarySelector.recordLatency(this, notary, Duration.between(finalisingFrom, getServiceHub().getClock().instant()));
+            return notarisedTx;
         }
     }
 
@@ -195,6 +205,14 @@ public interface CreatePurchaseOrderFlow {
                                 proposedPurchaseOrder.get(0).getBuyer().equals(getOurIdentity())
                         );
 
+                        // The seller only checked its own vault. The vault does not enforce the id either, so a clash
+                        // on our side would otherwise be notarised and leave us with two purchase orders of one id.
+                        requirements.using(
+                                "purchaseOrderId:" + proposedPurchaseOrder.get(0).getPurchaseOrderId() + " already exists.",
+                                StateLookup.isBusinessIdUnique(getServiceHub(), PurchaseOrderState.class,
+                                        proposedPurchaseOrder.get(0).getPurchaseOrderId())
+                        );
+
                         return null;
                     });
                 }
@@ -0,0 +1,38 @@
+package com.example.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.NotaryError;
+import net.corda.core.flows.NotaryException;
+import net.corda.core.transactions.SignedTransaction;
+
+/**
+ * An initiator which consumes the states of an earlier step of the lifecycle, and builds its transaction again from
+ * the latest states when the notary finds them already consumed. A second attempt usually fails at once on their
+ * new status, before any signature is gathered, rather than reaching the notary again.
+ *
+ * The initiators reserve their input states with StateLookup.reserve, so contention between the flows of one node
+ * is caught before the notary.
+ */
+public abstract class NotaryConflictRetryingFlow extends FlowLogic<SignedTransaction> {
+    public static final int MAX_ATTEMPTS = 3;
+
+    @Suspendable
+    @Override
+    public SignedTransaction call() throws FlowException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return attempt();
+            } catch (NotaryException e) {
+                if (!(e.getError() instanceof NotaryError.Conflict) || attempt == MAX_ATTEMPTS) throw e;
+                getLogger().warn("Transaction " + e.getTxId() + " conflicted at the notary (attempt " + attempt + " of "
+                        + MAX_ATTEMPTS + "). Retrying with the latest states.");
+            }
+        }
+    }
+
+    /** Builds, signs and finalises the transaction from the latest states in the vault. */
+    @Suspendable
+    protected abstract SignedTransaction attempt() throws FlowException;
+}
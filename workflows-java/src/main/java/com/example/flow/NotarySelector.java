@@ -0,0 +1,100 @@
+package com.example.flow;
+
+import net.corda.core.cordapp.CordappConfig;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Picks the notary for the flows that create states from nothing, i.e. CreatePurchaseOrderFlow and
+ * CreatePurchaseOrderBatchFlow. Every later step of the lifecycle consumes those states and so stays with their
+ * notary, which is how the letters of credit end up spread over the notaries of the network.
+ *
+ * The strategy is set in the CorDapp config:
+ * <pre>
+ * notarySelection = "pinned" | "hash" | "round-robin" | "least-latency"   # Default: pinned.
+ * notary = "O=Notary,L=London,C=GB"                                     # For pinned. Default: the first notary.
+ * </pre>
+ * - pinned: always the configured notary.
+ * - hash: the notary given by the hash of the new state's business id, the same on every node.
+ * - round-robin: each notary in turn.
+ * - least-latency: the notary that has been quickest to finalise this node's transactions, trying each at least
+ *   once. The latencies are recorded with {@link #recordLatency}.
+ */
+@CordaService
+public class NotarySelector extends SingletonSerializeAsToken {
+    public static final String STRATEGY_KEY = "notarySelection";
+    public static final String NOTARY_KEY = "notary";
+
+    // Weight of the latest latency in the moving average of each notary's latency.
+    private static final double LATENCY_WEIGHT = 0.2;
+
+    @NotNull private final AppServiceHub serviceHub;
+    @NotNull private final AtomicInteger nextNotary = new AtomicInteger();
+    @NotNull private final Map<Party, Double> latencyInMillis = new ConcurrentHashMap<>();
+
+    public NotarySelector(@NotNull AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+    }
+
+    /** The notary for a new state with the given business id, per the CorDapp config of the calling flow. */
+    @NotNull
+    public static Party forNewState(@NotNull FlowLogic<?> flow, @NotNull String businessId) throws FlowException {
+        final CordappConfig config = flow.getServiceHub().getAppContext().getConfig();
+        final String strategy = config.exists(STRATEGY_KEY) ? config.getString(STRATEGY_KEY) : "pinned";
+        final String pinned = config.exists(NOTARY_KEY) ? config.getString(NOTARY_KEY) : null;
+        return flow.getServiceHub().cordaService(NotarySelector.class).select(strategy, pinned, businessId);
+    }
+
+    /** Records how long the given notary took to finalise one of our transactions. */
+    public static void recordLatency(@NotNull FlowLogic<?> flow, @NotNull Party notary, @NotNull Duration latency) {
+        flow.getServiceHub().cordaService(NotarySelector.class).recordLatency(notary, latency);
+    }
+
+    @NotNull
+    public Party select(@NotNull String strategy, String pinned, @NotNull String businessId) throws FlowException {
+        // Sorted so that every node sees the notaries in the same order.
+        final List<Party> notaries = serviceHub.getNetworkMapCache().getNotaryIdentities().stream()
+                .sorted(Comparator.comparing(it -> it.getName().toString()))
+                .collect(Collectors.toList());
+        if (notaries.isEmpty())
+            throw new FlowException("There is no notary on the network.");
+
+        switch (strategy) {
+            case "pinned":
+                if (pinned == null) return serviceHub.getNetworkMapCache().getNotaryIdentities().get(0);
+                final Party notary = serviceHub.getNetworkMapCache().getNotary(CordaX500Name.parse(pinned));
+                if (notary == null)
+                    throw new FlowException("Configured notary:" + pinned + " not found on the network.");
+                return notary;
+            case "hash":
+                return notaries.get(Math.floorMod(businessId.hashCode(), notaries.size()));
+            case "round-robin":
+                return notaries.get(Math.floorMod(nextNotary.getAndIncrement(), notaries.size()));
+            case "least-latency":
+                return notaries.stream()
+                        .min(Comparator.comparing(it -> latencyInMillis.getOrDefault(it, 0.0)))
+                        .get();
+            default:
+                throw new FlowException("Invalid " + STRATEGY_KEY + ":" + strategy + ". Required: pinned/hash/round-robin/least-latency");
+        }
+    }
+
+    public void recordLatency(@NotNull Party notary, @NotNull Duration latency) {
+        final double millis = latency.toMillis();
+        latencyInMillis.merge(notary, millis, (average, latest) -> average + LATENCY_WEIGHT * (latest - average));
+    }
+}
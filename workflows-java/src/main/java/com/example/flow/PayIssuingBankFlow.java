@@ -4,13 +4,12 @@ import co.paralleluniverse.fibers.Suspendable;
 import com.example.contract.LetterOfCreditContract;
 import com.example.state.BillOfLadingState;
 import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
+import com.example.vault.StateLookup;
 import net.corda.core.contracts.Command;
 import net.corda.core.contracts.StateAndRef;
-import net.corda.core.crypto.SecureHash;
 import net.corda.core.flows.*;
 import net.corda.core.identity.Party;
-import net.corda.core.node.services.Vault;
-import net.corda.core.node.services.vault.QueryCriteria;
 import net.corda.core.transactions.SignedTransaction;
 import net.corda.core.transactions.TransactionBuilder;
 import net.corda.core.utilities.ProgressTracker;
@@ -26,7 +25,7 @@ import static net.corda.core.contracts.ContractsDSL.requireThat;
 public interface PayIssuingBankFlow {
     @InitiatingFlow
     @StartableByRPC
-    class Initiator extends FlowLogic<SignedTransaction> {
+    class Initiator extends NotaryConflictRetryingFlow {
 
         private final ProgressTracker.Step GENERATING_TRANSACTION = new ProgressTracker.Step("Generating transaction.");
         private final ProgressTracker.Step VERIFYING_TRANSACTION = new ProgressTracker.Step("Verifying contract constraints.");
@@ -34,7 +33,7 @@ public interface PayIssuingBankFlow {
         private final ProgressTracker.Step GATHERING_SIGNS = new ProgressTracker.Step("Gathering signatures.") {
             @Override
             public ProgressTracker childProgressTracker() {
-                return CollectSignaturesFlow.Companion.tracker();
+                return CollectSignaturesInParallelFlow.tracker();
             }
         };
         private final ProgressTracker.Step FINALISING_TRANSACTION = new ProgressTracker.Step("Obtaining notary signature and finalizing transaction.") {
@@ -70,35 +69,41 @@ public interface PayIssuingBankFlow {
 
         @Suspendable
         @Override
-        public SignedTransaction call() throws FlowException {
-
-            // Taking first notary on network. (For Dev)
-            final Party notary = getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
+        protected SignedTransaction attempt() throws FlowException {
 
             // Stage-1: GENERATING_TRANSACTION
             progressTracker.setCurrentStep(GENERATING_TRANSACTION);
-            StateAndRef<LetterOfCreditState> inputLetterOfCreditRef = getLetterOfCreditStateAndRef(locId);
+            StateAndRef<LetterOfCreditState> inputLetterOfCreditRef =
+                    StateLookup.findUnconsumed(getServiceHub(), LetterOfCreditState.class, locId);
+            // Every step of the lifecycle stays with the notary the LOC was created with.
+            final Party notary = inputLetterOfCreditRef.getState().getNotary();
             final LetterOfCreditState inputLetterOfCredit =  inputLetterOfCreditRef.getState().getData();
-            StateAndRef<BillOfLadingState> inputBillOfLadingRef = getBillOfLadingStateAndRef(billOfLadingId);
+            StateAndRef<BillOfLadingState> inputBillOfLadingRef =
+                    StateLookup.findUnconsumed(getServiceHub(), BillOfLadingState.class, billOfLadingId);
+            StateLookup.reserve(this, inputLetterOfCreditRef, inputBillOfLadingRef);
             final BillOfLadingState inputBillOfLading = inputBillOfLadingRef.getState().getData();
             if (!inputLetterOfCreditRef.getState().getData().getBuyer().equals(getOurIdentity()))
                 throw new FlowException("I (" + getOurIdentity() + ") must be the buyer in the referenced LOC.");
-            if (!inputLetterOfCredit.getLocStatus().equals("ADVISING_BANK_PAID"))
-                throw new FlowException("Invalid locStatus:" + inputLetterOfCredit.getLocStatus() + " found. Required locStatus: APPLIED");
+            if (inputLetterOfCredit.getLocStatus() != LocStatus.ADVISING_BANK_PAID)
+                throw new FlowException("Invalid locStatus:" + inputLetterOfCredit.getLocStatus() + " found. Required locStatus: ADVISING_BANK_PAID");
             final LetterOfCreditState letterOfCredit = LetterOfCreditState.locWithUpdatedStatus(
                     inputLetterOfCredit,
-                    "ISSUING_BANK_PAID"
+                    LocStatus.ISSUING_BANK_PAID
             );
             final BillOfLadingState billOfLadingState = BillOfLadingState.billOfLadingStateWithUpdatedOwner(
                     inputBillOfLading,
                     inputBillOfLading.getBuyer()
             );
-            final List<Party> requiredSigners = Arrays.asList(
+            final List<Party> participants = Arrays.asList(
                     inputLetterOfCredit.getBuyer(),
                     inputLetterOfCredit.getSeller(),
                     inputLetterOfCredit.getIssuingBank(),
                     inputLetterOfCredit.getAdvisingBank()
             );
+            final List<Party> requiredSigners = Arrays.asList(
+                    inputLetterOfCredit.getBuyer(),
+                    inputLetterOfCredit.getIssuingBank()
+            );
             Command<PayIssuingBank> txCommand = new Command<>(
                     new PayIssuingBank(),
                     requiredSigners.stream().map(Party::getOwningKey).collect(Collectors.toList())
@@ -120,14 +125,11 @@ public interface PayIssuingBankFlow {
 
             // Stage-4: GATHERING_SIGNS
             progressTracker.setCurrentStep(GATHERING_SIGNS);
-            List<FlowSession> signerFlows = requiredSigners.stream()
-                    .filter(it -> !it.equals(getOurIdentity()))
-                    .map(this::initiateFlow)
-                    .collect(Collectors.toList());
+            List<FlowSession> participantFlows = SignerSessions.initiate(this, participants, requiredSigners);
             final SignedTransaction fullySignedTx = subFlow(
-                    new CollectSignaturesFlow(
+                    new CollectSignaturesInParallelFlow(
                             partlySignedTx,
-                            signerFlows,
+                            SignerSessions.signers(participantFlows, requiredSigners),
                             GATHERING_SIGNS.childProgressTracker()
                     )
             );
@@ -137,38 +139,11 @@ public interface PayIssuingBankFlow {
             return subFlow(
                     new FinalityFlow(
                             fullySignedTx,
-                            signerFlows,
+                            participantFlows,
                             FINALISING_TRANSACTION.childProgressTracker()
                     )
             );
         }
-
-        StateAndRef<LetterOfCreditState> getLetterOfCreditStateAndRef(String locId) throws FlowException {
-            QueryCriteria.VaultQueryCriteria criteria =
-                    new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED);
-            Vault.Page<LetterOfCreditState> results =
-                    getServiceHub().getVaultService().queryBy(LetterOfCreditState.class, criteria);
-            List<StateAndRef<LetterOfCreditState>> locList = results.getStates();
-            for (StateAndRef<LetterOfCreditState> loc : locList) {
-                if (loc.getState().getData().getLocId().equals(locId))
-                    return loc;
-            }
-            throw new FlowException("Unconsumed LetterOfCreditState with ID:" + locId + "not found!");
-        }
-
-        StateAndRef<BillOfLadingState> getBillOfLadingStateAndRef(String billOfLadingId) throws FlowException {
-            QueryCriteria.VaultQueryCriteria criteria =
-                    new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED);
-            Vault.Page<BillOfLadingState> results =
-                    getServiceHub().getVaultService().queryBy(BillOfLadingState.class, criteria);
-            List<StateAndRef<BillOfLadingState>> bills = results.getStates();
-            for (StateAndRef<BillOfLadingState> loc : bills) {
-                if (loc.getState().getData().getBillOfLadingId().equals(billOfLadingId))
-                    return loc;
-            }
-            throw new FlowException("Unconsumed BillOfLadingState with ID:"
-                    + billOfLadingId + "not found! Total bills found: " + bills.size());
-        }
     }
 
     @InitiatedBy(PayIssuingBankFlow.Initiator.class)
@@ -207,7 +182,7 @@ public interface PayIssuingBankFlow {
 
                         requirements.using(
                                 "LetterOfCreditStatus must be ISSUING_BANK_PAID in output LetterOfCreditState.",
-                                proposedLetterOfCreditState.getLocStatus().equals("ISSUING_BANK_PAID")
+                                proposedLetterOfCreditState.getLocStatus() == LocStatus.ISSUING_BANK_PAID
                         );
 
                         final List<BillOfLadingState> billOfLadingStates =
@@ -241,9 +216,7 @@ public interface PayIssuingBankFlow {
             final SignTxFlow signTxFlow = new SignTxFlow(buyerSession,
                     SignTransactionFlow.Companion.tracker(),
                     getOurIdentity());
-            final SecureHash txId = subFlow(signTxFlow).getId();
-
-            return subFlow(new ReceiveFinalityFlow(buyerSession, txId));
+            return SignerSessions.respond(this, buyerSession, signTxFlow);
         }
     }
 }
@@ -0,0 +1,226 @@
+package com.example.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.example.contract.LetterOfCreditContract;
+import com.example.state.BillOfLadingState;
+import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
+import com.example.vault.StateLookup;
+import net.corda.core.contracts.Command;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.flows.*;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.ProgressTracker;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.example.contract.LetterOfCreditContract.Commands.Settle;
+import static net.corda.core.contracts.ContractsDSL.requireThat;
+
+/**
+ * Straight-through settlement of a shipped letter of credit: what PaySellerFlow, PayAdvisingBankFlow and
+ * PayIssuingBankFlow do in three transactions, in one. The LOC goes from SHIPPED to ISSUING_BANK_PAID and the
+ * BillOfLading from the seller to the buyer at once, with one round of signatures and one notarisation.
+ *
+ * Started by the advising bank, as PaySellerFlow is. Parties who want the three steps still use those flows.
+ */
+public interface SettleLetterOfCreditFlow {
+    @InitiatingFlow
+    @StartableByRPC
+    class Initiator extends NotaryConflictRetryingFlow {
+
+        private final ProgressTracker.Step GENERATING_TRANSACTION = new ProgressTracker.Step("Generating transaction.");
+        private final ProgressTracker.Step VERIFYING_TRANSACTION = new ProgressTracker.Step("Verifying contract constraints.");
+        private final ProgressTracker.Step SIGNING_TRANSACTION = new ProgressTracker.Step("Signing transaction with our private key.");
+        private final ProgressTracker.Step GATHERING_SIGNS = new ProgressTracker.Step("Gathering signatures.") {
+            @Override
+            public ProgressTracker childProgressTracker() {
+                return CollectSignaturesInParallelFlow.tracker();
+            }
+        };
+        private final ProgressTracker.Step FINALISING_TRANSACTION = new ProgressTracker.Step("Obtaining notary signature and finalizing transaction.") {
+            @Override
+            public ProgressTracker childProgressTracker() {
+                return FinalityFlow.Companion.tracker();
+            }
+        };
+
+        @NotNull
+        private final ProgressTracker progressTracker = new ProgressTracker(
+                GENERATING_TRANSACTION,
+                VERIFYING_TRANSACTION,
+                SIGNING_TRANSACTION,
+                GATHERING_SIGNS,
+                FINALISING_TRANSACTION
+        );
+
+        @NotNull
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @NotNull private final String locId;
+
+        public Initiator(@NotNull String locId) {
+            this.locId = locId;
+        }
+
+        @Suspendable
+        @Override
+        protected SignedTransaction attempt() throws FlowException {
+
+            // Stage-1: GENERATING_TRANSACTION
+            progressTracker.setCurrentStep(GENERATING_TRANSACTION);
+            StateAndRef<LetterOfCreditState> inputLetterOfCreditRef =
+                    StateLookup.findUnconsumed(getServiceHub(), LetterOfCreditState.class, locId);
+            // Every step of the lifecycle stays with the notary the LOC was created with.
+            final Party notary = inputLetterOfCreditRef.getState().getNotary();
+            final LetterOfCreditState inputLetterOfCredit = inputLetterOfCreditRef.getState().getData();
+            if (!inputLetterOfCredit.getAdvisingBank().equals(getOurIdentity()))
+                throw new FlowException("I (" + getOurIdentity() + ") must be the advising bank in the referenced LOC.");
+            if (inputLetterOfCredit.getLocStatus() != LocStatus.SHIPPED)
+                throw new FlowException("Invalid locStatus:" + inputLetterOfCredit.getLocStatus() + " found. Required locStatus: SHIPPED");
+            StateAndRef<BillOfLadingState> inputBillOfLadingRef =
+                    StateLookup.findUnconsumed(getServiceHub(), BillOfLadingState.class, inputLetterOfCredit.getBillOfLadingId());
+            StateLookup.reserve(this, inputLetterOfCreditRef, inputBillOfLadingRef);
+            final BillOfLadingState inputBillOfLading = inputBillOfLadingRef.getState().getData();
+            final LetterOfCreditState letterOfCredit = LetterOfCreditState.locWithUpdatedStatus(
+                    inputLetterOfCredit,
+                    LocStatus.ISSUING_BANK_PAID
+            );
+            final BillOfLadingState billOfLadingState = BillOfLadingState.billOfLadingStateWithUpdatedOwner(
+                    inputBillOfLading,
+                    inputBillOfLading.getBuyer()
+            );
+            final List<Party> requiredSigners = Arrays.asList(
+                    inputLetterOfCredit.getBuyer(),
+                    inputLetterOfCredit.getSeller(),
+                    inputLetterOfCredit.getIssuingBank(),
+                    inputLetterOfCredit.getAdvisingBank()
+            );
+            Command<Settle> txCommand = new Command<>(
+                    new Settle(),
+                    requiredSigners.stream().map(Party::getOwningKey).collect(Collectors.toList())
+            );
+            final TransactionBuilder txBuilder = new TransactionBuilder(notary)
+                    .addInputState(inputLetterOfCreditRef)
+                    .addInputState(inputBillOfLadingRef)
+                    .addOutputState(letterOfCredit, LetterOfCreditContract.LOC_CONTRACT_ID)
+                    .addOutputState(billOfLadingState, LetterOfCreditContract.LOC_CONTRACT_ID)
+                    .addCommand(txCommand);
+
+            // Stage-2: VERIFYING_TRANSACTION
+            progressTracker.setCurrentStep(VERIFYING_TRANSACTION);
+            txBuilder.verify(getServiceHub());
+
+            // Stage-3: SIGNING_TRANSACTION
+            progressTracker.setCurrentStep(SIGNING_TRANSACTION);
+            final SignedTransaction partlySignedTx = getServiceHub().signInitialTransaction(txBuilder);
+
+            // Stage-4: GATHERING_SIGNS
+            progressTracker.setCurrentStep(GATHERING_SIGNS);
+            List<FlowSession> signerFlows = requiredSigners.stream()
+                    .filter(it -> !it.equals(getOurIdentity()))
+                    .map(this::initiateFlow)
+                    .collect(Collectors.toList());
+            final SignedTransaction fullySignedTx = subFlow(
+                    new CollectSignaturesInParallelFlow(
+                            partlySignedTx,
+                            signerFlows,
+                            GATHERING_SIGNS.childProgressTracker()
+                    )
+            );
+
+            // Stage-5: FINALISING_TRANSACTION
+            progressTracker.setCurrentStep(FINALISING_TRANSACTION);
+            return subFlow(
+                    new FinalityFlow(
+                            fullySignedTx,
+                            signerFlows,
+                            FINALISING_TRANSACTION.childProgressTracker()
+                    )
+            );
+        }
+    }
+
+    @InitiatedBy(SettleLetterOfCreditFlow.Initiator.class)
+    class Responder extends FlowLogic<SignedTransaction> {
+
+        private final FlowSession advisingBankSession;
+
+        public Responder(FlowSession advisingBankSession) { this.advisingBankSession = advisingBankSession; }
+
+        @Suspendable
+        @Override
+        public SignedTransaction call() throws FlowException {
+            class SignTxFlow extends SignTransactionFlow {
+                private final Party ourId;
+                private SignTxFlow(
+                        FlowSession otherPartyFlow,
+                        ProgressTracker progressTracker,
+                        Party ourId
+                ) {
+                    super(otherPartyFlow, progressTracker);
+                    this.ourId = ourId;
+                }
+
+                @Override
+                protected void checkTransaction(@NotNull SignedTransaction stx) {
+                    requireThat(requirements -> {
+                        final List<LetterOfCreditState> letterOfCreditStates =
+                                stx.getTx().outputsOfType(LetterOfCreditState.class);
+
+                        requirements.using(
+                                "There must be exactly 1 LetterOfCreditState in output.",
+                                letterOfCreditStates.size() == 1
+                        );
+
+                        final LetterOfCreditState proposedLetterOfCreditState = letterOfCreditStates.get(0);
+
+                        requirements.using(
+                                "LetterOfCreditStatus must be ISSUING_BANK_PAID in output LetterOfCreditState.",
+                                proposedLetterOfCreditState.getLocStatus() == LocStatus.ISSUING_BANK_PAID
+                        );
+
+                        final List<BillOfLadingState> billOfLadingStates =
+                                stx.getTx().outputsOfType(BillOfLadingState.class);
+
+                        requirements.using(
+                                "There must be exactly 1 BillOfLadingState in output.",
+                                billOfLadingStates.size() == 1
+                        );
+
+                        if (proposedLetterOfCreditState.getBuyer().equals(ourId)) {
+                            requirements.using(
+                                    "Buyer should be the owner of BillOfLading.",
+                                    billOfLadingStates.get(0).getCurrentOwner().equals(ourId)
+                            );
+                        }
+
+                        requirements.using(
+                                "I (" + getOurIdentity() + ") must be relevant.",
+                                proposedLetterOfCreditState.getSeller().equals(ourId) ||
+                                        proposedLetterOfCreditState.getBuyer().equals(ourId) ||
+                                        proposedLetterOfCreditState.getIssuingBank().equals(ourId)
+                        );
+
+                        return null;
+                    });
+                }
+            }
+            final SignTxFlow signTxFlow = new SignTxFlow(advisingBankSession,
+                    SignTransactionFlow.Companion.tracker(),
+                    getOurIdentity());
+            final SecureHash txId = subFlow(signTxFlow).getId();
+
+            return subFlow(new ReceiveFinalityFlow(advisingBankSession, txId));
+        }
+    }
+}
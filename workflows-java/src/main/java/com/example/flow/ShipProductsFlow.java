@@ -4,14 +4,13 @@ import co.paralleluniverse.fibers.Suspendable;
 import com.example.contract.LetterOfCreditContract;
 import com.example.state.BillOfLadingState;
 import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
+import com.example.vault.StateLookup;
 import net.corda.core.contracts.Command;
 import net.corda.core.contracts.StateAndRef;
 import net.corda.core.contracts.UniqueIdentifier;
-import net.corda.core.crypto.SecureHash;
 import net.corda.core.flows.*;
 import net.corda.core.identity.Party;
-import net.corda.core.node.services.Vault;
-import net.corda.core.node.services.vault.QueryCriteria;
 import net.corda.core.transactions.SignedTransaction;
 import net.corda.core.transactions.TransactionBuilder;
 import net.corda.core.utilities.ProgressTracker;
@@ -27,7 +26,7 @@ import static net.corda.core.contracts.ContractsDSL.requireThat;
 public interface ShipProductsFlow {
     @InitiatingFlow
     @StartableByRPC
-    class Initiator extends FlowLogic<SignedTransaction> {
+    class Initiator extends NotaryConflictRetryingFlow {
 
         private final ProgressTracker.Step GENERATING_TRANSACTION = new ProgressTracker.Step("Generating transaction.");
         private final ProgressTracker.Step VERIFYING_TRANSACTION = new ProgressTracker.Step("Verifying contract constraints.");
@@ -35,7 +34,7 @@ public interface ShipProductsFlow {
         private final ProgressTracker.Step GATHERING_SIGNS = new ProgressTracker.Step("Gathering signatures.") {
             @Override
             public ProgressTracker childProgressTracker() {
-                return CollectSignaturesFlow.Companion.tracker();
+                return CollectSignaturesInParallelFlow.tracker();
             }
         };
         private final ProgressTracker.Step FINALISING_TRANSACTION = new ProgressTracker.Step("Obtaining notary signature and finalizing transaction.") {
@@ -74,8 +73,20 @@ public interface ShipProductsFlow {
                          @NotNull String loadingDate,
                          @NotNull String dischargeDate,
                          @NotNull String productDescription) {
+            this(new UniqueIdentifier().toString(), locId, carrierCompanyName, carrierName,
+                    loadingDate, dischargeDate, productDescription);
+        }
+
+        /** With the billOfLadingId given by the caller, e.g. from a request's idempotency key. */
+        public Initiator(@NotNull String billOfLadingId,
+                         @NotNull String locId,
+                         @NotNull String carrierCompanyName,
+                         @NotNull String carrierName,
+                         @NotNull String loadingDate,
+                         @NotNull String dischargeDate,
+                         @NotNull String productDescription) {
             this.locId = locId;
-            this.billOfLadingId = new UniqueIdentifier().toString();
+            this.billOfLadingId = billOfLadingId;
             this.carrierCompanyName = carrierCompanyName;
             this.carrierName = carrierName;
             this.loadingDate = loadingDate;
@@ -87,24 +98,25 @@ public interface ShipProductsFlow {
 
         @Suspendable
         @Override
-        public SignedTransaction call() throws FlowException {
-
-            // Taking first notary on network. (For Dev)
-            final Party notary = getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
+        protected SignedTransaction attempt() throws FlowException {
 
             // Stage-1: GENERATING_TRANSACTION
             progressTracker.setCurrentStep(GENERATING_TRANSACTION);
-            StateAndRef<LetterOfCreditState> inputLetterOfCreditRef = getLetterOfCreditStateAndRef(locId);
+            StateAndRef<LetterOfCreditState> inputLetterOfCreditRef =
+                    StateLookup.findUnconsumed(getServiceHub(), LetterOfCreditState.class, locId);
+            StateLookup.reserve(this, inputLetterOfCreditRef);
+            // Every step of the lifecycle stays with the notary the LOC was created with.
+            final Party notary = inputLetterOfCreditRef.getState().getNotary();
             final LetterOfCreditState inputLetterOfCredit =  inputLetterOfCreditRef.getState().getData();
             if (!inputLetterOfCreditRef.getState().getData().getSeller().equals(getOurIdentity()))
                 throw new FlowException("I (" + getOurIdentity() + ") must be the seller in the referenced LOC.");
-            if (!inputLetterOfCredit.getLocStatus().equals("ISSUED"))
+            if (inputLetterOfCredit.getLocStatus() != LocStatus.ISSUED)
                 throw new FlowException("Invalid locStatus:" + inputLetterOfCredit.getLocStatus() + " found. Required locStatus: ISSUED");
-            if (!isBillOfLadingIdUnique(billOfLadingId))
+            if (!StateLookup.isBusinessIdUnique(getServiceHub(), BillOfLadingState.class, billOfLadingId))
                 throw new FlowException("BillOfLading with ID:" + billOfLadingId + " already exists.");
             final LetterOfCreditState letterOfCredit = LetterOfCreditState.locWithUpdatedStatus(
                     inputLetterOfCredit,
-                    "SHIPPED"
+                    LocStatus.SHIPPED
             );
             letterOfCredit.setBillOfLadingId(billOfLadingId);
             final BillOfLadingState billOfLading = new BillOfLadingState(
@@ -130,12 +142,15 @@ public interface ShipProductsFlow {
                     inputLetterOfCredit.getDischargePortCity(),
                     inputLetterOfCredit.getDischargePortCountry()
             );
-            final List<Party> requiredSigners = Arrays.asList(
+            final List<Party> participants = Arrays.asList(
                     inputLetterOfCredit.getBuyer(),
                     inputLetterOfCredit.getSeller(),
                     inputLetterOfCredit.getIssuingBank(),
                     inputLetterOfCredit.getAdvisingBank()
             );
+            final List<Party> requiredSigners = Arrays.asList(
+                    inputLetterOfCredit.getSeller()
+            );
             Command<ShipProducts> txCommand = new Command<>(
                     new ShipProducts(),
                     requiredSigners.stream().map(Party::getOwningKey).collect(Collectors.toList())
@@ -156,14 +171,11 @@ public interface ShipProductsFlow {
 
             // Stage-4: GATHERING_SIGNS
             progressTracker.setCurrentStep(GATHERING_SIGNS);
-            List<FlowSession> signerFlows = requiredSigners.stream()
-                    .filter(it -> !it.equals(getOurIdentity()))
-                    .map(this::initiateFlow)
-                    .collect(Collectors.toList());
+            List<FlowSession> participantFlows = SignerSessions.initiate(this, participants, requiredSigners);
             final SignedTransaction fullySignedTx = subFlow(
-                    new CollectSignaturesFlow(
+                    new CollectSignaturesInParallelFlow(
                             partlySignedTx,
-                            signerFlows,
+                            SignerSessions.signers(participantFlows, requiredSigners),
                             GATHERING_SIGNS.childProgressTracker()
                     )
             );
@@ -173,34 +185,11 @@ public interface ShipProductsFlow {
             return subFlow(
                     new FinalityFlow(
                             fullySignedTx,
-                            signerFlows,
+                            participantFlows,
                             FINALISING_TRANSACTION.childProgressTracker()
                     )
             );
         }
-
-        StateAndRef<LetterOfCreditState> getLetterOfCreditStateAndRef(String locId) throws FlowException {
-            QueryCriteria.VaultQueryCriteria criteria =
-                    new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED);
-            Vault.Page<LetterOfCreditState> results =
-                    getServiceHub().getVaultService().queryBy(LetterOfCreditState.class, criteria);
-            List<StateAndRef<LetterOfCreditState>> purchaseOrders = results.getStates();
-            for (StateAndRef<LetterOfCreditState> loc : purchaseOrders) {
-                if (loc.getState().getData().getLocId().equals(locId))
-                    return loc;
-            }
-            throw new FlowException("Unconsumed LetterOfCreditState with ID:" + locId + "not found!");
-        }
-
-        boolean isBillOfLadingIdUnique(String billOfLadingId) {
-            QueryCriteria.VaultQueryCriteria criteria =
-                    new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.ALL);
-            Vault.Page<BillOfLadingState> results =
-                    getServiceHub().getVaultService().queryBy(BillOfLadingState.class,criteria);
-            return results.getStates().stream().noneMatch(
-                    it -> it.getState().getData().getBillOfLadingId().equals(billOfLadingId)
-            );
-        }
     }
 
     @InitiatedBy(ShipProductsFlow.Initiator.class)
@@ -239,7 +228,7 @@ public interface ShipProductsFlow {
 
                         requirements.using(
                                 "LetterOfCreditStatus must be SHIPPED in output LetterOfCreditState.",
-                                proposedLetterOfCreditState.getLocStatus().equals("SHIPPED")
+                                proposedLetterOfCreditState.getLocStatus() == LocStatus.SHIPPED
                         );
 
                         final List<BillOfLadingState> billOfLadingStates =
@@ -272,9 +261,7 @@ public interface ShipProductsFlow {
             final SignTxFlow signTxFlow = new SignTxFlow(sellerSession,
                     SignTransactionFlow.Companion.tracker(),
                     getOurIdentity());
-            final SecureHash txId = subFlow(signTxFlow).getId();
-
-            return subFlow(new ReceiveFinalityFlow(sellerSession, txId));
+            return SignerSessions.respond(this, sellerSession, signTxFlow);
         }
     }
 }
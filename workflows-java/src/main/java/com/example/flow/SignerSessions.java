@@ -0,0 +1,72 @@
+package com.example.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.FlowSession;
+import net.corda.core.flows.ReceiveFinalityFlow;
+import net.corda.core.flows.SignTransactionFlow;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.SignedTransaction;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Sessions with the other participants of a transaction, only some of whom are asked to sign it.
+ *
+ * The initiator opens a session with every other participant and tells each whether it is a signer. Signers
+ * check and sign the transaction before receiving it from FinalityFlow; observers only receive it.
+ */
+public final class SignerSessions {
+    private SignerSessions() { }
+
+    /**
+     * Opens a session with every participant other than us, and tells each whether it must sign.
+     * @return The sessions, for FinalityFlow. Pass {@link #signers} of them to CollectSignaturesInParallelFlow.
+     */
+    @Suspendable
+    @NotNull
+    public static List<FlowSession> initiate(
+            @NotNull FlowLogic<?> flow,
+            @NotNull List<Party> participants,
+            @NotNull List<Party> signers
+    ) {
+        final List<FlowSession> sessions = new ArrayList<>();
+        for (Party participant : new LinkedHashSet<>(participants)) {
+            if (participant.equals(flow.getOurIdentity())) continue;
+            final FlowSession session = flow.initiateFlow(participant);
+            session.send(signers.contains(participant));
+            sessions.add(session);
+        }
+        return sessions;
+    }
+
+    /** The sessions with the signers among the given sessions. */
+    @NotNull
+    public static List<FlowSession> signers(@NotNull List<FlowSession> sessions, @NotNull List<Party> signers) {
+        return sessions.stream()
+                .filter(it -> signers.contains(it.getCounterparty()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The responder's side: signs the transaction with signTxFlow if the initiator asked us to, then records it
+     * once finalised.
+     */
+    @Suspendable
+    @NotNull
+    public static SignedTransaction respond(
+            @NotNull FlowLogic<?> flow,
+            @NotNull FlowSession session,
+            @NotNull SignTransactionFlow signTxFlow
+    ) throws FlowException {
+        final boolean isSigner = session.receive(Boolean.class).unwrap(it -> it);
+        final SecureHash txId = isSigner ? flow.subFlow(signTxFlow).getId() : null;
+        return flow.subFlow(new ReceiveFinalityFlow(session, txId));
+    }
+}
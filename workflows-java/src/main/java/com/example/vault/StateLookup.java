@@ -0,0 +1,115 @@
+package com.example.vault;
+
+import com.example.state.LinearIds;
+import net.corda.core.contracts.LinearState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.node.ServiceHub;
+import net.corda.core.node.services.StatesNotAvailableException;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.utilities.NonEmptySet;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_NUM;
+
+/**
+ * Resolves the trade states by their business id (locId, purchaseOrderId, billOfLadingId).
+ * Every lookup is a single query on the vault's indexed linear state table.
+ */
+public final class StateLookup {
+    private StateLookup() { }
+
+    /**
+     * Criteria matching the linear states carrying the given business id.
+     * Usable both in flows and over RPC with CordaRPCOps.vaultQueryByCriteria.
+     */
+    @NotNull
+    public static QueryCriteria byBusinessId(@NotNull String businessId, @NotNull Vault.StateStatus status) {
+        return new QueryCriteria.LinearStateQueryCriteria(
+                null,
+                Collections.singletonList(LinearIds.uuidOf(businessId)),
+                null,
+                status
+        );
+    }
+
+    /** Criteria matching the linear states carrying any of the given business ids, in a single query. */
+    @NotNull
+    public static QueryCriteria byBusinessIds(@NotNull Collection<String> businessIds, @NotNull Vault.StateStatus status) {
+        return new QueryCriteria.LinearStateQueryCriteria(
+                null,
+                businessIds.stream().map(LinearIds::uuidOf).collect(Collectors.toList()),
+                null,
+                status
+        );
+    }
+
+    @NotNull
+    public static <T extends LinearState> StateAndRef<T> findUnconsumed(
+            @NotNull ServiceHub serviceHub,
+            @NotNull Class<T> stateType,
+            @NotNull String businessId
+    ) throws FlowException {
+        final List<StateAndRef<T>> states = serviceHub.getVaultService()
+                .queryBy(stateType, byBusinessId(businessId, Vault.StateStatus.UNCONSUMED))
+                .getStates();
+        if (states.isEmpty())
+            throw new FlowException("Unconsumed " + stateType.getSimpleName() + " with ID:" + businessId + " not found!");
+        return states.get(0);
+    }
+
+    /**
+     * Soft locks the given states for the flow, so that another flow of this node about to use them fails at once
+     * instead of at the notary, after a round of signatures. The locks are released when the flow ends.
+     */
+    public static void reserve(@NotNull FlowLogic<?> flow, @NotNull StateAndRef<?>... states) throws FlowException {
+        reserve(flow, Arrays.asList(states));
+    }
+
+    public static void reserve(@NotNull FlowLogic<?> flow, @NotNull Collection<? extends StateAndRef<?>> states) throws FlowException {
+        try {
+            flow.getServiceHub().getVaultService().softLockReserve(
+                    flow.getRunId().getUuid(),
+                    NonEmptySet.copyOf(states.stream().map(it -> it.getRef()).collect(Collectors.toList()))
+            );
+        } catch (StatesNotAvailableException e) {
+            throw new FlowException("The referenced states are already being used by another flow. Try again once it has finished.", e);
+        }
+    }
+
+    public static <T extends LinearState> boolean isBusinessIdUnique(
+            @NotNull ServiceHub serviceHub,
+            @NotNull Class<T> stateType,
+            @NotNull String businessId
+    ) {
+        final Vault.Page<T> results = serviceHub.getVaultService().queryBy(
+                stateType,
+                byBusinessId(businessId, Vault.StateStatus.ALL),
+                new PageSpecification(DEFAULT_PAGE_NUM, 1)
+        );
+        return results.getStates().isEmpty();
+    }
+
+    /** Whether none of the business ids is in use yet, checked with one query however many there are. */
+    public static <T extends LinearState> boolean areBusinessIdsUnique(
+            @NotNull ServiceHub serviceHub,
+            @NotNull Class<T> stateType,
+            @NotNull Collection<String> businessIds
+    ) {
+        final Vault.Page<T> results = serviceHub.getVaultService().queryBy(
+                stateType,
+                byBusinessIds(businessIds, Vault.StateStatus.ALL),
+                new PageSpecification(DEFAULT_PAGE_NUM, 1)
+        );
+        return results.getStates().isEmpty();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.vault;
+
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.VaultService;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.Sort;
+import net.corda.core.node.services.vault.SortAttribute;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_NUM;
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.DEFAULT_PAGE_SIZE;
+
+/**
+ * Walks a vault query one page at a time, so only a single page of states is held in memory
+ * and queries never hit the vault's default page limit.
+ * States are returned in the order they were recorded.
+ */
+public class VaultPager<T extends ContractState> implements Iterator<StateAndRef<T>> {
+
+    /** Runs one page of the underlying query. */
+    public interface PageSource<T extends ContractState> {
+        @NotNull
+        Vault.Page<T> fetch(@NotNull PageSpecification paging, @NotNull Sort sort);
+    }
+
+    /** Oldest first, with the state ref as a tie-breaker so the order is stable between pages. */
+    public static final Sort BY_RECORDED_TIME = new Sort(Arrays.asList(
+            new Sort.SortColumn(new SortAttribute.Standard(Sort.VaultStateAttribute.RECORDED_TIME), Sort.Direction.ASC),
+            new Sort.SortColumn(new SortAttribute.Standard(Sort.CommonStateAttribute.STATE_REF), Sort.Direction.ASC)
+    ));
+
+    private final PageSource<T> source;
+    private final int pageSize;
+
+    private int nextPageNumber = DEFAULT_PAGE_NUM;
+    private long fetched = 0;
+    private long totalStatesAvailable = -1;
+    private Iterator<StateAndRef<T>> currentPage = null;
+
+    public VaultPager(@NotNull PageSource<T> source, int pageSize) {
+        if (pageSize < 1)
+            throw new IllegalArgumentException("Page size must be positive. Found " + pageSize + ".");
+        this.source = source;
+        this.pageSize = pageSize;
+    }
+
+    @NotNull
+    public static <T extends ContractState> VaultPager<T> of(@NotNull VaultService vaultService,
+                                                             @NotNull Class<T> stateType,
+                                                             @NotNull QueryCriteria criteria,
+                                                             int pageSize) {
+        return new VaultPager<>((paging, sort) -> vaultService.queryBy(stateType, criteria, paging, sort), pageSize);
+    }
+
+    @NotNull
+    public static <T extends ContractState> VaultPager<T> of(@NotNull CordaRPCOps proxy,
+                                                             @NotNull Class<T> stateType,
+                                                             @NotNull QueryCriteria criteria,
+                                                             int pageSize) {
+        return new VaultPager<>((paging, sort) -> proxy.vaultQueryBy(criteria, paging, sort, stateType), pageSize);
+    }
+
+    @NotNull
+    public static <T extends ContractState> VaultPager<T> of(@NotNull VaultService vaultService,
+                                                             @NotNull Class<T> stateType,
+                                                             @NotNull QueryCriteria criteria) {
+        return of(vaultService, stateType, criteria, DEFAULT_PAGE_SIZE);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (currentPage != null && currentPage.hasNext()) return true;
+        if (totalStatesAvailable >= 0 && fetched >= totalStatesAvailable) return false;
+
+        final Vault.Page<T> page = source.fetch(new PageSpecification(nextPageNumber++, pageSize), BY_RECORDED_TIME);
+        final List<StateAndRef<T>> states = page.getStates();
+        totalStatesAvailable = page.getTotalStatesAvailable();
+        fetched += states.size();
+        // A short page is the last page, even if states were recorded since the count was taken.
+        if (states.size() < pageSize) totalStatesAvailable = fetched;
+        currentPage = states.iterator();
+        return currentPage.hasNext();
+    }
+
+    @Override
+    public StateAndRef<T> next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return currentPage.next();
+    }
+
+    /** A lazy stream over the remaining states. */
+    @NotNull
+    public Stream<StateAndRef<T>> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false);
+    }
+}
@@ -1,20 +1,26 @@
 package com.example.test.flow;
 
 import com.example.flow.ApplyForLetterOfCreditFlow;
+import com.example.schema.LetterOfCreditSchemaV1.PersistentLetterOfCredit;
 import com.example.state.LetterOfCreditState;
 import com.example.state.PurchaseOrderState;
 import com.google.common.collect.ImmutableList;
 import net.corda.core.concurrent.CordaFuture;
 import net.corda.core.contracts.StateAndRef;
+import net.corda.core.node.services.vault.Builder;
+import net.corda.core.node.services.vault.QueryCriteria;
 import net.corda.core.transactions.SignedTransaction;
 import net.corda.testing.node.StartedMockNode;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.security.PublicKey;
 import java.util.List;
 
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.getField;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class ApplyForLetterOfCreditFlowTests extends LetterOfCreditTests {
     @Rule
@@ -46,6 +52,35 @@ public class ApplyForLetterOfCreditFlowTests extends LetterOfCreditTests {
         signedTx.verifySignaturesExcept(buyer.getInfo().getLegalIdentities().get(0).getOwningKey());
     }
 
+    @Test
+    public void signedTransactionReturnedByTheFlowIsSignedByTheSeller() throws Throwable {
+        final List<StateAndRef<PurchaseOrderState>> inputRefs =
+                performCreatePurchaseOrderFlow(network, buyer, seller);
+        final PurchaseOrderState purchaseOrder = inputRefs.get(0).getState().getData();
+        ApplyForLetterOfCreditFlow.Initiator flow = new ApplyForLetterOfCreditFlow.Initiator(
+                purchaseOrder.getPurchaseOrderId(),
+                demoLetterOfCreditState.getLocType(),
+                demoLetterOfCreditState.getLocExpiryDate(),
+                advisingBank.getInfo().getLegalIdentities().get(0),
+                issuingBank.getInfo().getLegalIdentities().get(0),
+                demoLetterOfCreditState.getLocValue(),
+                demoLetterOfCreditState.getLoadingPortAddress(),
+                demoLetterOfCreditState.getLoadingPortCity(),
+                demoLetterOfCreditState.getLoadingPortCountry(),
+                demoLetterOfCreditState.getDischargePortAddress(),
+                demoLetterOfCreditState.getDischargePortCity(),
+                demoLetterOfCreditState.getDischargePortCountry()
+        );
+        CordaFuture<SignedTransaction> future = buyer.startFlow(flow);
+        network.runNetwork();
+
+        // The seller co-owns the purchase order the application consumes.
+        SignedTransaction signedTx = future.get();
+        final PublicKey sellerKey = seller.getInfo().getLegalIdentities().get(0).getOwningKey();
+        assertTrue(signedTx.getTx().getRequiredSigningKeys().contains(sellerKey));
+        signedTx.verifySignaturesExcept(buyer.getInfo().getLegalIdentities().get(0).getOwningKey());
+    }
+
     @Test
     public void flowRecordsATransactionInAllPartiesTransactionStorage() throws Throwable {
         final List<StateAndRef<PurchaseOrderState>> inputRefs =
@@ -127,4 +162,24 @@ public class ApplyForLetterOfCreditFlowTests extends LetterOfCreditTests {
             });
         }
     }
+
+    @Test
+    public void flowRecordsTheLOCInTheLetterOfCreditSchema() throws Throwable {
+        final List<StateAndRef<LetterOfCreditState>> outputRefs =
+                performApplyForLetterOfCreditFlow(network, buyer, seller, advisingBank, issuingBank);
+        final LetterOfCreditState letterOfCredit = outputRefs.get(0).getState().getData();
+        final QueryCriteria criteria = new QueryCriteria.VaultCustomQueryCriteria(
+                Builder.equal(getField("locId", PersistentLetterOfCredit.class), letterOfCredit.getLocId())
+        );
+        // We check that the LOC can be found by its indexed locId in all vaults.
+        for (StartedMockNode node : ImmutableList.of(seller, buyer, advisingBank, issuingBank)) {
+            node.transaction(() -> {
+                List<StateAndRef<LetterOfCreditState>> letterOfCredits =
+                        node.getServices().getVaultService().queryBy(LetterOfCreditState.class, criteria).getStates();
+                assertEquals(1, letterOfCredits.size());
+                assertEquals(letterOfCredit, letterOfCredits.get(0).getState().getData());
+                return null;
+            });
+        }
+    }
 }
@@ -0,0 +1,161 @@
+package com.example.test.flow;
+
+import com.example.flow.ApproveLetterOfCreditApplicationBatchFlow;
+import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.concurrent.CordaFuture;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowSession;
+import net.corda.core.flows.NotaryFlow;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.testing.node.StartedMockNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.example.contract.LetterOfCreditContract.Commands.ApproveLetterOfCreditApplication;
+import static com.example.contract.LetterOfCreditContract.LOC_CONTRACT_ID;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+
+public class ApproveLetterOfCreditApplicationBatchFlowTests extends LetterOfCreditTests {
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void flowDecidesApplicationsWithTheSameCounterpartiesInOneTransaction() throws Throwable {
+        final LetterOfCreditState issued = performApplyForLetterOfCreditFlow(network, buyer, seller, advisingBank, issuingBank)
+                .get(0).getState().getData();
+        final LetterOfCreditState rejected = performApplyForLetterOfCreditFlow(network, buyer, seller, advisingBank, issuingBank)
+                .get(0).getState().getData();
+        final Map<String, LocStatus> locStatuses = new LinkedHashMap<>();
+        locStatuses.put(issued.getLocId(), LocStatus.ISSUED);
+        locStatuses.put(rejected.getLocId(), LocStatus.REJECTED);
+
+        CordaFuture<ApproveLetterOfCreditApplicationBatchFlow.Outcome> future =
+                issuingBank.startFlow(new ApproveLetterOfCreditApplicationBatchFlow.Initiator(locStatuses));
+        network.runNetwork();
+
+        final List<SignedTransaction> signedTxs = future.get().getTransactions();
+        assertEquals(1, signedTxs.size());
+        assertEquals(Collections.emptyMap(), future.get().getFailures());
+        final SignedTransaction signedTx = signedTxs.get(0);
+        signedTx.verifySignaturesExcept(issuingBank.getInfo().getLegalIdentities().get(0).getOwningKey());
+
+        // We check the decisions were recorded, from the one transaction, in all vaults.
+        for (StartedMockNode node : ImmutableList.of(seller, buyer, advisingBank, issuingBank)) {
+            assertEquals(signedTx, node.getServices().getValidatedTransactions().getTransaction(signedTx.getId()));
+            node.transaction(() -> {
+                List<StateAndRef<LetterOfCreditState>> letterOfCredits =
+                        node.getServices().getVaultService().queryBy(LetterOfCreditState.class).getStates();
+                assertEquals(2, letterOfCredits.size());
+                for (StateAndRef<LetterOfCreditState> letterOfCredit : letterOfCredits) {
+                    assertEquals(signedTx.getId(), letterOfCredit.getRef().getTxhash());
+                    assertEquals(
+                            locStatuses.get(letterOfCredit.getState().getData().getLocId()),
+                            letterOfCredit.getState().getData().getLocStatus()
+                    );
+                }
+                return null;
+            });
+        }
+    }
+
+    @Test
+    public void flowRejectsApplicationsThatAreNoLongerApplied() throws Throwable {
+        final LetterOfCreditState letterOfCredit =
+                performApproveLetterOfCreditApplicationFlowWithIssued(network, buyer, seller, advisingBank, issuingBank)
+                        .get(0).getState().getData();
+        final Map<String, LocStatus> locStatuses = new LinkedHashMap<>();
+        locStatuses.put(letterOfCredit.getLocId(), LocStatus.ISSUED);
+
+        CordaFuture<ApproveLetterOfCreditApplicationBatchFlow.Outcome> future =
+                issuingBank.startFlow(new ApproveLetterOfCreditApplicationBatchFlow.Initiator(locStatuses));
+        network.runNetwork();
+
+        exception.expectCause(instanceOf(FlowException.class));
+        future.get();
+    }
+
+    @Test
+    public void groupThatFailsIsReportedWithoutStoppingTheOthers() throws Throwable {
+        final StartedMockNode otherAdvisingBank = network.createPartyNode(new CordaX500Name("OtherAdvisingBank", "Dhaka", "BD"));
+        final LetterOfCreditState decided = performApplyForLetterOfCreditFlow(network, buyer, seller, advisingBank, issuingBank)
+                .get(0).getState().getData();
+        final StateAndRef<LetterOfCreditState> spent =
+                performApplyForLetterOfCreditFlow(network, buyer, seller, otherAdvisingBank, issuingBank).get(0);
+        // Spends the second application at the notary without the issuing bank's vault knowing, so its group fails
+        // with a conflict once the first group is decided.
+        final SignedTransaction conflicting = issuingBank.transaction(() -> issuingBank.getServices().signInitialTransaction(
+                new TransactionBuilder(spent.getState().getNotary())
+                        .addInputState(spent)
+                        .addOutputState(LetterOfCreditState.locWithUpdatedStatus(spent.getState().getData(), LocStatus.REJECTED), LOC_CONTRACT_ID)
+                        .addCommand(new ApproveLetterOfCreditApplication(), issuingBank.getInfo().getLegalIdentities().get(0).getOwningKey())));
+        issuingBank.startFlow(new NotaryFlow.Client(conflicting));
+        network.runNetwork();
+
+        final Map<String, LocStatus> locStatuses = new LinkedHashMap<>();
+        locStatuses.put(decided.getLocId(), LocStatus.ISSUED);
+        locStatuses.put(spent.getState().getData().getLocId(), LocStatus.ISSUED);
+        CordaFuture<ApproveLetterOfCreditApplicationBatchFlow.Outcome> future =
+                issuingBank.startFlow(new ApproveLetterOfCreditApplicationBatchFlow.Initiator(locStatuses));
+        network.runNetwork();
+
+        final ApproveLetterOfCreditApplicationBatchFlow.Outcome outcome = future.get();
+        assertEquals(1, outcome.getTransactions().size());
+        assertEquals(
+                Collections.singletonList(LocStatus.ISSUED),
+                outcome.getTransactions().get(0).getTx().outputsOfType(LetterOfCreditState.class).stream()
+                        .filter(it -> it.getLocId().equals(decided.getLocId()))
+                        .map(LetterOfCreditState::getLocStatus)
+                        .collect(Collectors.toList())
+        );
+        assertEquals(Collections.singleton(spent.getState().getData().getLocId()), outcome.getFailures().keySet());
+    }
+
+    @Test
+    public void groupDecidedBeforeACounterpartyFailedIsReportedAsDecided() throws Throwable {
+        final StartedMockNode otherAdvisingBank = network.createPartyNode(new CordaX500Name("OtherAdvisingBank", "Dhaka", "BD"));
+        otherAdvisingBank.registerInitiatedFlow(ApproveLetterOfCreditApplicationBatchFlow.GroupInitiator.class, RefusingResponder.class);
+        final LetterOfCreditState letterOfCredit =
+                performApplyForLetterOfCreditFlow(network, buyer, seller, otherAdvisingBank, issuingBank).get(0).getState().getData();
+
+        final Map<String, LocStatus> locStatuses = new LinkedHashMap<>();
+        locStatuses.put(letterOfCredit.getLocId(), LocStatus.ISSUED);
+        CordaFuture<ApproveLetterOfCreditApplicationBatchFlow.Outcome> future =
+                issuingBank.startFlow(new ApproveLetterOfCreditApplicationBatchFlow.Initiator(locStatuses));
+        network.runNetwork();
+
+        // The transaction was notarised and recorded before the advising bank refused it.
+        final ApproveLetterOfCreditApplicationBatchFlow.Outcome outcome = future.get();
+        assertEquals(Collections.emptyMap(), outcome.getFailures());
+        assertEquals(1, outcome.getTransactions().size());
+        final SignedTransaction signedTx = outcome.getTransactions().get(0);
+        for (StartedMockNode node : ImmutableList.of(seller, buyer, issuingBank)) {
+            assertEquals(signedTx, node.getServices().getValidatedTransactions().getTransaction(signedTx.getId()));
+        }
+    }
+
+    /** An advising bank that fails its side of the group's transaction. It overrides the responder it extends. */
+    public static class RefusingResponder extends ApproveLetterOfCreditApplicationBatchFlow.Responder {
+        public RefusingResponder(FlowSession issuingBankSession) {
+            super(issuingBankSession);
+        }
+
+        @Override
+        public SignedTransaction call() throws FlowException {
+            throw new FlowException("Refused.");
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.test.flow;
 
 import com.example.flow.ApproveLetterOfCreditApplicationFlow;
 import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
 import com.google.common.collect.ImmutableList;
 import net.corda.core.concurrent.CordaFuture;
 import net.corda.core.contracts.StateAndRef;
@@ -26,7 +27,7 @@ public class ApproveLetterOfCreditApplicationFlowTests extends LetterOfCreditTes
         final LetterOfCreditState letterOfCreditState = inputRefs.get(0).getState().getData();
         ApproveLetterOfCreditApplicationFlow.Initiator flow = new ApproveLetterOfCreditApplicationFlow.Initiator(
                 letterOfCreditState.getLocId(),
-                "ISSUED"
+                LocStatus.ISSUED
         );
         CordaFuture<SignedTransaction> future = issuingBank.startFlow(flow);
         network.runNetwork();
@@ -42,7 +43,7 @@ public class ApproveLetterOfCreditApplicationFlowTests extends LetterOfCreditTes
         final LetterOfCreditState letterOfCreditState = inputRefs.get(0).getState().getData();
         ApproveLetterOfCreditApplicationFlow.Initiator flow = new ApproveLetterOfCreditApplicationFlow.Initiator(
                 letterOfCreditState.getLocId(),
-                "REJECTED"
+                LocStatus.REJECTED
         );
         CordaFuture<SignedTransaction> future = issuingBank.startFlow(flow);
         network.runNetwork();
@@ -58,7 +59,7 @@ public class ApproveLetterOfCreditApplicationFlowTests extends LetterOfCreditTes
         final LetterOfCreditState letterOfCreditState = inputRefs.get(0).getState().getData();
         ApproveLetterOfCreditApplicationFlow.Initiator flow = new ApproveLetterOfCreditApplicationFlow.Initiator(
                 letterOfCreditState.getLocId(),
-                "ISSUED"
+                LocStatus.ISSUED
         );
         CordaFuture<SignedTransaction> future = issuingBank.startFlow(flow);
         network.runNetwork();
@@ -77,7 +78,7 @@ public class ApproveLetterOfCreditApplicationFlowTests extends LetterOfCreditTes
         final LetterOfCreditState letterOfCreditState = inputRefs.get(0).getState().getData();
         ApproveLetterOfCreditApplicationFlow.Initiator flow = new ApproveLetterOfCreditApplicationFlow.Initiator(
                 letterOfCreditState.getLocId(),
-                "REJECTED"
+                LocStatus.REJECTED
         );
         CordaFuture<SignedTransaction> future = issuingBank.startFlow(flow);
         network.runNetwork();
@@ -96,7 +97,7 @@ public class ApproveLetterOfCreditApplicationFlowTests extends LetterOfCreditTes
         final LetterOfCreditState letterOfCreditState = inputRefs.get(0).getState().getData();
         ApproveLetterOfCreditApplicationFlow.Initiator flow = new ApproveLetterOfCreditApplicationFlow.Initiator(
                 letterOfCreditState.getLocId(),
-                "ISSUED"
+                LocStatus.ISSUED
         );
         issuingBank.startFlow(flow);
         network.runNetwork();
@@ -125,7 +126,7 @@ public class ApproveLetterOfCreditApplicationFlowTests extends LetterOfCreditTes
                 assertEquals(demoLetterOfCreditState.getProductQuantity(), recordedLetterOfCredit.getProductQuantity());
                 assertEquals(demoLetterOfCreditState.getProductPriceInUSD(), recordedLetterOfCredit.getProductPriceInUSD());
                 assertEquals(demoLetterOfCreditState.getProductGrossWeightInKG(), recordedLetterOfCredit.getProductGrossWeightInKG());
-                assertEquals("ISSUED", recordedLetterOfCredit.getLocStatus());
+                assertEquals(LocStatus.ISSUED, recordedLetterOfCredit.getLocStatus());
                 return null;
             });
         }
@@ -138,7 +139,7 @@ public class ApproveLetterOfCreditApplicationFlowTests extends LetterOfCreditTes
         final LetterOfCreditState letterOfCreditState = inputRefs.get(0).getState().getData();
         ApproveLetterOfCreditApplicationFlow.Initiator flow = new ApproveLetterOfCreditApplicationFlow.Initiator(
                 letterOfCreditState.getLocId(),
-                "REJECTED"
+                LocStatus.REJECTED
         );
         issuingBank.startFlow(flow);
         network.runNetwork();
@@ -167,7 +168,7 @@ public class ApproveLetterOfCreditApplicationFlowTests extends LetterOfCreditTes
                 assertEquals(demoLetterOfCreditState.getProductQuantity(), recordedLetterOfCredit.getProductQuantity());
                 assertEquals(demoLetterOfCreditState.getProductPriceInUSD(), recordedLetterOfCredit.getProductPriceInUSD());
                 assertEquals(demoLetterOfCreditState.getProductGrossWeightInKG(), recordedLetterOfCredit.getProductGrossWeightInKG());
-                assertEquals("REJECTED", recordedLetterOfCredit.getLocStatus());
+                assertEquals(LocStatus.REJECTED, recordedLetterOfCredit.getLocStatus());
                 return null;
             });
         }
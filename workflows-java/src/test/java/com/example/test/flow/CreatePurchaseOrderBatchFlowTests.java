@@ -0,0 +1,119 @@
+package com.example.test.flow;
+
+import com.example.flow.CreatePurchaseOrderBatchFlow;
+import com.example.state.PurchaseOrderState;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.concurrent.CordaFuture;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.flows.FlowException;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.testing.node.StartedMockNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+
+public class CreatePurchaseOrderBatchFlowTests extends LetterOfCreditTests {
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    private static List<CreatePurchaseOrderBatchFlow.Item> demoItems(int count) {
+        final List<CreatePurchaseOrderBatchFlow.Item> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(new CreatePurchaseOrderBatchFlow.Item(
+                    demoPurchaseOrder.getPurchaseOrderIssueDate(),
+                    demoPurchaseOrder.getProductName() + " " + i,
+                    demoPurchaseOrder.getProductQuantity(),
+                    demoPurchaseOrder.getProductPriceInUSD(),
+                    demoPurchaseOrder.getProductGrossWeightInKG()
+            ));
+        }
+        return items;
+    }
+
+    @Test
+    public void signedTransactionReturnedByTheFlowIsSignedByTheBuyer() throws Exception {
+        CreatePurchaseOrderBatchFlow.Initiator flow = new CreatePurchaseOrderBatchFlow.Initiator(
+                demoPurchaseOrder.getBuyer(),
+                demoItems(3)
+        );
+        CordaFuture<SignedTransaction> future = seller.startFlow(flow);
+        network.runNetwork();
+
+        SignedTransaction signedTx = future.get();
+        signedTx.verifySignaturesExcept(buyer.getInfo().getLegalIdentities().get(0).getOwningKey());
+    }
+
+    @Test
+    public void flowRecordsEveryPurchaseOrderOfTheBatchInBothPartiesVaults() throws Exception {
+        final List<CreatePurchaseOrderBatchFlow.Item> items = demoItems(3);
+        CreatePurchaseOrderBatchFlow.Initiator flow = new CreatePurchaseOrderBatchFlow.Initiator(
+                demoPurchaseOrder.getBuyer(),
+                items
+        );
+        CordaFuture<SignedTransaction> future = seller.startFlow(flow);
+        network.runNetwork();
+        SignedTransaction signedTx = future.get();
+        assertEquals(3, signedTx.getTx().outputsOfType(PurchaseOrderState.class).size());
+
+        // We check all purchase orders were recorded, from the one transaction, in both vaults.
+        for (StartedMockNode node : ImmutableList.of(seller, buyer)) {
+            node.transaction(() -> {
+                List<StateAndRef<PurchaseOrderState>> purchaseOrders =
+                        node.getServices().getVaultService().queryBy(PurchaseOrderState.class).getStates();
+                assertEquals(3, purchaseOrders.size());
+                assertEquals(
+                        items.stream().map(CreatePurchaseOrderBatchFlow.Item::getProductName).sorted().collect(Collectors.toList()),
+                        purchaseOrders.stream().map(it -> it.getState().getData().getProductName()).sorted().collect(Collectors.toList())
+                );
+                for (StateAndRef<PurchaseOrderState> purchaseOrder : purchaseOrders) {
+                    assertEquals(signedTx.getId(), purchaseOrder.getRef().getTxhash());
+                    assertEquals(demoPurchaseOrder.getSeller(), purchaseOrder.getState().getData().getSeller());
+                    assertEquals(demoPurchaseOrder.getBuyer(), purchaseOrder.getState().getData().getBuyer());
+                }
+                return null;
+            });
+        }
+    }
+
+    @Test
+    public void flowRejectsAnEmptyBatch() throws Exception {
+        CreatePurchaseOrderBatchFlow.Initiator flow = new CreatePurchaseOrderBatchFlow.Initiator(
+                demoPurchaseOrder.getBuyer(),
+                Collections.emptyList()
+        );
+        CordaFuture<SignedTransaction> future = seller.startFlow(flow);
+        network.runNetwork();
+
+        exception.expectCause(instanceOf(FlowException.class));
+        future.get();
+    }
+
+    @Test
+    public void flowWithAPurchaseOrderIdAlreadyInUseByTheBuyerFails() throws Exception {
+        // The buyer has sold under one of the ids already, to a third party, so the seller's vault does not know it.
+        buyer.startFlow(new CreatePurchaseOrderBatchFlow.Initiator(
+                Collections.singletonList("request-2"),
+                advisingBank.getInfo().getLegalIdentities().get(0),
+                demoItems(1)
+        ));
+        network.runNetwork();
+
+        CordaFuture<SignedTransaction> future = seller.startFlow(new CreatePurchaseOrderBatchFlow.Initiator(
+                ImmutableList.of("request-1", "request-2"),
+                demoPurchaseOrder.getBuyer(),
+                demoItems(2)
+        ));
+        network.runNetwork();
+
+        exception.expectCause(instanceOf(FlowException.class));
+        future.get();
+    }
+}
@@ -1,10 +1,17 @@
 package com.example.test.flow;
 
 import com.example.flow.CreatePurchaseOrderFlow;
+import com.example.schema.PurchaseOrderSchemaV1.PersistentPurchaseOrder;
 import com.example.state.PurchaseOrderState;
+import com.example.vault.VaultPager;
 import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.stream.Collectors;
 import net.corda.core.concurrent.CordaFuture;
 import net.corda.core.contracts.StateAndRef;
+import net.corda.core.flows.FlowException;
+import net.corda.core.node.services.vault.Builder;
+import net.corda.core.node.services.vault.QueryCriteria;
 import net.corda.core.transactions.SignedTransaction;
 import net.corda.testing.node.StartedMockNode;
 import org.junit.Rule;
@@ -13,6 +20,8 @@ import org.junit.rules.ExpectedException;
 
 import java.util.List;
 
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.getField;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertEquals;
 
 public class CreatePurchaseOrderFlowTests extends LetterOfCreditTests {
@@ -106,4 +115,98 @@ public class CreatePurchaseOrderFlowTests extends LetterOfCreditTests {
             });
         }
     }
+
+    @Test
+    public void flowRecordsThePurchaseOrderInThePurchaseOrderSchema() throws Throwable {
+        final List<StateAndRef<PurchaseOrderState>> outputRefs =
+                performCreatePurchaseOrderFlow(network, buyer, seller);
+        final PurchaseOrderState purchaseOrder = outputRefs.get(0).getState().getData();
+        final QueryCriteria criteria = new QueryCriteria.VaultCustomQueryCriteria(
+                Builder.equal(getField("purchaseOrderId", PersistentPurchaseOrder.class), purchaseOrder.getPurchaseOrderId())
+        );
+        // We check that the purchase order can be found by its indexed purchaseOrderId in both vaults.
+        for (StartedMockNode node : ImmutableList.of(seller, buyer)) {
+            node.transaction(() -> {
+                List<StateAndRef<PurchaseOrderState>> purchaseOrders =
+                        node.getServices().getVaultService().queryBy(PurchaseOrderState.class, criteria).getStates();
+                assertEquals(1, purchaseOrders.size());
+                assertEquals(purchaseOrder, purchaseOrders.get(0).getState().getData());
+                return null;
+            });
+        }
+    }
+
+
+    @Test
+    public void vaultPagerWalksEveryPurchaseOrderAcrossPages() throws Throwable {
+        final List<String> createdIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            createdIds.add(performCreatePurchaseOrderFlow(network, buyer, seller)
+                    .get(0).getState().getData().getPurchaseOrderId());
+        }
+        // A page size smaller than the number of states forces the pager onto a second page.
+        for (StartedMockNode node : ImmutableList.of(seller, buyer)) {
+            node.transaction(() -> {
+                List<String> pagedIds = VaultPager.of(
+                        node.getServices().getVaultService(),
+                        PurchaseOrderState.class,
+                        new QueryCriteria.VaultQueryCriteria(),
+                        2
+                ).stream().map(it -> it.getState().getData().getPurchaseOrderId()).collect(Collectors.toList());
+                assertEquals(createdIds, pagedIds);
+                return null;
+            });
+        }
+    }
+
+    @Test
+    public void flowWithAPurchaseOrderIdAlreadyInUseFails() throws Throwable {
+        final List<CordaFuture<SignedTransaction>> futures = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            futures.add(seller.startFlow(new CreatePurchaseOrderFlow.Initiator(
+                    "request-1",
+                    demoPurchaseOrder.getBuyer(),
+                    demoPurchaseOrder.getPurchaseOrderIssueDate(),
+                    demoPurchaseOrder.getProductName(),
+                    demoPurchaseOrder.getProductQuantity(),
+                    demoPurchaseOrder.getProductPriceInUSD(),
+                    demoBillOfLadingState.getProductGrossWeightInKG()
+            )));
+            network.runNetwork();
+        }
+
+        final PurchaseOrderState purchaseOrder = futures.get(0).get().getTx().outputsOfType(PurchaseOrderState.class).get(0);
+        assertEquals("request-1", purchaseOrder.getPurchaseOrderId());
+        exception.expectCause(instanceOf(FlowException.class));
+        futures.get(1).get();
+    }
+
+    @Test
+    public void flowWithAPurchaseOrderIdAlreadyInUseByTheBuyerFails() throws Throwable {
+        // The buyer has sold under the id already, to a third party, so the seller's vault does not know it.
+        buyer.startFlow(new CreatePurchaseOrderFlow.Initiator(
+                "request-1",
+                advisingBank.getInfo().getLegalIdentities().get(0),
+                demoPurchaseOrder.getPurchaseOrderIssueDate(),
+                demoPurchaseOrder.getProductName(),
+                demoPurchaseOrder.getProductQuantity(),
+                demoPurchaseOrder.getProductPriceInUSD(),
+                demoBillOfLadingState.getProductGrossWeightInKG()
+        ));
+        network.runNetwork();
+
+        final CordaFuture<SignedTransaction> future = seller.startFlow(new CreatePurchaseOrderFlow.Initiator(
+                "request-1",
+                demoPurchaseOrder.getBuyer(),
+                demoPurchaseOrder.getPurchaseOrderIssueDate(),
+                demoPurchaseOrder.getProductName(),
+                demoPurchaseOrder.getProductQuantity(),
+                demoPurchaseOrder.getProductPriceInUSD(),
+                demoBillOfLadingState.getProductGrossWeightInKG()
+        ));
+        network.runNetwork();
+
+        exception.expectCause(instanceOf(FlowException.class));
+        future.get();
+    }
 }
@@ -3,6 +3,7 @@ package com.example.test.flow;
 import com.example.flow.*;
 import com.example.state.BillOfLadingState;
 import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
 import com.example.state.PurchaseOrderState;
 import com.google.common.collect.ImmutableList;
 import net.corda.core.concurrent.CordaFuture;
@@ -30,11 +31,16 @@ abstract class LetterOfCreditTests {
     public static LetterOfCreditState demoLetterOfCreditState;
     public static BillOfLadingState demoBillOfLadingState;
 
+    @NotNull
+    protected MockNetworkParameters networkParameters() {
+        return new MockNetworkParameters().withCordappsForAllNodes(ImmutableList.of(
+                TestCordapp.findCordapp("com.example.contract"),
+                TestCordapp.findCordapp("com.example.flow")));
+    }
+
     @Before
     public void setup() {
-        network = new MockNetwork(new MockNetworkParameters().withCordappsForAllNodes(ImmutableList.of(
-                TestCordapp.findCordapp("com.example.contract"),
-                TestCordapp.findCordapp("com.example.flow"))));
+        network = new MockNetwork(networkParameters());
         buyer = network.createPartyNode(new CordaX500Name("Buyer", "Kowloon", "HK"));
         seller = network.createPartyNode(new CordaX500Name("Seller", "Chittagong", "BD"));
         advisingBank = network.createPartyNode(new CordaX500Name("AdvisingBank", "Dhaka", "BD"));
@@ -42,12 +48,15 @@ abstract class LetterOfCreditTests {
         // For real nodes this happens automatically, but we have to manually register the flow for tests.
         for (StartedMockNode node : ImmutableList.of(buyer, seller, issuingBank, advisingBank)) {
             node.registerInitiatedFlow(CreatePurchaseOrderFlow.Initiator.class, CreatePurchaseOrderFlow.Responder.class);
+            node.registerInitiatedFlow(CreatePurchaseOrderBatchFlow.Initiator.class, CreatePurchaseOrderBatchFlow.Responder.class);
             node.registerInitiatedFlow(ApplyForLetterOfCreditFlow.Initiator.class, ApplyForLetterOfCreditFlow.Responder.class);
             node.registerInitiatedFlow(ApproveLetterOfCreditApplicationFlow.Initiator.class, ApproveLetterOfCreditApplicationFlow.Responder.class);
+            node.registerInitiatedFlow(ApproveLetterOfCreditApplicationBatchFlow.GroupInitiator.class, ApproveLetterOfCreditApplicationBatchFlow.Responder.class);
             node.registerInitiatedFlow(ShipProductsFlow.Initiator.class, ShipProductsFlow.Responder.class);
             node.registerInitiatedFlow(PaySellerFlow.Initiator.class, PaySellerFlow.Responder.class);
             node.registerInitiatedFlow(PayAdvisingBankFlow.Initiator.class, PayAdvisingBankFlow.Responder.class);
             node.registerInitiatedFlow(PayIssuingBankFlow.Initiator.class, PayIssuingBankFlow.Responder.class);
+            node.registerInitiatedFlow(SettleLetterOfCreditFlow.Initiator.class, SettleLetterOfCreditFlow.Responder.class);
         }
 
         demoPurchaseOrder = new PurchaseOrderState(
@@ -181,7 +190,7 @@ abstract class LetterOfCreditTests {
         final LetterOfCreditState letterOfCreditState = inputRefs.get(0).getState().getData();
         ApproveLetterOfCreditApplicationFlow.Initiator flow = new ApproveLetterOfCreditApplicationFlow.Initiator(
                 letterOfCreditState.getLocId(),
-                "ISSUED"
+                LocStatus.ISSUED
         );
         CordaFuture<SignedTransaction> future = issuingBank.startFlow(flow);
         network.runNetwork();
@@ -204,7 +213,7 @@ abstract class LetterOfCreditTests {
         final LetterOfCreditState letterOfCreditState = inputRefs.get(0).getState().getData();
         ApproveLetterOfCreditApplicationFlow.Initiator flow = new ApproveLetterOfCreditApplicationFlow.Initiator(
                 letterOfCreditState.getLocId(),
-                "REJECTED"
+                LocStatus.REJECTED
         );
         CordaFuture<SignedTransaction> future = issuingBank.startFlow(flow);
         network.runNetwork();
@@ -0,0 +1,57 @@
+package com.example.test.flow;
+
+import com.example.flow.NotarySelector;
+import com.example.state.LetterOfCreditState;
+import com.example.state.PurchaseOrderState;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.testing.node.MockNetworkNotarySpec;
+import net.corda.testing.node.MockNetworkParameters;
+import net.corda.testing.node.TestCordapp;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class NotarySelectorTests extends LetterOfCreditTests {
+    @NotNull
+    @Override
+    protected MockNetworkParameters networkParameters() {
+        return new MockNetworkParameters()
+                .withNotarySpecs(ImmutableList.of(
+                        new MockNetworkNotarySpec(new CordaX500Name("NotaryA", "London", "GB")),
+                        new MockNetworkNotarySpec(new CordaX500Name("NotaryB", "London", "GB"))))
+                .withCordappsForAllNodes(ImmutableList.of(
+                        TestCordapp.findCordapp("com.example.contract"),
+                        TestCordapp.findCordapp("com.example.flow")
+                                .withConfig(ImmutableMap.of(NotarySelector.STRATEGY_KEY, "round-robin"))));
+    }
+
+    @Test
+    public void newPurchaseOrdersAreSpreadOverTheNotaries() throws Throwable {
+        final Party first = performCreatePurchaseOrderFlow(network, buyer, seller).get(0).getState().getNotary();
+        final Party second = performCreatePurchaseOrderFlow(network, buyer, seller).get(0).getState().getNotary();
+
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    public void letterOfCreditStaysWithTheNotaryOfItsPurchaseOrder() throws Throwable {
+        final List<StateAndRef<LetterOfCreditState>> letterOfCredits =
+                performApproveLetterOfCreditApplicationFlowWithIssued(network, buyer, seller, advisingBank, issuingBank);
+
+        // The purchase order was consumed by the application.
+        final Party purchaseOrderNotary = buyer.transaction(() -> buyer.getServices().getVaultService()
+                .queryBy(PurchaseOrderState.class, new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.CONSUMED))
+                .getStates().get(0).getState().getNotary());
+        assertEquals(purchaseOrderNotary, letterOfCredits.get(0).getState().getNotary());
+    }
+}
@@ -3,6 +3,7 @@ package com.example.test.flow;
 import com.example.flow.PayIssuingBankFlow;
 import com.example.state.BillOfLadingState;
 import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
 import com.google.common.collect.ImmutableList;
 import net.corda.core.concurrent.CordaFuture;
 import net.corda.core.contracts.StateAndRef;
@@ -78,7 +79,7 @@ public class PayIssuingBankFlowTests extends LetterOfCreditTests {
                         node.getServices().getVaultService().queryBy(LetterOfCreditState.class).getStates();
                 assertEquals(1, letterOfCredits.size());
                 LetterOfCreditState recordedLetterOfCredit = letterOfCredits.get(0).getState().getData();
-                assertEquals("ISSUING_BANK_PAID", recordedLetterOfCredit.getLocStatus());
+                assertEquals(LocStatus.ISSUING_BANK_PAID, recordedLetterOfCredit.getLocStatus());
 
                 List<StateAndRef<BillOfLadingState>> bills =
                         node.getServices().getVaultService().queryBy(BillOfLadingState.class).getStates();
@@ -3,9 +3,12 @@ package com.example.test.flow;
 import com.example.flow.PaySellerFlow;
 import com.example.state.BillOfLadingState;
 import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
+import com.example.vault.StateLookup;
 import com.google.common.collect.ImmutableList;
 import net.corda.core.concurrent.CordaFuture;
 import net.corda.core.contracts.StateAndRef;
+import net.corda.core.node.services.Vault;
 import net.corda.core.transactions.SignedTransaction;
 import net.corda.testing.node.StartedMockNode;
 import org.junit.Rule;
@@ -78,7 +81,7 @@ public class PaySellerFlowTests extends LetterOfCreditTests {
                         node.getServices().getVaultService().queryBy(LetterOfCreditState.class).getStates();
                 assertEquals(1, letterOfCredits.size());
                 LetterOfCreditState recordedLetterOfCredit = letterOfCredits.get(0).getState().getData();
-                assertEquals("SELLER_PAID", recordedLetterOfCredit.getLocStatus());
+                assertEquals(LocStatus.SELLER_PAID, recordedLetterOfCredit.getLocStatus());
 
                 List<StateAndRef<BillOfLadingState>> bills =
                         node.getServices().getVaultService().queryBy(BillOfLadingState.class).getStates();
@@ -89,4 +92,29 @@ public class PaySellerFlowTests extends LetterOfCreditTests {
             });
         }
     }
+
+    @Test
+    public void billOfLadingKeepsItsLinearIdAcrossOwners() throws Throwable {
+        final List<StateAndRef> outputRefs =
+                performPaySellerFlow(network, buyer, seller, advisingBank, issuingBank);
+        final BillOfLadingState billOfLading = (BillOfLadingState) outputRefs.get(1).getState().getData();
+        // We check that the bill owned by the seller and the bill owned by the advising bank share one linear id.
+        for (StartedMockNode node : ImmutableList.of(seller, buyer, issuingBank, advisingBank)) {
+            node.transaction(() -> {
+                List<StateAndRef<BillOfLadingState>> bills = node.getServices().getVaultService().queryBy(
+                        BillOfLadingState.class,
+                        StateLookup.byBusinessId(billOfLading.getBillOfLadingId(), Vault.StateStatus.ALL)
+                ).getStates();
+                assertEquals(2, bills.size());
+
+                List<StateAndRef<BillOfLadingState>> unconsumedBills = node.getServices().getVaultService().queryBy(
+                        BillOfLadingState.class,
+                        StateLookup.byBusinessId(billOfLading.getBillOfLadingId(), Vault.StateStatus.UNCONSUMED)
+                ).getStates();
+                assertEquals(1, unconsumedBills.size());
+                assertEquals(billOfLading.getAdvisingBank(), unconsumedBills.get(0).getState().getData().getCurrentOwner());
+                return null;
+            });
+        }
+    }
 }
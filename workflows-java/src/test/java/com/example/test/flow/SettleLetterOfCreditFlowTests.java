@@ -0,0 +1,79 @@
+package com.example.test.flow;
+
+import com.example.flow.SettleLetterOfCreditFlow;
+import com.example.state.BillOfLadingState;
+import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
+import com.example.vault.StateLookup;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.concurrent.CordaFuture;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.flows.FlowException;
+import net.corda.core.node.services.Vault;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.testing.node.StartedMockNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+
+public class SettleLetterOfCreditFlowTests extends LetterOfCreditTests {
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void signedTransactionReturnedByTheFlowIsSignedByTheInitiator() throws Throwable {
+        final List<StateAndRef> inputRefs =
+                performShipProductsFlow(network, buyer, seller, advisingBank, issuingBank);
+        final LetterOfCreditState inputLOC = (LetterOfCreditState) inputRefs.get(0).getState().getData();
+        CordaFuture<SignedTransaction> future = advisingBank.startFlow(new SettleLetterOfCreditFlow.Initiator(inputLOC.getLocId()));
+        network.runNetwork();
+
+        SignedTransaction signedTx = future.get();
+        signedTx.verifySignaturesExcept(advisingBank.getInfo().getLegalIdentities().get(0).getOwningKey());
+    }
+
+    @Test
+    public void flowSettlesTheLetterOfCreditAndHandsTheBillOfLadingToTheBuyerInAllVaults() throws Throwable {
+        final List<StateAndRef> inputRefs =
+                performShipProductsFlow(network, buyer, seller, advisingBank, issuingBank);
+        final LetterOfCreditState inputLOC = (LetterOfCreditState) inputRefs.get(0).getState().getData();
+        final BillOfLadingState inputBillOfLading = (BillOfLadingState) inputRefs.get(1).getState().getData();
+        CordaFuture<SignedTransaction> future = advisingBank.startFlow(new SettleLetterOfCreditFlow.Initiator(inputLOC.getLocId()));
+        network.runNetwork();
+        SignedTransaction signedTx = future.get();
+
+        for (StartedMockNode node : ImmutableList.of(seller, buyer, advisingBank, issuingBank)) {
+            assertEquals(signedTx, node.getServices().getValidatedTransactions().getTransaction(signedTx.getId()));
+            node.transaction(() -> {
+                final LetterOfCreditState letterOfCredit = node.getServices().getVaultService().queryBy(
+                        LetterOfCreditState.class,
+                        StateLookup.byBusinessId(inputLOC.getLocId(), Vault.StateStatus.UNCONSUMED)
+                ).getStates().get(0).getState().getData();
+                assertEquals(LocStatus.ISSUING_BANK_PAID, letterOfCredit.getLocStatus());
+                final BillOfLadingState billOfLading = node.getServices().getVaultService().queryBy(
+                        BillOfLadingState.class,
+                        StateLookup.byBusinessId(inputBillOfLading.getBillOfLadingId(), Vault.StateStatus.UNCONSUMED)
+                ).getStates().get(0).getState().getData();
+                assertEquals(billOfLading.getBuyer(), billOfLading.getCurrentOwner());
+                return null;
+            });
+        }
+    }
+
+    @Test
+    public void flowRejectsALetterOfCreditThatIsNotShipped() throws Throwable {
+        final List<StateAndRef<LetterOfCreditState>> inputRefs =
+                performApproveLetterOfCreditApplicationFlowWithIssued(network, buyer, seller, advisingBank, issuingBank);
+        final LetterOfCreditState inputLOC = inputRefs.get(0).getState().getData();
+        CordaFuture<SignedTransaction> future = advisingBank.startFlow(new SettleLetterOfCreditFlow.Initiator(inputLOC.getLocId()));
+        network.runNetwork();
+
+        exception.expectCause(instanceOf(FlowException.class));
+        future.get();
+    }
+}
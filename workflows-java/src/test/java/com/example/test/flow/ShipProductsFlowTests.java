@@ -1,22 +1,30 @@
 package com.example.test.flow;
 
 import com.example.flow.ShipProductsFlow;
+import com.example.schema.BillOfLadingSchemaV1.PersistentBillOfLading;
 import com.example.state.BillOfLadingState;
 import com.example.state.LetterOfCreditState;
+import com.example.state.LocStatus;
 import com.google.common.collect.ImmutableList;
 import net.corda.core.concurrent.CordaFuture;
 import net.corda.core.contracts.StateAndRef;
 import net.corda.core.flows.FlowException;
+import net.corda.core.node.services.vault.Builder;
+import net.corda.core.node.services.vault.QueryCriteria;
 import net.corda.core.transactions.SignedTransaction;
 import net.corda.testing.node.StartedMockNode;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
+import static net.corda.core.node.services.vault.QueryCriteriaUtils.getField;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class ShipProductsFlowTests extends LetterOfCreditTests {
     @Rule
@@ -62,6 +70,36 @@ public class ShipProductsFlowTests extends LetterOfCreditTests {
         future.get();
     }
 
+    @Test
+    public void onlyOneOfTwoConcurrentShipmentsOfTheSameLetterOfCreditSucceeds() throws Throwable {
+        final List<StateAndRef<LetterOfCreditState>> inputRefs =
+                performApproveLetterOfCreditApplicationFlowWithIssued(network, buyer, seller, advisingBank, issuingBank);
+        final LetterOfCreditState letterOfCredit = inputRefs.get(0).getState().getData();
+        final List<CordaFuture<SignedTransaction>> futures = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            futures.add(seller.startFlow(new ShipProductsFlow.Initiator(
+                    letterOfCredit.getLocId(),
+                    demoBillOfLadingState.getCarrierCompanyName(),
+                    demoBillOfLadingState.getCarrierName(),
+                    demoBillOfLadingState.getLoadingDate(),
+                    demoBillOfLadingState.getDischargeDate(),
+                    demoBillOfLadingState.getProductDescription()
+            )));
+        }
+        network.runNetwork();
+
+        int succeeded = 0;
+        for (CordaFuture<SignedTransaction> future : futures) {
+            try {
+                future.get();
+                succeeded++;
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof FlowException);
+            }
+        }
+        assertEquals(1, succeeded);
+    }
+
     @Test
     public void flowRecordsATransactionInAllPartiesTransactionStorage() throws Throwable {
         final List<StateAndRef<LetterOfCreditState>> inputRefs =
@@ -109,7 +147,7 @@ public class ShipProductsFlowTests extends LetterOfCreditTests {
                         node.getServices().getVaultService().queryBy(LetterOfCreditState.class).getStates();
                 assertEquals(1, letterOfCredits.size());
                 LetterOfCreditState recordedLetterOfCredit = letterOfCredits.get(0).getState().getData();
-                assertEquals("SHIPPED", recordedLetterOfCredit.getLocStatus());
+                assertEquals(LocStatus.SHIPPED, recordedLetterOfCredit.getLocStatus());
 
                 List<StateAndRef<BillOfLadingState>> billsOfLading =
                         node.getServices().getVaultService().queryBy(BillOfLadingState.class).getStates();
@@ -139,4 +177,24 @@ public class ShipProductsFlowTests extends LetterOfCreditTests {
             });
         }
     }
+
+    @Test
+    public void flowRecordsTheBillOfLadingInTheBillOfLadingSchema() throws Throwable {
+        final List<StateAndRef> outputRefs =
+                performShipProductsFlow(network, buyer, seller, advisingBank, issuingBank);
+        final BillOfLadingState billOfLading = (BillOfLadingState) outputRefs.get(1).getState().getData();
+        final QueryCriteria criteria = new QueryCriteria.VaultCustomQueryCriteria(
+                Builder.equal(getField("billOfLadingId", PersistentBillOfLading.class), billOfLading.getBillOfLadingId())
+        );
+        // We check that the bill of lading can be found by its indexed billOfLadingId in all vaults.
+        for (StartedMockNode node : ImmutableList.of(seller, buyer, issuingBank, advisingBank)) {
+            node.transaction(() -> {
+                List<StateAndRef<BillOfLadingState>> billsOfLading =
+                        node.getServices().getVaultService().queryBy(BillOfLadingState.class, criteria).getStates();
+                assertEquals(1, billsOfLading.size());
+                assertEquals(billOfLading, billsOfLading.get(0).getState().getData());
+                return null;
+            });
+        }
+    }
 }